@@ -0,0 +1,408 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.schema;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.xlate.edi.internal.schema.implementation.BaseImpl;
+import io.xlate.edi.internal.schema.implementation.CompositeImpl;
+import io.xlate.edi.internal.schema.implementation.DiscriminatorImpl;
+import io.xlate.edi.internal.schema.implementation.ElementImpl;
+import io.xlate.edi.internal.schema.implementation.LoopImpl;
+import io.xlate.edi.internal.schema.implementation.SegmentImpl;
+import io.xlate.edi.internal.schema.implementation.TransactionImpl;
+import io.xlate.edi.schema.EDIComplexType;
+import io.xlate.edi.schema.EDIReference;
+import io.xlate.edi.schema.EDISchemaException;
+import io.xlate.edi.schema.EDISimpleType;
+import io.xlate.edi.schema.EDISyntaxRule;
+import io.xlate.edi.schema.EDIType;
+import io.xlate.edi.schema.implementation.Discriminator;
+import io.xlate.edi.schema.implementation.EDITypeImplementation;
+
+/**
+ * Reads a schema in the binary form written by {@link BinarySchemaWriter}.
+ * The types are created directly from their stored attributes and linked by
+ * id once all standard types have been read, without parsing or resolving any
+ * XML.
+ */
+final class BinarySchemaReader {
+
+    static final int MAGIC = 0x45444953; // "EDIS"
+    static final short FORMAT_VERSION = 2;
+
+    static final int TYPE_ELEMENT = 1;
+    static final int TYPE_STRUCTURE = 2;
+
+    static final int IMPL_NONE = 0;
+    static final int IMPL_ELEMENT = 1;
+    static final int IMPL_COMPOSITE = 2;
+    static final int IMPL_SEGMENT = 3;
+    static final int IMPL_LOOP = 4;
+    static final int IMPL_TRANSACTION = 5;
+
+    static final int STRING_NULL = 0;
+    static final int STRING_NEW = 1;
+    static final int STRING_INDEX_OFFSET = 2;
+
+    private final DataInput input;
+    private final List<String> strings = new ArrayList<>();
+    private final List<Map.Entry<Reference, String>> unresolved = new ArrayList<>();
+
+    BinarySchemaReader(DataInput input) {
+        this.input = input;
+    }
+
+    /**
+     * Determine whether the stream begins with the binary schema header,
+     * leaving the position of the stream unchanged.
+     *
+     * @param stream
+     *            the stream, which must support mark/reset
+     * @return true if the stream contains a binary schema
+     * @throws IOException
+     *             when the stream can not be read
+     */
+    static boolean isBinarySchema(InputStream stream) throws IOException {
+        stream.mark(4);
+
+        try {
+            int magic = 0;
+
+            for (int i = 0; i < 4; i++) {
+                int b = stream.read();
+
+                if (b < 0) {
+                    return false;
+                }
+
+                magic = (magic << 8) | b;
+            }
+
+            return magic == MAGIC;
+        } finally {
+            stream.reset();
+        }
+    }
+
+    StaEDISchema read() throws IOException, EDISchemaException {
+        if (input.readInt() != MAGIC) {
+            throw new EDISchemaException("Stream does not contain a binary schema");
+        }
+
+        final short version = input.readShort();
+
+        if (version != FORMAT_VERSION) {
+            throw new EDISchemaException("Unsupported binary schema version: " + version);
+        }
+
+        StaEDISchema schema = new StaEDISchema(readString(), readString(), readString());
+
+        int standardCount = readInt();
+        Map<String, EDIType> types = new HashMap<>(standardCount + 2);
+
+        for (int i = 0; i < standardCount; i++) {
+            final int kind = input.readByte();
+            EDIType type;
+
+            switch (kind) {
+            case TYPE_ELEMENT:
+                type = readElement();
+                break;
+            case TYPE_STRUCTURE:
+                type = readStructure();
+                break;
+            default:
+                throw new EDISchemaException("Unexpected binary schema type: " + kind);
+            }
+
+            types.put(type.getId(), type);
+        }
+
+        for (Map.Entry<Reference, String> ref : unresolved) {
+            ref.getKey().setReferencedType(requireType(types, ref.getValue()));
+        }
+
+        int implementationCount = readInt();
+
+        for (int i = 0; i < implementationCount; i++) {
+            String id = readString();
+            types.put(id, (EDIType) readImplementation(types, null));
+        }
+
+        schema.setTypes(types);
+        return schema;
+    }
+
+    ElementType readElement() throws IOException {
+        String id = readString();
+        EDISimpleType.Base base = EDISimpleType.Base.valueOf(readString());
+        String code = readString();
+        int number = readInt();
+        long minLength = readLong();
+        long maxLength = readLong();
+        Set<String> values = readStrings();
+
+        int versionCount = readInt();
+        List<ElementType.Version> versions = new ArrayList<>(versionCount);
+
+        for (int i = 0; i < versionCount; i++) {
+            String minVersion = readString();
+            String maxVersion = readString();
+            Long verMinLength = readNullableLong();
+            Long verMaxLength = readNullableLong();
+            Set<String> verValues = input.readBoolean() ? readStrings() : null;
+            versions.add(new ElementType.Version(minVersion, maxVersion, verMinLength, verMaxLength, verValues));
+        }
+
+        return new ElementType(id, base, code, number, minLength, maxLength, values, versions);
+    }
+
+    StructureType readStructure() throws IOException {
+        String id = readString();
+        EDIType.Type type = EDIType.Type.valueOf(readString());
+        String code = readString();
+
+        int refCount = readInt();
+        List<EDIReference> references = new ArrayList<>(refCount);
+
+        for (int i = 0; i < refCount; i++) {
+            references.add(readReference());
+        }
+
+        int ruleCount = readInt();
+        List<EDISyntaxRule> rules = new ArrayList<>(ruleCount);
+
+        for (int i = 0; i < ruleCount; i++) {
+            EDISyntaxRule.Type ruleType = EDISyntaxRule.Type.valueOf(readString());
+            int positionCount = readInt();
+            List<Integer> positions = new ArrayList<>(positionCount);
+
+            for (int p = 0; p < positionCount; p++) {
+                positions.add(readInt());
+            }
+
+            rules.add(new SyntaxRestriction(ruleType, positions));
+        }
+
+        return new StructureType(id, type, code, references, rules);
+    }
+
+    Reference readReference() throws IOException {
+        String targetId = readString();
+        String refId = readString();
+        String refTag = readString();
+        int minOccurs = readInt();
+        int maxOccurs = readInt();
+
+        int versionCount = readInt();
+        List<Reference.Version> versions = new ArrayList<>(versionCount);
+
+        for (int i = 0; i < versionCount; i++) {
+            String minVersion = readString();
+            String maxVersion = readString();
+            versions.add(new Reference.Version(minVersion, maxVersion, readNullableInt(), readNullableInt()));
+        }
+
+        Reference ref = new Reference(refId, refTag, minOccurs, maxOccurs, versions);
+        unresolved.add(new AbstractMap.SimpleImmutableEntry<>(ref, targetId));
+        return ref;
+    }
+
+    EDITypeImplementation readImplementation(Map<String, EDIType> types, EDIType parentStandard) throws IOException, EDISchemaException {
+        final int kind = input.readByte();
+
+        if (kind == IMPL_NONE) {
+            return null;
+        }
+
+        String standardId = readString();
+        EDIReference standardReference = null;
+        EDIType standard = null;
+
+        if (standardId != null) {
+            standardReference = readStandardReference(types, standardId, parentStandard);
+            standard = standardReference.getReferencedType();
+        }
+
+        String typeId = readString();
+        int minOccurs = readInt();
+        int maxOccurs = readInt();
+        String title = readString();
+        String description = readString();
+        BaseImpl<?> impl;
+
+        switch (kind) {
+        case IMPL_ELEMENT: {
+            int position = readInt();
+            Set<String> values = input.readBoolean() ? readStrings() : null;
+            impl = new ElementImpl(minOccurs, maxOccurs, typeId, position, values, title, description);
+            break;
+        }
+        case IMPL_COMPOSITE: {
+            int position = readInt();
+            impl = new CompositeImpl(minOccurs, maxOccurs, typeId, position, readSequence(types, standard), title, description);
+            break;
+        }
+        case IMPL_SEGMENT: {
+            String code = readString();
+            Discriminator disc = readDiscriminator();
+            impl = new SegmentImpl(minOccurs, maxOccurs, typeId, code, disc, readSequence(types, standard), title, description);
+            break;
+        }
+        case IMPL_LOOP: {
+            String code = readString();
+            Discriminator disc = readDiscriminator();
+            impl = new LoopImpl(minOccurs, maxOccurs, code, typeId, disc, readSequence(types, standard), title, description);
+            break;
+        }
+        case IMPL_TRANSACTION: {
+            String code = readString();
+            readDiscriminator();
+            impl = new TransactionImpl(code, typeId, readSequence(types, standard), title, description);
+            break;
+        }
+        default:
+            throw new EDISchemaException("Unexpected binary schema implementation type: " + kind);
+        }
+
+        if (standardReference != null) {
+            // Occurrence limits of the implementation are already set and not replaced by the reference
+            impl.setStandardReference(standardReference);
+        }
+
+        return impl;
+    }
+
+    List<EDITypeImplementation> readSequence(Map<String, EDIType> types, EDIType standard) throws IOException, EDISchemaException {
+        int count = readInt();
+        List<EDITypeImplementation> sequence = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            sequence.add(readImplementation(types, standard));
+        }
+
+        return sequence;
+    }
+
+    EDIReference readStandardReference(Map<String, EDIType> types, String standardId, EDIType parentStandard) throws IOException, EDISchemaException {
+        final int index = readInt();
+
+        if (index < 0) {
+            return new Reference(requireType(types, standardId), readInt(), readInt());
+        }
+
+        if (parentStandard instanceof EDIComplexType) {
+            List<EDIReference> references = ((EDIComplexType) parentStandard).getReferences();
+
+            if (index < references.size() && standardId.equals(references.get(index).getReferencedType().getId())) {
+                return references.get(index);
+            }
+        }
+
+        throw new EDISchemaException("Binary schema implementation of " + standardId + " does not match its standard reference");
+    }
+
+    Discriminator readDiscriminator() throws IOException {
+        if (!input.readBoolean()) {
+            return null;
+        }
+
+        int elementPosition = readInt();
+        int componentPosition = readInt();
+        return new DiscriminatorImpl(elementPosition, componentPosition, readStrings());
+    }
+
+    static EDIType requireType(Map<String, EDIType> types, String id) throws EDISchemaException {
+        EDIType type = types.get(id);
+
+        if (type == null) {
+            throw new EDISchemaException("Binary schema references undeclared type " + id);
+        }
+
+        return type;
+    }
+
+    Set<String> readStrings() throws IOException {
+        int count = readInt();
+        Set<String> values = new LinkedHashSet<>(Math.max(16, count * 2));
+
+        for (int i = 0; i < count; i++) {
+            values.add(readString());
+        }
+
+        return values;
+    }
+
+    String readString() throws IOException {
+        final int marker = (int) readUnsigned();
+
+        switch (marker) {
+        case STRING_NULL:
+            return null;
+        case STRING_NEW:
+            byte[] bytes = new byte[(int) readUnsigned()];
+            input.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        default:
+            return strings.get(marker - STRING_INDEX_OFFSET);
+        }
+    }
+
+    Integer readNullableInt() throws IOException {
+        return input.readBoolean() ? Integer.valueOf(readInt()) : null;
+    }
+
+    Long readNullableLong() throws IOException {
+        return input.readBoolean() ? Long.valueOf(readLong()) : null;
+    }
+
+    int readInt() throws IOException {
+        final int value = (int) readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readLong() throws IOException {
+        final long value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    long readUnsigned() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+
+        do {
+            b = input.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+}
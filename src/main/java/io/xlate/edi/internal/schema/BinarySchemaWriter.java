@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.schema;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.xlate.edi.internal.schema.implementation.BaseComplexImpl;
+import io.xlate.edi.internal.schema.implementation.BaseImpl;
+import io.xlate.edi.internal.schema.implementation.CompositeImpl;
+import io.xlate.edi.internal.schema.implementation.ElementImpl;
+import io.xlate.edi.internal.schema.implementation.LoopImpl;
+import io.xlate.edi.internal.schema.implementation.SegmentImpl;
+import io.xlate.edi.internal.schema.implementation.TransactionImpl;
+import io.xlate.edi.schema.EDIComplexType;
+import io.xlate.edi.schema.EDIReference;
+import io.xlate.edi.schema.EDISchemaException;
+import io.xlate.edi.schema.EDISyntaxRule;
+import io.xlate.edi.schema.EDIType;
+import io.xlate.edi.schema.implementation.Discriminator;
+import io.xlate.edi.schema.implementation.EDITypeImplementation;
+
+/**
+ * Writes a resolved {@link StaEDISchema} in the binary form read by
+ * {@link BinarySchemaReader}. Standard types are written first with their
+ * references given by type id, followed by the implementation tree (if any).
+ * Each distinct string is written once and subsequently referred to by its
+ * position in the table of strings already written.
+ */
+final class BinarySchemaWriter {
+
+    private final DataOutput output;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    BinarySchemaWriter(DataOutput output) {
+        this.output = output;
+    }
+
+    void write(StaEDISchema schema) throws IOException, EDISchemaException {
+        output.writeInt(BinarySchemaReader.MAGIC);
+        output.writeShort(BinarySchemaReader.FORMAT_VERSION);
+
+        writeString(schema.interchangeName);
+        writeString(schema.transactionStandardName);
+        writeString(schema.implementationName);
+
+        Collection<EDIType> types = schema.types.values();
+        int standardCount = 0;
+
+        for (EDIType type : types) {
+            if (type instanceof BasicType) {
+                standardCount++;
+            } else if (!(type instanceof TransactionImpl)) {
+                throw new EDISchemaException("Type " + type.getId() + " can not be written in binary form");
+            }
+        }
+
+        writeInt(standardCount);
+
+        for (EDIType type : types) {
+            if (type instanceof ElementType) {
+                output.writeByte(BinarySchemaReader.TYPE_ELEMENT);
+                writeElement((ElementType) type);
+            } else if (type instanceof StructureType) {
+                output.writeByte(BinarySchemaReader.TYPE_STRUCTURE);
+                writeStructure((StructureType) type, schema);
+            }
+        }
+
+        writeInt(types.size() - standardCount);
+
+        for (EDIType type : types) {
+            if (type instanceof TransactionImpl) {
+                writeString(type.getId());
+                writeImplementation((EDITypeImplementation) type, null);
+            }
+        }
+    }
+
+    void writeElement(ElementType element) throws IOException {
+        writeString(element.getId());
+        writeString(element.base.name());
+        writeString(element.code);
+        writeInt(element.number);
+        writeLong(element.minLength);
+        writeLong(element.maxLength);
+        writeStrings(element.values);
+
+        List<ElementType.Version> versions = element.versions.getVersions();
+        writeInt(versions.size());
+
+        for (ElementType.Version version : versions) {
+            writeString(version.minVersion);
+            writeString(version.maxVersion);
+            writeNullableLong(version.minLength);
+            writeNullableLong(version.maxLength);
+            output.writeBoolean(version.values != null);
+
+            if (version.values != null) {
+                writeStrings(version.values);
+            }
+        }
+    }
+
+    void writeStructure(StructureType structure, StaEDISchema schema) throws IOException, EDISchemaException {
+        writeString(structure.getId());
+        writeString(structure.getType().name());
+        writeString(structure.getCode());
+
+        List<EDIReference> references = structure.getReferences();
+        writeInt(references.size());
+
+        for (EDIReference ref : references) {
+            writeReference(structure, (Reference) ref, schema);
+        }
+
+        List<EDISyntaxRule> rules = structure.getSyntaxRules();
+        writeInt(rules.size());
+
+        for (EDISyntaxRule rule : rules) {
+            writeString(rule.getType().name());
+            List<Integer> positions = rule.getPositions();
+            writeInt(positions.size());
+
+            for (Integer position : positions) {
+                writeInt(position);
+            }
+        }
+    }
+
+    void writeReference(StructureType structure, Reference ref, StaEDISchema schema) throws IOException, EDISchemaException {
+        EDIType target = ref.getReferencedType();
+
+        if (target == null || schema.getType(target.getId()) == null) {
+            throw new EDISchemaException("Type " + structure.getId() + " references a type not contained in the schema");
+        }
+
+        writeString(target.getId());
+        writeString(ref.getRefId());
+        writeString(ref.getRefTag());
+        writeInt(ref.minOccurs);
+        writeInt(ref.maxOccurs);
+
+        List<Reference.Version> versions = ref.versions.getVersions();
+        writeInt(versions.size());
+
+        for (Reference.Version version : versions) {
+            writeString(version.minVersion);
+            writeString(version.maxVersion);
+            writeNullableInt(version.minOccurs);
+            writeNullableInt(version.maxOccurs);
+        }
+    }
+
+    void writeImplementation(EDITypeImplementation type, EDIType parentStandard) throws IOException, EDISchemaException {
+        if (type == null) {
+            output.writeByte(BinarySchemaReader.IMPL_NONE);
+            return;
+        }
+
+        final BaseImpl<?> impl = (BaseImpl<?>) type;
+
+        if (impl instanceof ElementImpl) {
+            output.writeByte(BinarySchemaReader.IMPL_ELEMENT);
+        } else if (impl instanceof CompositeImpl) {
+            output.writeByte(BinarySchemaReader.IMPL_COMPOSITE);
+        } else if (impl instanceof SegmentImpl) {
+            output.writeByte(BinarySchemaReader.IMPL_SEGMENT);
+        } else if (impl instanceof TransactionImpl) {
+            output.writeByte(BinarySchemaReader.IMPL_TRANSACTION);
+        } else if (impl instanceof LoopImpl) {
+            output.writeByte(BinarySchemaReader.IMPL_LOOP);
+        } else {
+            throw new EDISchemaException("Implementation " + impl.getId() + " can not be written in binary form");
+        }
+
+        final EDIType standard = impl.getStandard();
+        writeString(standard != null ? standard.getId() : null);
+
+        if (standard != null) {
+            writeStandardReference(impl, parentStandard);
+        }
+
+        writeString(impl.getTypeId());
+        writeInt(impl.getMinOccurs());
+        writeInt(impl.getMaxOccurs());
+        writeString(impl.getTitle());
+        writeString(impl.getDescription());
+
+        if (impl instanceof ElementImpl) {
+            ElementImpl element = (ElementImpl) impl;
+            writeInt(element.getPosition());
+            output.writeBoolean(element.getValueSet() != null);
+
+            if (element.getValueSet() != null) {
+                writeStrings(element.getValueSet());
+            }
+            return;
+        }
+
+        if (impl instanceof CompositeImpl) {
+            writeInt(((CompositeImpl) impl).getPosition());
+        } else if (impl instanceof SegmentImpl) {
+            writeString(impl.getCode());
+            writeDiscriminator(((SegmentImpl) impl).getDiscriminator());
+        } else {
+            writeString(impl.getCode());
+            writeDiscriminator(((LoopImpl) impl).getDiscriminator());
+        }
+
+        List<EDITypeImplementation> sequence = ((BaseComplexImpl) impl).getSequence();
+        writeInt(sequence.size());
+
+        for (EDITypeImplementation entry : sequence) {
+            writeImplementation(entry, standard);
+        }
+    }
+
+    /**
+     * Write the standard reference of an implementation as its position among
+     * the references of the parent's standard type, so that the reader links
+     * the same reference (with its version-specific occurrences). A reference
+     * not found there, i.e. that of the transaction, is written as its
+     * occurrence limits following a position of -1.
+     */
+    void writeStandardReference(BaseImpl<?> impl, EDIType parentStandard) throws IOException, EDISchemaException {
+        final EDIReference reference = impl.getStandardReference();
+        int index = -1;
+
+        if (parentStandard instanceof EDIComplexType) {
+            List<EDIReference> references = ((EDIComplexType) parentStandard).getReferences();
+
+            for (int i = 0, m = references.size(); i < m && index < 0; i++) {
+                if (references.get(i) == reference) {
+                    index = i;
+                }
+            }
+        }
+
+        writeInt(index);
+
+        if (index < 0) {
+            if (reference.hasVersions()) {
+                throw new EDISchemaException("Implementation " + impl.getId() + " references a versioned type not contained in its parent");
+            }
+
+            writeInt(reference.getMinOccurs());
+            writeInt(reference.getMaxOccurs());
+        }
+    }
+
+    void writeDiscriminator(Discriminator discriminator) throws IOException {
+        output.writeBoolean(discriminator != null);
+
+        if (discriminator != null) {
+            writeInt(discriminator.getElementPosition());
+            writeInt(discriminator.getComponentPosition());
+            writeStrings(discriminator.getValueSet());
+        }
+    }
+
+    void writeStrings(Collection<String> values) throws IOException {
+        writeInt(values.size());
+
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    /**
+     * Write a string as either a reference to a string already written or,
+     * the first time it is seen, as its length and UTF-8 bytes.
+     */
+    void writeString(String value) throws IOException {
+        if (value == null) {
+            writeUnsigned(BinarySchemaReader.STRING_NULL);
+            return;
+        }
+
+        Integer index = strings.get(value);
+
+        if (index != null) {
+            writeUnsigned(index + BinarySchemaReader.STRING_INDEX_OFFSET);
+        } else {
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(BinarySchemaReader.STRING_NEW);
+            writeUnsigned(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    void writeNullableInt(Integer value) throws IOException {
+        output.writeBoolean(value != null);
+
+        if (value != null) {
+            writeInt(value);
+        }
+    }
+
+    void writeNullableLong(Long value) throws IOException {
+        output.writeBoolean(value != null);
+
+        if (value != null) {
+            writeLong(value);
+        }
+    }
+
+    /**
+     * Write a signed value in zig-zag, variable-length form so that small
+     * values (including -1, used for unset occurrence limits) take one byte.
+     */
+    void writeInt(int value) throws IOException {
+        writeUnsigned(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    void writeLong(long value) throws IOException {
+        writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    void writeUnsigned(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        output.writeByte((int) value);
+    }
+}
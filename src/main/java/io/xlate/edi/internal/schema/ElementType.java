@@ -15,13 +15,10 @@
  ******************************************************************************/
 package io.xlate.edi.internal.schema;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.function.BiFunction;
-import java.util.function.Supplier;
 
 import io.xlate.edi.schema.EDISimpleType;
 
@@ -38,7 +35,7 @@ class ElementType extends BasicType implements EDISimpleType {
     final long minLength;
     final long maxLength;
     final Set<String> values;
-    final List<Version> versions;
+    final VersionIndex<Version> versions;
 
     static class Version extends VersionedProperty {
         final Long minLength;
@@ -73,17 +70,7 @@ class ElementType extends BasicType implements EDISimpleType {
         this.minLength = minLength;
         this.maxLength = maxLength;
         this.values = Collections.unmodifiableSet(new LinkedHashSet<>(values));
-        this.versions = Collections.unmodifiableList(new ArrayList<>(versions));
-    }
-
-    <T> T getVersionAttribute(String version, BiFunction<Version, ElementType, T> versionedSupplier, Supplier<T> defaultSupplier) {
-        for (Version ver : versions) {
-            if (ver.appliesTo(version)) {
-                return versionedSupplier.apply(ver, this);
-            }
-        }
-
-        return defaultSupplier.get();
+        this.versions = new VersionIndex<>(versions);
     }
 
     @Override
@@ -124,7 +111,8 @@ class ElementType extends BasicType implements EDISimpleType {
 
     @Override
     public long getMinLength(String version) {
-        return getVersionAttribute(version, Version::getMinLength, this::getMinLength);
+        Version ver = versions.get(version);
+        return ver != null ? ver.getMinLength(this) : minLength;
     }
 
     @Override
@@ -134,7 +122,8 @@ class ElementType extends BasicType implements EDISimpleType {
 
     @Override
     public long getMaxLength(String version) {
-        return getVersionAttribute(version, Version::getMaxLength, this::getMaxLength);
+        Version ver = versions.get(version);
+        return ver != null ? ver.getMaxLength(this) : maxLength;
     }
 
     @Override
@@ -144,6 +133,7 @@ class ElementType extends BasicType implements EDISimpleType {
 
     @Override
     public Set<String> getValueSet(String version) {
-        return getVersionAttribute(version, Version::getValueSet, this::getValueSet);
+        Version ver = versions.get(version);
+        return ver != null ? ver.getValueSet(this) : values;
     }
 }
@@ -15,11 +15,8 @@
  ******************************************************************************/
 package io.xlate.edi.internal.schema;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.function.BiFunction;
-import java.util.function.Supplier;
 
 import io.xlate.edi.schema.EDIReference;
 import io.xlate.edi.schema.EDIType;
@@ -34,7 +31,7 @@ class Reference implements EDIReference {
 
     final int minOccurs;
     final int maxOccurs;
-    final List<Version> versions;
+    final VersionIndex<Version> versions;
 
     static class Version extends VersionedProperty {
         final Integer minOccurs;
@@ -60,7 +57,7 @@ class Reference implements EDIReference {
         this.refTag = refTag;
         this.minOccurs = minOccurs;
         this.maxOccurs = maxOccurs;
-        this.versions = Collections.unmodifiableList(new ArrayList<>(versions));
+        this.versions = new VersionIndex<>(versions);
     }
 
     Reference(String refId, String refTag, int minOccurs, int maxOccurs) {
@@ -71,17 +68,7 @@ class Reference implements EDIReference {
         this.referencedType = referencedType;
         this.minOccurs = minOccurs;
         this.maxOccurs = maxOccurs;
-        this.versions = Collections.emptyList();
-    }
-
-    <T> T getVersionAttribute(String version, BiFunction<Version, Reference, T> versionedSupplier, Supplier<T> defaultSupplier) {
-        for (Version ver : versions) {
-            if (ver.appliesTo(version)) {
-                return versionedSupplier.apply(ver, this);
-            }
-        }
-
-        return defaultSupplier.get();
+        this.versions = new VersionIndex<>(Collections.emptyList());
     }
 
     @Override
@@ -123,12 +110,14 @@ class Reference implements EDIReference {
 
     @Override
     public int getMinOccurs(String version) {
-        return getVersionAttribute(version, Version::getMinOccurs, this::getMinOccurs);
+        Version ver = versions.get(version);
+        return ver != null ? ver.getMinOccurs(this) : minOccurs;
     }
 
     @Override
     public int getMaxOccurs(String version) {
-        return getVersionAttribute(version, Version::getMaxOccurs, this::getMaxOccurs);
+        Version ver = versions.get(version);
+        return ver != null ? ver.getMaxOccurs(this) : maxOccurs;
     }
 
 }
@@ -206,7 +206,11 @@ class SchemaReaderV3 extends SchemaReaderBase implements SchemaReader {
         LoopImplementation loop = readLoopImplementation(reader, complexType, true);
         String typeId = StaEDISchema.TRANSACTION_ID;
         EDIComplexType standard = (EDIComplexType) types.get(typeId);
-        LoopImpl impl = new TransactionImpl(StaEDISchema.IMPLEMENTATION_ID, typeId, loop.getSequence());
+        LoopImpl impl = new TransactionImpl(StaEDISchema.IMPLEMENTATION_ID,
+                                          typeId,
+                                          loop.getSequence(),
+                                          loop.getTitle(),
+                                          loop.getDescription());
         impl.setStandardReference(new Reference(standard, 1, 1));
         implementedTypes.add(impl);
         return impl;
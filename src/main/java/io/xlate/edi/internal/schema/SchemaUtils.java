@@ -26,6 +26,10 @@ import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.Properties;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import io.xlate.edi.schema.EDISchemaException;
 import io.xlate.edi.schema.Schema;
@@ -39,7 +43,8 @@ public class SchemaUtils {
 
     static Properties controlIndex = new Properties();
     static NavigableMap<String, String> controlVersions = new TreeMap<>();
-    static NavigableMap<String, Schema> controlSchemas = new TreeMap<>();
+    // Loaded control schemas, keyed by resource path (versions may share a schema)
+    static ConcurrentMap<String, FutureTask<Schema>> controlSchemas = new ConcurrentHashMap<>();
 
     static {
         try {
@@ -59,7 +64,6 @@ public class SchemaUtils {
             final String schemaPath = entry.getValue().toString();
 
             controlVersions.put(standardVersion, schemaPath);
-            controlSchemas.put(standardVersion, null);
         }
     }
 
@@ -81,23 +85,78 @@ public class SchemaUtils {
             key = standard + '.' + String.join(".", version);
         }
 
-        Entry<String, Schema> controlEntry = controlSchemas.floorEntry(key);
-
-        if (isValidEntry(controlEntry, standard)) {
-            return controlEntry.getValue();
-        }
-
         Entry<String, String> pathEntry = controlVersions.floorEntry(key);
 
         if (isValidEntry(pathEntry, standard)) {
-            Schema created = getXmlSchema(pathEntry.getValue());
-            controlSchemas.put(pathEntry.getKey(), created);
-            return created;
+            return getControlSchema(pathEntry);
         }
 
         return null;
     }
 
+    /**
+     * Load each of the control schemas for the standard that have not
+     * already been loaded.
+     *
+     * @param standard
+     *            the standard, e.g. X12 or EDIFACT, or null to load the control
+     *            schemas of all standards
+     * @return the number of control schemas available for the standard
+     * @throws EDISchemaException
+     *             when a schema can not be loaded
+     */
+    public static int preloadControlSchemas(String standard) throws EDISchemaException {
+        int count = 0;
+
+        for (Entry<String, String> pathEntry : controlVersions.entrySet()) {
+            if (standard == null || isValidEntry(pathEntry, standard)) {
+                getControlSchema(pathEntry);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    static Schema getControlSchema(Entry<String, String> pathEntry) throws EDISchemaException {
+        final String resource = pathEntry.getValue();
+        FutureTask<Schema> task = controlSchemas.get(resource);
+
+        if (task == null) {
+            /*
+             * Each schema is loaded once, by the thread that adds its task.
+             * The schema is loaded outside of the map's locks and concurrent
+             * requests for the same schema wait for the result of the task.
+             */
+            FutureTask<Schema> created = new FutureTask<>(() -> getXmlSchema(resource));
+            task = controlSchemas.putIfAbsent(resource, created);
+
+            if (task == null) {
+                task = created;
+                created.run();
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // Do not retain the failure, the next request will try again
+            controlSchemas.remove(resource, task);
+            Throwable cause = e.getCause();
+
+            if (cause instanceof EDISchemaException) {
+                throw (EDISchemaException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new EDISchemaException("Exception loading control schema " + resource, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EDISchemaException("Interrupted waiting for control schema " + resource, e);
+        }
+    }
+
     static boolean isValidEntry(Entry<String, ?> entry, String standard) {
         if (entry == null) {
             return false;
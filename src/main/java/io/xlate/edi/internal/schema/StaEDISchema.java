@@ -18,6 +18,8 @@ package io.xlate.edi.internal.schema;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -41,6 +43,7 @@ public class StaEDISchema implements Schema {
     public static final String ANY_COMPOSITE_ID = ID_PREFIX + "ANY_COMPOSITE";
 
     private volatile Integer hash = null;
+    private final Map<Class<?>, Object> compiledForms = new ConcurrentHashMap<>(4);
 
     final String interchangeName;
     final String transactionStandardName;
@@ -78,10 +81,11 @@ public class StaEDISchema implements Schema {
     }
 
     @Override
-    public synchronized int hashCode() {
+    public int hashCode() {
         Integer localHash = hash;
 
         if (localHash == null) {
+            // Threads racing to compute the hash arrive at the same value, no lock is needed
             localHash = hash = StreamSupport.stream(spliterator(), false)
                                             .collect(Collectors.summingInt(EDIType::hashCode));
         }
@@ -104,12 +108,32 @@ public class StaEDISchema implements Schema {
         return implementationLoop;
     }
 
+    /**
+     * Retrieve a structure derived from this schema (e.g. a compiled form used
+     * for validation), computing it on first use. The result is retained for
+     * the life of the schema and shared by all callers, so it must be safe for
+     * concurrent use.
+     *
+     * @param <T>
+     *            type of the derived structure
+     * @param type
+     *            class of the derived structure, used as the key for its
+     *            retention
+     * @param compiler
+     *            function to compute the structure when not yet present
+     * @return the derived structure
+     */
+    public <T> T getCompiledForm(Class<T> type, Function<? super StaEDISchema, ? extends T> compiler) {
+        return type.cast(compiledForms.computeIfAbsent(type, key -> compiler.apply(this)));
+    }
+
     void setTypes(Map<String, EDIType> types) throws EDISchemaException {
         if (types == null) {
             throw new NullPointerException("types cannot be null");
         }
 
         this.types = Collections.unmodifiableMap(types);
+        this.compiledForms.clear();
 
         if (types.containsKey(interchangeName)) {
             this.standardLoop = (EDIComplexType) types.get(interchangeName);
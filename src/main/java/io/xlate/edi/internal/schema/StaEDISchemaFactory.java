@@ -15,8 +15,13 @@
  ******************************************************************************/
 package io.xlate.edi.internal.schema;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -62,6 +67,18 @@ public class StaEDISchemaFactory implements SchemaFactory {
 
     @Override
     public Schema createSchema(InputStream stream) throws EDISchemaException {
+        if (!stream.markSupported()) {
+            stream = new BufferedInputStream(stream);
+        }
+
+        try {
+            if (BinarySchemaReader.isBinarySchema(stream)) {
+                return readBinarySchema(stream);
+            }
+        } catch (IOException e) {
+            throw new EDISchemaException("Unable to read schema stream", e);
+        }
+
         Map<String, EDIType> types = readSchemaTypes(stream, properties, true);
 
         StaEDISchema schema = new StaEDISchema(StaEDISchema.INTERCHANGE_ID,
@@ -75,6 +92,27 @@ public class StaEDISchemaFactory implements SchemaFactory {
         return schema;
     }
 
+    Schema readBinarySchema(InputStream stream) throws IOException, EDISchemaException {
+        StaEDISchema schema = new BinarySchemaReader(new DataInputStream(stream)).read();
+        LOGGER.log(Level.FINE, "Binary schema created, contains {0} types", schema.types.size());
+        return schema;
+    }
+
+    @Override
+    public void writeSchema(Schema schema, OutputStream stream) throws EDISchemaException {
+        if (!(schema instanceof StaEDISchema)) {
+            throw new IllegalArgumentException("Unsupported schema implementation: " + schema);
+        }
+
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream));
+            new BinarySchemaWriter(output).write((StaEDISchema) schema);
+            output.flush();
+        } catch (IOException e) {
+            throw new EDISchemaException("Unable to write schema stream", e);
+        }
+    }
+
     @Override
     public Schema createSchema(URL location) throws EDISchemaException {
         LOGGER.fine(() -> "Creating schema from URL: " + location);
@@ -91,6 +129,11 @@ public class StaEDISchemaFactory implements SchemaFactory {
         return SchemaUtils.getControlSchema(standard, version);
     }
 
+    @Override
+    public int preloadControlSchemas(String standard) throws EDISchemaException {
+        return SchemaUtils.preloadControlSchemas(standard);
+    }
+
     @Override
     public boolean isPropertySupported(String name) {
         return supportedProperties.contains(name);
@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.schema;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+import java.util.logging.Logger;
+
+import io.xlate.edi.schema.EDISchemaException;
+import io.xlate.edi.schema.Schema;
+import io.xlate.edi.schema.SchemaRegistry;
+
+public class StaEDISchemaRegistry<K> implements SchemaRegistry<K> {
+
+    static final Logger LOGGER = Logger.getLogger(StaEDISchemaRegistry.class.getName());
+
+    /**
+     * A registered schema, possibly still being loaded. The weight of an entry
+     * is only counted toward the registry's total once its schema has loaded.
+     */
+    final class Entry {
+        final K key;
+        final FutureTask<Schema> task;
+        long weight; // Guarded by evictionLock
+        boolean counted; // Guarded by evictionLock
+
+        Entry(K key, FutureTask<Schema> task) {
+            this.key = key;
+            this.task = task;
+        }
+
+        Schema await() throws EDISchemaException {
+            try {
+                return task.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+
+                if (cause instanceof EDISchemaException) {
+                    throw (EDISchemaException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new EDISchemaException("Exception loading schema for key " + key, cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EDISchemaException("Interrupted waiting for schema for key " + key, e);
+            }
+        }
+    }
+
+    private final long maximumWeight;
+    private final ToLongFunction<? super Schema> weigher;
+    private final Loader<K> loader;
+
+    private final Map<K, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    /*
+     * The counted entries, least recently used first. Guarded by evictionLock.
+     */
+    private final LinkedHashMap<K, Entry> usage = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalWeight; // Guarded by evictionLock
+
+    public StaEDISchemaRegistry(long maximumWeight, ToLongFunction<? super Schema> weigher, Loader<K> loader) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight must not be negative");
+        }
+
+        this.maximumWeight = maximumWeight;
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+        this.loader = Objects.requireNonNull(loader, "loader");
+    }
+
+    @Override
+    public Schema getSchema(K key) throws EDISchemaException {
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            Entry created = new Entry(key, new FutureTask<>(() -> load(key)));
+            entry = entries.putIfAbsent(key, created);
+
+            if (entry == null) {
+                entry = created;
+                loaded(created);
+            }
+        }
+
+        Schema schema = entry.await();
+        accessed(entry);
+        return schema;
+    }
+
+    @Override
+    public Schema getSchemaIfPresent(K key) {
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.task.isDone()) {
+            try {
+                Schema schema = entry.await();
+                accessed(entry);
+                return schema;
+            } catch (EDISchemaException | RuntimeException e) {
+                // Failed loads are removed by the loading thread
+                return null;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void putSchema(K key, Schema schema) {
+        Objects.requireNonNull(schema, "schema");
+        FutureTask<Schema> task = new FutureTask<>(() -> schema);
+        task.run();
+
+        Entry entry = new Entry(key, task);
+
+        evictionLock.lock();
+
+        try {
+            uncount(entries.put(key, entry));
+            count(entry, schema);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void invalidate(K key) {
+        Entry entry = entries.remove(key);
+
+        if (entry != null) {
+            evictionLock.lock();
+
+            try {
+                uncount(entry);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        for (K key : entries.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    @Override
+    public int size() {
+        return entries.size();
+    }
+
+    Schema load(K key) throws EDISchemaException {
+        LOGGER.fine(() -> "Loading schema for key: " + key);
+        Schema schema = loader.load(key);
+
+        if (schema == null) {
+            throw new EDISchemaException("Loader returned no schema for key " + key);
+        }
+
+        return schema;
+    }
+
+    void loaded(Entry entry) {
+        entry.task.run();
+
+        Schema schema;
+
+        try {
+            schema = entry.task.get();
+        } catch (ExecutionException e) {
+            // Do not retain the failure, the next request will try again
+            entries.remove(entry.key, entry);
+            return;
+        } catch (InterruptedException e) {
+            // Not reachable, the task has already been run by this thread
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        evictionLock.lock();
+
+        try {
+            // The entry may have been replaced or invalidated while loading
+            if (entries.get(entry.key) == entry) {
+                count(entry, schema);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Move the entry to the most recently used position. The access is not
+     * recorded when another thread holds the lock, so that reads of cached
+     * schemas never wait. The order is then only approximately that of use.
+     */
+    void accessed(Entry entry) {
+        if (evictionLock.tryLock()) {
+            try {
+                if (entry.counted) {
+                    usage.get(entry.key);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    void count(Entry entry, Schema schema) {
+        entry.weight = weigher.applyAsLong(schema);
+        entry.counted = true;
+        totalWeight += entry.weight;
+        usage.put(entry.key, entry);
+        evict();
+    }
+
+    void uncount(Entry entry) {
+        if (entry != null && entry.counted) {
+            entry.counted = false;
+            totalWeight -= entry.weight;
+            usage.remove(entry.key, entry);
+        }
+    }
+
+    /**
+     * Remove the least recently used schemas until the total weight no longer
+     * exceeds the maximum. Schemas still being loaded are not candidates for
+     * eviction.
+     */
+    void evict() {
+        Iterator<Entry> eldest = usage.values().iterator();
+
+        while (totalWeight > maximumWeight && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            eldest.remove();
+            entry.counted = false;
+            totalWeight -= entry.weight;
+
+            final K evictedKey = entry.key;
+            LOGGER.fine(() -> "Evicting schema for key: " + evictedKey);
+            entries.remove(evictedKey, entry);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.schema;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The version-specific properties of a schema type, with the property
+ * applicable to each version string retained once it has been resolved. The
+ * applicable property is found once per distinct version rather than
+ * comparing the version with the range of each property for every lookup.
+ * Version strings are taken from the input, so only a limited number of them
+ * are retained; others are resolved for each lookup.
+ *
+ * @param <V>
+ *            type of the versioned property
+ */
+final class VersionIndex<V extends VersionedProperty> {
+
+    static final int MAXIMUM_RESOLVED = 32;
+
+    private final List<V> versions;
+    private final Map<String, Optional<V>> applicable;
+
+    VersionIndex(List<V> versions) {
+        this.versions = Collections.unmodifiableList(new ArrayList<>(versions));
+        this.applicable = versions.isEmpty() ? Collections.emptyMap() : new ConcurrentHashMap<>(4);
+    }
+
+    List<V> getVersions() {
+        return versions;
+    }
+
+    boolean isEmpty() {
+        return versions.isEmpty();
+    }
+
+    /**
+     * Get the first property that applies to the version.
+     *
+     * @param version
+     *            the version string
+     * @return the applicable property, or null when none of the properties
+     *         apply and the default (un-versioned) values should be used
+     */
+    V get(String version) {
+        if (versions.isEmpty()) {
+            return null;
+        }
+
+        Optional<V> result = applicable.get(version);
+
+        if (result == null) {
+            result = Optional.empty();
+
+            for (V ver : versions) {
+                if (ver.appliesTo(version)) {
+                    result = Optional.of(ver);
+                    break;
+                }
+            }
+
+            if (applicable.size() < MAXIMUM_RESOLVED) {
+                applicable.putIfAbsent(version, result);
+            }
+        }
+
+        return result.orElse(null);
+    }
+
+    int getResolvedCount() {
+        return applicable.size();
+    }
+}
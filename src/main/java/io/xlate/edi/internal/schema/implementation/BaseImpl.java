@@ -10,6 +10,7 @@ public abstract class BaseImpl<T extends EDIType> implements EDITypeImplementati
 
     protected String typeId;
     protected T standard;
+    protected EDIReference standardReference;
     protected int minOccurs = -1;
     protected int maxOccurs = -1;
     protected String title;
@@ -89,8 +90,19 @@ public abstract class BaseImpl<T extends EDIType> implements EDITypeImplementati
         return standard;
     }
 
+    /**
+     * Get the reference to the standard type from which this implementation
+     * was derived, including any version-specific occurrence limits.
+     *
+     * @return the standard reference, or null if not yet set
+     */
+    public EDIReference getStandardReference() {
+        return standardReference;
+    }
+
     @SuppressWarnings("unchecked")
     public void setStandardReference(EDIReference reference) {
+        this.standardReference = reference;
         this.standard = (T) reference.getReferencedType();
 
         if (this.typeId == null) {
@@ -8,8 +8,10 @@ public class TransactionImpl extends LoopImpl {
 
     public TransactionImpl(String id,
             String typeId,
-            List<EDITypeImplementation> sequence) {
-        super(0, 0, id, typeId, null, sequence, null, null);
+            List<EDITypeImplementation> sequence,
+            String title,
+            String description) {
+        super(0, 0, id, typeId, null, sequence, title, description);
     }
 
     @Override
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * InputStream that reads a series of byte ranges of a file, in the order
+ * given. The channel is read using positional reads, its position is not
+ * modified.
+ */
+class ChannelRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+    /*
+     * Start (inclusive) and end (exclusive) offsets of each range.
+     */
+    private final long[] ranges;
+    private int range = 0;
+    private long position;
+
+    ChannelRangeInputStream(FileChannel channel, long[] ranges) {
+        this.channel = channel;
+        this.ranges = ranges;
+        this.position = ranges.length > 0 ? ranges[0] : 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!nextRange()) {
+            return -1;
+        }
+
+        final long remaining = ranges[range + 1] - position;
+        final int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+
+        if (count < 0) {
+            // File is shorter than the range
+            range = ranges.length;
+            return -1;
+        }
+
+        position += count;
+        return count;
+    }
+
+    /**
+     * Ensure that the current range has bytes remaining, moving to the next
+     * non-empty range when the current range has been consumed.
+     *
+     * @return true if bytes are available, false when all ranges have been
+     *         read
+     */
+    boolean nextRange() {
+        while (range < ranges.length && position >= ranges[range + 1]) {
+            range += 2;
+
+            if (range < ranges.length) {
+                position = ranges[range];
+            }
+        }
+
+        return range < ranges.length;
+    }
+}
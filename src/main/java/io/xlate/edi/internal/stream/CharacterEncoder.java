@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Encodes characters to an OutputStream, in place of an
+ * {@link java.io.OutputStreamWriter}. The writer's encoder synchronizes on a
+ * lock for each character written, which is unnecessary for a stream writer
+ * used by a single thread and may pin the carrier of a virtual thread while
+ * the underlying stream blocks. Unmappable and malformed characters are
+ * replaced, as by OutputStreamWriter.
+ */
+final class CharacterEncoder {
+
+    private static final int BUFFER_SIZE = 1024;
+
+    private final OutputStream stream;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer bytes;
+
+    CharacterEncoder(OutputStream stream, Charset charset) {
+        this.stream = stream;
+        this.encoder = charset.newEncoder()
+                              .onMalformedInput(CodingErrorAction.REPLACE)
+                              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate((int) Math.ceil(BUFFER_SIZE * encoder.maxBytesPerChar()));
+    }
+
+    void write(int output) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode();
+        }
+
+        chars.put((char) output);
+    }
+
+    /**
+     * Encode and write all buffered characters to the stream, other than the
+     * high surrogate of an incomplete pair. The stream itself is not flushed.
+     */
+    void flush() throws IOException {
+        encode();
+    }
+
+    void encode() throws IOException {
+        chars.flip();
+        CoderResult result;
+
+        do {
+            result = encoder.encode(chars, bytes, false);
+
+            if (result.isError()) {
+                // Not reachable, errors are replaced by the encoder
+                result.throwException();
+            }
+
+            stream.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        } while (result.isOverflow());
+
+        // Retain any incomplete surrogate pair
+        chars.compact();
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * InputStream that reads a file through a series of read-only memory-mapped
+ * windows. Only a single window is referenced at a time, allowing files larger
+ * than the address space available to a single mapping to be read without
+ * retaining the file's contents on the heap.
+ */
+class MappedFileInputStream extends InputStream {
+
+    static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long windowSize;
+    private final boolean closeChannel;
+
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    MappedFileInputStream(FileChannel channel, long windowSize, boolean closeChannel) throws IOException {
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.closeChannel = closeChannel;
+        // Mapping begins at the channel's current position
+        this.windowStart = channel.position();
+    }
+
+    MappedFileInputStream(FileChannel channel, boolean closeChannel) throws IOException {
+        this(channel, DEFAULT_WINDOW_SIZE, closeChannel);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextWindow()) {
+            return -1;
+        }
+
+        return window.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (!nextWindow()) {
+            return -1;
+        }
+
+        final int count = Math.min(len, window.remaining());
+        window.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+
+        while (skipped < n && nextWindow()) {
+            int count = (int) Math.min(n - skipped, window.remaining());
+            window.position(window.position() + count);
+            skipped += count;
+        }
+
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return window != null ? window.remaining() : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+
+        if (closeChannel) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Ensure that the current window has bytes remaining, mapping the next
+     * region of the file when the current window has been consumed.
+     *
+     * @return true if bytes are available, false when the end of the file has
+     *         been reached
+     * @throws IOException
+     *             when the file can not be mapped
+     */
+    boolean nextWindow() throws IOException {
+        if (window != null) {
+            if (window.hasRemaining()) {
+                return true;
+            }
+            windowStart += window.capacity();
+        }
+
+        final long size = channel.size();
+
+        if (windowStart >= size) {
+            window = null;
+            return false;
+        }
+
+        window = channel.map(MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+        return window.hasRemaining();
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import io.xlate.edi.internal.stream.validation.ValidatorPool;
+import io.xlate.edi.schema.Schema;
+import io.xlate.edi.stream.EDIAsyncStreamReader;
+import io.xlate.edi.stream.EDIInputErrorReporter;
+import io.xlate.edi.stream.EDIStreamEvent;
+
+public class StaEDIAsyncStreamReader extends StaEDIStreamReader implements EDIAsyncStreamReader {
+
+    public StaEDIAsyncStreamReader(
+            Charset charset,
+            Schema schema,
+            Map<String, Object> properties,
+            EDIInputErrorReporter reporter) {
+        this(charset, schema, properties, reporter, null);
+    }
+
+    StaEDIAsyncStreamReader(
+            Charset charset,
+            Schema schema,
+            Map<String, Object> properties,
+            EDIInputErrorReporter reporter,
+            ValidatorPool validatorPool) {
+        super(null, false, charset, schema, properties, reporter, validatorPool);
+    }
+
+    @Override
+    public void feedInput(ByteBuffer input) {
+        ensureOpen();
+        lexer.feedInput(input);
+    }
+
+    @Override
+    public void endOfInput() {
+        ensureOpen();
+        lexer.endOfInput();
+    }
+
+    @Override
+    public boolean needMoreInput() {
+        return getEventType() == EDIStreamEvent.INCOMPLETE;
+    }
+
+    @Override
+    public void reset() {
+        ensureOpen();
+        resetState(null);
+    }
+
+    /**
+     * Input to this reader is fed rather than read from a stream.
+     *
+     * @throws UnsupportedOperationException
+     *             always, use {@link #reset()}
+     */
+    @Override
+    public void reset(InputStream stream) {
+        throw new UnsupportedOperationException("Asynchronous reader must be reset using reset()");
+    }
+}
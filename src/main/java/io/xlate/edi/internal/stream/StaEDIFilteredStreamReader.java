@@ -18,6 +18,7 @@ package io.xlate.edi.internal.stream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Map;
+import java.util.Set;
 
 import io.xlate.edi.schema.EDIReference;
 import io.xlate.edi.schema.Schema;
@@ -27,6 +28,7 @@ import io.xlate.edi.stream.EDIStreamFilter;
 import io.xlate.edi.stream.EDIStreamReader;
 import io.xlate.edi.stream.EDIStreamValidationError;
 import io.xlate.edi.stream.Location;
+import io.xlate.edi.stream.SegmentView;
 
 class StaEDIFilteredStreamReader implements EDIStreamReader {
 
@@ -82,6 +84,44 @@ class StaEDIFilteredStreamReader implements EDIStreamReader {
         return event;
     }
 
+    /**
+     * Read the next segment from the delegate. Only the segment tags declared
+     * by the filter (if any) limit the segments read, the filter is not
+     * otherwise consulted since the segments' events are not generated.
+     */
+    @Override
+    public EDIStreamEvent nextSegment() throws EDIStreamException {
+        final Set<String> segmentTags = filter.getSegmentTags();
+        EDIStreamEvent event;
+
+        peekEvent = null;
+
+        do {
+            event = delegate.nextSegment();
+        } while (segmentTags != null
+                && event == EDIStreamEvent.END_SEGMENT
+                && !segmentTags.contains(delegate.getSegment().getTag()));
+
+        return event;
+    }
+
+    @Override
+    public SegmentView getSegment() {
+        return delegate.getSegment();
+    }
+
+    @Override
+    public EDIStreamEvent skipTransaction() throws EDIStreamException {
+        peekEvent = null;
+        return delegate.skipTransaction();
+    }
+
+    @Override
+    public EDIStreamEvent skipGroup() throws EDIStreamException {
+        peekEvent = null;
+        return delegate.skipGroup();
+    }
+
     @Override
     public boolean hasNext() throws EDIStreamException {
         while (delegate.hasNext()) {
@@ -101,6 +141,11 @@ class StaEDIFilteredStreamReader implements EDIStreamReader {
         delegate.close();
     }
 
+    @Override
+    public void reset(InputStream stream) throws IOException {
+        delegate.reset(stream);
+    }
+
     @Override
     public EDIStreamEvent getEventType() {
         return delegate.getEventType();
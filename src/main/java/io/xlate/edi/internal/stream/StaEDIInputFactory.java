@@ -15,29 +15,67 @@
  ******************************************************************************/
 package io.xlate.edi.internal.stream;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 
+import io.xlate.edi.internal.stream.validation.ValidatorPool;
 import io.xlate.edi.schema.Schema;
+import io.xlate.edi.stream.EDIAsyncStreamReader;
 import io.xlate.edi.stream.EDIInputErrorReporter;
 import io.xlate.edi.stream.EDIInputFactory;
 import io.xlate.edi.stream.EDIStreamException;
 import io.xlate.edi.stream.EDIStreamFilter;
+import io.xlate.edi.stream.EDIStreamIndex;
 import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.EDITransactionHandler;
 
 public class StaEDIInputFactory extends EDIInputFactory {
 
     private EDIInputErrorReporter reporter;
+    private final ValidatorPool validatorPool = new ValidatorPool();
 
     public StaEDIInputFactory() {
         supportedProperties.add(EDI_VALIDATE_CONTROL_STRUCTURE);
         supportedProperties.add(EDI_VALIDATE_CONTROL_CODE_VALUES);
         supportedProperties.add(XML_DECLARE_TRANSACTION_XMLNS);
+        supportedProperties.add(EDI_TRANSACTION_SCHEMA_RESOLVER);
+        supportedProperties.add(EDI_REUSE_VALIDATORS);
+        supportedProperties.add(EDI_VALIDATION_LEVEL);
+        supportedProperties.add(EDI_PIPELINED_PARSING);
+        supportedProperties.add(EDI_PIPELINED_PARSING_EXECUTOR);
+    }
+
+    /**
+     * Sets the property, converting a name given for
+     * {@link #EDI_VALIDATION_LEVEL} to its ValidationLevel so that an invalid
+     * value is rejected here rather than by each reader created.
+     */
+    @Override
+    public void setProperty(String name, Object value) {
+        if (EDI_VALIDATION_LEVEL.equals(name) && value != null) {
+            value = StaEDIStreamReader.toValidationLevel(value);
+        }
+
+        super.setProperty(name, value);
     }
 
     @Override
@@ -52,7 +90,7 @@ public class StaEDIInputFactory extends EDIInputFactory {
 
     @Override
     public EDIStreamReader createEDIStreamReader(InputStream stream, Schema schema) {
-        return new StaEDIStreamReader(stream, StandardCharsets.UTF_8, schema, properties, getErrorReporter());
+        return new StaEDIStreamReader(stream, false, StandardCharsets.UTF_8, schema, properties, getErrorReporter(), getValidatorPool());
     }
 
     @SuppressWarnings("resource")
@@ -61,14 +99,159 @@ public class StaEDIInputFactory extends EDIInputFactory {
         Objects.requireNonNull(stream);
 
         if (Charset.isSupported(encoding)) {
-            return new StaEDIStreamReader(stream, Charset.forName(encoding), schema, properties, getErrorReporter());
+            return new StaEDIStreamReader(stream, false, Charset.forName(encoding), schema, properties, getErrorReporter(), getValidatorPool());
+        }
+
+        throw new EDIStreamException("Unsupported encoding: " + encoding);
+    }
+
+    @Override
+    public EDIStreamReader createEDIStreamReader(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            InputStream stream = new MappedFileInputStream(channel, true);
+            return new StaEDIStreamReader(stream, true, StandardCharsets.UTF_8, null, properties, getErrorReporter(), getValidatorPool());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public EDIStreamReader createEDIStreamReader(FileChannel channel) throws IOException {
+        InputStream stream = new MappedFileInputStream(channel, false);
+        return createEDIStreamReader(stream, (Schema) null);
+    }
+
+    @Override
+    public EDIStreamReader createEDIStreamReader(FileChannel channel, String encoding, Schema schema) throws IOException, EDIStreamException {
+        Objects.requireNonNull(channel);
+
+        if (Charset.isSupported(encoding)) {
+            InputStream stream = new MappedFileInputStream(channel, false);
+            return new StaEDIStreamReader(stream, false, Charset.forName(encoding), schema, properties, getErrorReporter(), getValidatorPool());
+        }
+
+        throw new EDIStreamException("Unsupported encoding: " + encoding);
+    }
+
+    @Override
+    public EDIAsyncStreamReader createEDIAsyncStreamReader() {
+        return new StaEDIAsyncStreamReader(StandardCharsets.UTF_8, null, properties, getErrorReporter(), getValidatorPool());
+    }
+
+    @Override
+    public EDIAsyncStreamReader createEDIAsyncStreamReader(String encoding, Schema schema) throws EDIStreamException {
+        if (Charset.isSupported(encoding)) {
+            return new StaEDIAsyncStreamReader(Charset.forName(encoding), schema, properties, getErrorReporter(), getValidatorPool());
         }
 
         throw new EDIStreamException("Unsupported encoding: " + encoding);
     }
 
+    @Override
+    public EDIStreamIndex createEDIStreamIndex(InputStream stream) throws EDIStreamException {
+        Objects.requireNonNull(stream);
+        return new StaEDIStreamIndexer(stream, StandardCharsets.UTF_8).index();
+    }
+
+    @Override
+    public EDIStreamIndex readEDIStreamIndex(InputStream stream) throws IOException {
+        Objects.requireNonNull(stream);
+        return StaEDIStreamIndex.read(stream);
+    }
+
+    @Override
+    public EDIStreamReader createEDIStreamReader(FileChannel channel, EDIStreamIndex.Entry entry) throws IOException {
+        Objects.requireNonNull(channel);
+        Objects.requireNonNull(entry);
+
+        Deque<EDIStreamIndex.Entry> enclosing = new ArrayDeque<>(2);
+
+        for (EDIStreamIndex.Entry parent = entry.getParent(); parent != null; parent = parent.getParent()) {
+            enclosing.push(parent);
+        }
+
+        // Headers of the enclosing entries, the entry, then the trailers of the enclosing entries
+        long[] ranges = new long[(enclosing.size() * 2 + 1) * 2];
+        int i = 0;
+
+        for (Iterator<EDIStreamIndex.Entry> iter = enclosing.iterator(); iter.hasNext();) {
+            EDIStreamIndex.Entry parent = iter.next();
+            ranges[i++] = parent.getStartOffset();
+            ranges[i++] = parent.getHeaderEndOffset();
+        }
+
+        ranges[i++] = entry.getStartOffset();
+        ranges[i++] = entry.getEndOffset();
+
+        for (Iterator<EDIStreamIndex.Entry> iter = enclosing.descendingIterator(); iter.hasNext();) {
+            EDIStreamIndex.Entry parent = iter.next();
+            ranges[i++] = parent.getTrailerStartOffset();
+            ranges[i++] = parent.getEndOffset();
+        }
+
+        return createEDIStreamReader(new ChannelRangeInputStream(channel, ranges), (Schema) null);
+    }
+
+    @SuppressWarnings("resource")
+    @Override
+    public Stream<EDIStreamReader> createTransactionStream(Path path) throws IOException, EDIStreamException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            EDIStreamIndex index = createEDIStreamIndex(new MappedFileInputStream(channel, false));
+            StaEDITransactionSpliterator spliterator = new StaEDITransactionSpliterator(this, channel, index.getTransactions());
+
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | EDIStreamException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> void processTransactions(Path path,
+                                        EDITransactionHandler<? extends T> handler,
+                                        Consumer<? super T> consumer,
+                                        boolean ordered,
+                                        ForkJoinPool pool)
+            throws IOException, EDIStreamException {
+
+        Objects.requireNonNull(handler);
+        Objects.requireNonNull(consumer);
+        Objects.requireNonNull(pool);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            EDIStreamIndex index = createEDIStreamIndex(new MappedFileInputStream(channel, false));
+            new StaEDITransactionProcessor<T>(this, channel, index.getTransactions(), handler, consumer, ordered).process(pool);
+        }
+    }
+
+    /**
+     * Get the pool of validators shared by the readers of this factory, only
+     * when enabled by the {@link #EDI_REUSE_VALIDATORS} property.
+     */
+    ValidatorPool getValidatorPool() {
+        Object reuse = properties.get(EDI_REUSE_VALIDATORS);
+        return reuse != null && Boolean.parseBoolean(reuse.toString()) ? validatorPool : null;
+    }
+
     @Override
     public EDIStreamReader createFilteredReader(EDIStreamReader reader, EDIStreamFilter filter) {
+        Set<String> segmentTags = filter.getSegmentTags();
+
+        if (segmentTags != null && reader instanceof StaEDIStreamReader) {
+            ((StaEDIStreamReader) reader).setSegmentFilter(new HashSet<>(segmentTags));
+        }
+
         return new StaEDIFilteredStreamReader(reader, filter);
     }
 
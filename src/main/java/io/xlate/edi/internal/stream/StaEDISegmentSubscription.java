@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import io.xlate.edi.stream.EDIAsyncStreamReader;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.SegmentView;
+
+/**
+ * Delivers the segments read by an {@link EDIStreamReader} to a subscriber
+ * as they are requested. Segments are read by a task submitted to an
+ * executor only while the subscriber's demand is outstanding, so no thread is
+ * held while the subscriber is not requesting segments. All signals to the
+ * subscriber are made serially by that task, which is not submitted until the
+ * subscription has been {@link #start() started}. Each run of the task delivers at
+ * most {@link #BATCH_SIZE} segments, after which the task is submitted again
+ * if demand remains, so that a thread of the executor is not held for the
+ * entire input when the subscriber's demand is unbounded.
+ *
+ * This class does not depend on <code>java.util.concurrent.Flow</code> so
+ * that it may be used by a <code>Flow.Publisher</code> on Java 9 or later,
+ * while the remainder of the library supports Java 8.
+ */
+public class StaEDISegmentSubscription implements Runnable {
+
+    static final int BATCH_SIZE = 64;
+
+    private final EDIStreamReader reader;
+    private final Executor executor;
+    private final Consumer<? super SegmentView> onNext;
+    private final Consumer<? super Throwable> onError;
+    private final Runnable onComplete;
+
+    private final AtomicLong demand = new AtomicLong();
+    /*
+     * Count of the signals (requests and cancellation) not yet handled by the
+     * delivering task, which is submitted when the count becomes non-zero. The
+     * count starts at one, holding back the task until the subscription is
+     * started.
+     */
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private volatile boolean cancelled = false;
+    private volatile Throwable invalidRequest;
+    private boolean terminated = false;
+
+    public StaEDISegmentSubscription(EDIStreamReader reader,
+            Executor executor,
+            Consumer<? super SegmentView> onNext,
+            Consumer<? super Throwable> onError,
+            Runnable onComplete) {
+        this.reader = requireBlockingReader(reader);
+        this.executor = executor;
+        this.onNext = onNext;
+        this.onError = onError;
+        this.onComplete = onComplete;
+    }
+
+    /**
+     * Verify that the reader is not an {@link EDIAsyncStreamReader}. Such a
+     * reader would need its input to be fed by the application while segments
+     * are read by the subscription's task, but a reader may not be used by
+     * multiple threads concurrently.
+     *
+     * @param reader
+     *            the reader of the segments to be delivered
+     * @return the reader
+     * @throws IllegalArgumentException
+     *             if the reader is an {@link EDIAsyncStreamReader}
+     */
+    public static EDIStreamReader requireBlockingReader(EDIStreamReader reader) {
+        if (reader instanceof EDIAsyncStreamReader) {
+            throw new IllegalArgumentException("Asynchronous readers are not supported");
+        }
+
+        return reader;
+    }
+
+    /**
+     * Start delivering segments, once the subscriber has been given this
+     * subscription. Requests made before (e.g. by the subscriber while it is
+     * being given the subscription) are recorded, but no segment is delivered
+     * before this method is called so that the subscriber's signals are made
+     * serially.
+     */
+    public void start() {
+        if (pending.decrementAndGet() != 0) {
+            execute();
+        }
+    }
+
+    /**
+     * Add to the number of segments requested by the subscriber. A request
+     * for zero or fewer segments results in the subscriber being signaled with
+     * an {@link IllegalArgumentException}.
+     *
+     * @param n
+     *            the number of additional segments requested
+     */
+    public void request(long n) {
+        if (n <= 0) {
+            invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+        } else {
+            // Demand is capped at Long.MAX_VALUE, i.e. unbounded
+            demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+        }
+
+        schedule();
+    }
+
+    /**
+     * Stop delivering segments to the subscriber. The reader is closed by the
+     * delivering task, once any segment in progress has been delivered.
+     */
+    public void cancel() {
+        cancelled = true;
+        schedule();
+    }
+
+    void schedule() {
+        if (pending.getAndIncrement() == 0) {
+            execute();
+        }
+    }
+
+    void execute() {
+        try {
+            executor.execute(this);
+        } catch (RuntimeException e) {
+            // The subscriber is not otherwise signaled when the executor rejects the task
+            pending.set(0);
+            cancelled = true;
+            onError.accept(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        int missed = pending.get();
+
+        do {
+            deliver();
+            missed = pending.addAndGet(-missed);
+        } while (missed != 0);
+
+        if (!terminated && demand.get() > 0) {
+            // The batch ended with demand remaining, continue in a new task
+            schedule();
+        }
+    }
+
+    void deliver() {
+        if (terminated) {
+            return;
+        }
+
+        try {
+            for (int count = 0; count < BATCH_SIZE && !cancelled && invalidRequest == null && demand.get() > 0; count++) {
+                if (reader.nextSegment() != EDIStreamEvent.END_SEGMENT) {
+                    terminate(null);
+                    onComplete.run();
+                    return;
+                }
+
+                demand.decrementAndGet();
+                onNext.accept(StaEDISegmentView.copyOf(reader.getSegment()));
+            }
+
+            if (invalidRequest != null) {
+                terminate(null);
+                onError.accept(invalidRequest);
+            } else if (cancelled) {
+                terminate(null);
+            }
+        } catch (Exception e) {
+            terminate(e);
+            onError.accept(e);
+        }
+    }
+
+    void terminate(Exception cause) {
+        terminated = true;
+
+        try {
+            reader.close();
+        } catch (IOException e) {
+            if (cause != null) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.util.Arrays;
+
+import io.xlate.edi.schema.EDIReference;
+import io.xlate.edi.stream.Location;
+import io.xlate.edi.stream.SegmentView;
+
+/**
+ * Reusable {@link SegmentView} assembled by the event handler from the
+ * lexer's notifications for a single segment. The element data of the segment
+ * is copied once from the lexer's buffer into one character array, and the
+ * positions of each value are held in parallel arrays, all of which are
+ * retained and reused for subsequent segments.
+ */
+public final class StaEDISegmentView implements SegmentView {
+
+    private static final int INITIAL_VALUE_CAPACITY = 32;
+
+    private String tag;
+    private final StaEDIStreamLocation location = new StaEDIStreamLocation();
+    private EDIReference typeReference;
+    private boolean complete;
+
+    private char[] text = new char[256];
+    private int textLength;
+
+    private int count;
+    private int[] elements;
+    private int[] repetitions;
+    private int[] components;
+    private int[] starts;
+    private CharArraySequence[] values;
+
+    StaEDISegmentView() {
+        this(INITIAL_VALUE_CAPACITY);
+    }
+
+    private StaEDISegmentView(int capacity) {
+        // The capacity doubles as values are added, it must not be zero
+        final int size = Math.max(capacity, 1);
+        elements = new int[size];
+        repetitions = new int[size];
+        components = new int[size];
+        starts = new int[size];
+        values = newValues(size, 0);
+    }
+
+    static CharArraySequence[] newValues(int capacity, int from) {
+        CharArraySequence[] array = new CharArraySequence[capacity];
+
+        for (int i = from; i < capacity; i++) {
+            array[i] = new CharArraySequence();
+        }
+
+        return array;
+    }
+
+    /**
+     * Start assembling a new segment, discarding any previous content.
+     */
+    public void begin(String tag, Location location, EDIReference typeReference) {
+        this.tag = tag;
+        this.location.set(location);
+        this.typeReference = typeReference;
+        this.complete = false;
+        this.textLength = 0;
+        this.count = 0;
+    }
+
+    /**
+     * Add the data of an element or component at the given location to the
+     * segment. Binary data is not retained, it is added with null text.
+     */
+    public void add(char[] data, int start, int length, Location position) {
+        final int offset = reserve(position.getElementPosition(),
+                                   Math.max(position.getElementOccurrence(), 1),
+                                   Math.max(position.getComponentPosition(), 1),
+                                   length);
+
+        if (data != null && length > 0) {
+            System.arraycopy(data, start, text, offset, length);
+        }
+    }
+
+    void add(CharSequence data, int element, int repetition, int component) {
+        final int length = data.length();
+        final int offset = reserve(element, repetition, component, length);
+
+        for (int i = 0; i < length; i++) {
+            text[offset + i] = data.charAt(i);
+        }
+    }
+
+    /**
+     * Add a value at the given position with space for its data in the text
+     * array.
+     *
+     * @return the offset of the value's data in the text array
+     */
+    private int reserve(int element, int repetition, int component, int length) {
+        final int index = count;
+
+        if (index == elements.length) {
+            grow();
+        }
+
+        if (textLength + length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+        }
+
+        elements[index] = element;
+        repetitions[index] = repetition;
+        components[index] = component;
+        starts[index] = textLength;
+        values[index].set(null, 0, length);
+        textLength += length;
+        count++;
+
+        return starts[index];
+    }
+
+    /**
+     * Complete the segment. The values refer to the text array only once all
+     * values are present since the array may be replaced while data is added.
+     */
+    public void end() {
+        for (int i = 0; i < count; i++) {
+            values[i].set(text, starts[i], values[i].length());
+        }
+
+        complete = true;
+    }
+
+    /**
+     * Create an independent copy of a segment, using only the methods of the
+     * {@link SegmentView} interface unless the segment is a
+     * {@link StaEDISegmentView}.
+     *
+     * @param segment
+     *            the segment to copy
+     * @return a copy of the segment
+     */
+    static StaEDISegmentView copyOf(SegmentView segment) {
+        if (segment instanceof StaEDISegmentView) {
+            return ((StaEDISegmentView) segment).copy();
+        }
+
+        StaEDISegmentView copy = new StaEDISegmentView();
+        copy.begin(segment.getTag(), segment.getLocation(), segment.getSchemaTypeReference());
+
+        for (int e = 1, m = segment.getElementCount(); e <= m; e++) {
+            for (int r = 1, rm = segment.getRepetitionCount(e); r <= rm; r++) {
+                for (int c = 1, cm = segment.getComponentCount(e, r); c <= cm; c++) {
+                    CharSequence data = segment.getComponent(e, r, c);
+
+                    if (data != null) {
+                        copy.add(data, e, r, c);
+                    }
+                }
+            }
+        }
+
+        copy.end();
+        return copy;
+    }
+
+    /**
+     * Create an independent copy of this (complete) segment, sized to its
+     * content, that is unaffected by the reuse of this view.
+     *
+     * @return a copy of the segment
+     */
+    StaEDISegmentView copy() {
+        StaEDISegmentView copy = new StaEDISegmentView(count);
+        copy.tag = tag;
+        copy.location.set(location);
+        copy.typeReference = typeReference;
+        copy.complete = complete;
+        copy.text = Arrays.copyOf(text, textLength);
+        copy.textLength = textLength;
+        copy.count = count;
+        System.arraycopy(elements, 0, copy.elements, 0, count);
+        System.arraycopy(repetitions, 0, copy.repetitions, 0, count);
+        System.arraycopy(components, 0, copy.components, 0, count);
+        System.arraycopy(starts, 0, copy.starts, 0, count);
+
+        for (int i = 0; i < count; i++) {
+            copy.values[i].set(copy.text, starts[i], values[i].length());
+        }
+
+        return copy;
+    }
+
+    public void clear() {
+        this.tag = null;
+        this.complete = false;
+        this.textLength = 0;
+        this.count = 0;
+    }
+
+    public boolean isInProgress() {
+        return tag != null && !complete;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    private void grow() {
+        final int capacity = elements.length;
+        final int expanded = capacity * 2;
+        elements = Arrays.copyOf(elements, expanded);
+        repetitions = Arrays.copyOf(repetitions, expanded);
+        components = Arrays.copyOf(components, expanded);
+        starts = Arrays.copyOf(starts, expanded);
+
+        CharArraySequence[] newValues = newValues(expanded, capacity);
+        System.arraycopy(values, 0, newValues, 0, capacity);
+        values = newValues;
+    }
+
+    @Override
+    public String getTag() {
+        return tag;
+    }
+
+    @Override
+    public Location getLocation() {
+        return location;
+    }
+
+    @Override
+    public EDIReference getSchemaTypeReference() {
+        return typeReference;
+    }
+
+    @Override
+    public int getElementCount() {
+        return count > 0 ? elements[count - 1] : 0;
+    }
+
+    @Override
+    public int getRepetitionCount(int element) {
+        int result = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (elements[i] == element) {
+                result = repetitions[i];
+            } else if (elements[i] > element) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public int getComponentCount(int element, int repetition) {
+        int result = 0;
+
+        for (int i = 0; i < count; i++) {
+            if (elements[i] == element && repetitions[i] == repetition) {
+                result = components[i];
+            } else if (elements[i] > element) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public CharSequence getElement(int element) {
+        return getComponent(element, 1, 1);
+    }
+
+    @Override
+    public CharSequence getElement(int element, int repetition) {
+        return getComponent(element, repetition, 1);
+    }
+
+    @Override
+    public CharSequence getComponent(int element, int repetition, int component) {
+        for (int i = 0; i < count; i++) {
+            if (elements[i] == element && repetitions[i] == repetition && components[i] == component) {
+                return values[i];
+            } else if (elements[i] > element) {
+                break;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamIndex;
+
+class StaEDIStreamIndex implements EDIStreamIndex {
+
+    /*
+     * Identifies a persisted index, "EDIX" followed by the format version.
+     */
+    static final int MAGIC = 0x45444958;
+    static final int VERSION = 1;
+
+    private static final EDIStreamEvent[] TYPES = { EDIStreamEvent.START_INTERCHANGE,
+                                                    EDIStreamEvent.START_GROUP,
+                                                    EDIStreamEvent.START_TRANSACTION };
+
+    static class IndexEntry implements EDIStreamIndex.Entry {
+        final EDIStreamEvent type;
+        final IndexEntry parent;
+        final String segmentTag;
+        String controlNumber;
+        int segmentPosition;
+        long characterOffset;
+        long startOffset;
+        long headerEndOffset = -1;
+        long trailerStartOffset = -1;
+        long endOffset = -1;
+
+        IndexEntry(EDIStreamEvent type, IndexEntry parent, String segmentTag) {
+            this.type = type;
+            this.parent = parent;
+            this.segmentTag = segmentTag;
+        }
+
+        @Override
+        public EDIStreamEvent getType() {
+            return type;
+        }
+
+        @Override
+        public IndexEntry getParent() {
+            return parent;
+        }
+
+        @Override
+        public String getSegmentTag() {
+            return segmentTag;
+        }
+
+        @Override
+        public String getControlNumber() {
+            return controlNumber;
+        }
+
+        @Override
+        public int getSegmentPosition() {
+            return segmentPosition;
+        }
+
+        @Override
+        public long getCharacterOffset() {
+            return characterOffset;
+        }
+
+        @Override
+        public long getStartOffset() {
+            return startOffset;
+        }
+
+        @Override
+        public long getHeaderEndOffset() {
+            return headerEndOffset;
+        }
+
+        @Override
+        public long getTrailerStartOffset() {
+            return trailerStartOffset;
+        }
+
+        @Override
+        public long getEndOffset() {
+            return endOffset;
+        }
+
+        @Override
+        public String toString() {
+            return type + " " + segmentTag + " " + controlNumber + " [" + startOffset + ", " + endOffset + ")";
+        }
+    }
+
+    private final String standard;
+    private final List<Entry> entries;
+
+    StaEDIStreamIndex(String standard, List<IndexEntry> entries) {
+        this.standard = standard;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    @Override
+    public String getStandard() {
+        return standard;
+    }
+
+    @Override
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public List<Entry> getTransactions() {
+        return entries.stream()
+                      .filter(e -> e.getType() == EDIStreamEvent.START_TRANSACTION)
+                      .collect(Collectors.toList());
+    }
+
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeUTF(standard != null ? standard : "");
+        output.writeInt(entries.size());
+
+        Map<Entry, Integer> positions = new IdentityHashMap<>(entries.size());
+
+        for (Entry entry : entries) {
+            positions.put(entry, positions.size());
+            output.writeByte(typeIndex(entry.getType()));
+            output.writeInt(entry.getParent() != null ? positions.get(entry.getParent()) : -1);
+            output.writeUTF(entry.getSegmentTag());
+            output.writeBoolean(entry.getControlNumber() != null);
+
+            if (entry.getControlNumber() != null) {
+                output.writeUTF(entry.getControlNumber());
+            }
+
+            output.writeInt(entry.getSegmentPosition());
+            output.writeLong(entry.getCharacterOffset());
+            output.writeLong(entry.getStartOffset());
+            output.writeLong(entry.getHeaderEndOffset());
+            output.writeLong(entry.getTrailerStartOffset());
+            output.writeLong(entry.getEndOffset());
+        }
+
+        output.flush();
+    }
+
+    static StaEDIStreamIndex read(InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Input is not an EDI stream index");
+        }
+
+        int version = input.readInt();
+
+        if (version != VERSION) {
+            throw new IOException("Unsupported EDI stream index version: " + version);
+        }
+
+        String standard = input.readUTF();
+
+        if (standard.isEmpty()) {
+            standard = null;
+        }
+
+        int count = input.readInt();
+        List<IndexEntry> entries = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+
+        for (int i = 0; i < count; i++) {
+            int type = input.readByte();
+            int parent = input.readInt();
+
+            if (type < 0 || type >= TYPES.length || parent >= i) {
+                throw new IOException("Invalid EDI stream index entry: " + i);
+            }
+
+            IndexEntry entry = new IndexEntry(TYPES[type], parent > -1 ? entries.get(parent) : null, input.readUTF());
+
+            if (input.readBoolean()) {
+                entry.controlNumber = input.readUTF();
+            }
+
+            entry.segmentPosition = input.readInt();
+            entry.characterOffset = input.readLong();
+            entry.startOffset = input.readLong();
+            entry.headerEndOffset = input.readLong();
+            entry.trailerStartOffset = input.readLong();
+            entry.endOffset = input.readLong();
+            entries.add(entry);
+        }
+
+        return new StaEDIStreamIndex(standard, entries);
+    }
+
+    static int typeIndex(EDIStreamEvent type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == type) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported index entry type: " + type);
+    }
+}
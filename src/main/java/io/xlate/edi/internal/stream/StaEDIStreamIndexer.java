@@ -0,0 +1,268 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.xlate.edi.internal.stream.StaEDIStreamIndex.IndexEntry;
+import io.xlate.edi.internal.stream.tokenization.Dialect;
+import io.xlate.edi.internal.stream.tokenization.EventHandler;
+import io.xlate.edi.internal.stream.tokenization.Lexer;
+import io.xlate.edi.schema.EDIReference;
+import io.xlate.edi.stream.EDIStreamConstants.Standards;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamValidationError;
+
+/**
+ * Builds an {@link StaEDIStreamIndex} by tokenizing the input with a
+ * {@link Lexer}, without validation, and recording the boundaries of the
+ * interchange, group, and transaction header and trailer segments.
+ */
+class StaEDIStreamIndexer implements EventHandler {
+
+    private static final String[] X12_HEADERS = { "ISA", "GS", "ST" };
+    private static final String[] X12_TRAILERS = { "IEA", "GE", "SE" };
+    private static final int[] X12_CONTROL_ELEMENTS = { 13, 6, 2 };
+
+    private static final String[] EDIFACT_HEADERS = { "UNB", "UNG", "UNH" };
+    private static final String[] EDIFACT_TRAILERS = { "UNZ", "UNE", "UNT" };
+    private static final int[] EDIFACT_CONTROL_ELEMENTS = { 5, 5, 1 };
+
+    private static final EDIStreamEvent[] TYPES = { EDIStreamEvent.START_INTERCHANGE,
+                                                    EDIStreamEvent.START_GROUP,
+                                                    EDIStreamEvent.START_TRANSACTION };
+
+    private final StaEDIStreamLocation location = new StaEDIStreamLocation();
+    private final Lexer lexer;
+
+    private final List<IndexEntry> entries = new ArrayList<>();
+    // Open entries by level: interchange, group (optional), transaction
+    private final IndexEntry[] open = new IndexEntry[TYPES.length];
+
+    private String standard;
+    private String[] headers;
+    private String[] trailers;
+    private int[] controlElements;
+
+    /*
+     * Offsets following the most recently completed segment.
+     */
+    private long boundary = 0;
+    private long characterBoundary = 0;
+
+    // Entry (and its level) for the header segment being read
+    private IndexEntry header;
+    private int headerLevel;
+    // Entry for the trailer segment being read
+    private IndexEntry trailer;
+
+    StaEDIStreamIndexer(InputStream stream, Charset charset) {
+        this.lexer = new Lexer(stream, charset, this, location);
+    }
+
+    StaEDIStreamIndex index() throws EDIStreamException {
+        try {
+            for (;;) {
+                lexer.parse();
+            }
+        } catch (EDIStreamException e) {
+            // The input may end following any complete interchange
+            if (!lexer.isInputComplete()) {
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new EDIStreamException("Error parsing input", location, e);
+        }
+
+        return new StaEDIStreamIndex(standard, entries);
+    }
+
+    @Override
+    public void interchangeBegin(Dialect dialect) {
+        final String dialectStandard = dialect.getStandard();
+
+        if (standard == null) {
+            standard = dialectStandard;
+        }
+
+        if (Standards.EDIFACT.equals(dialectStandard)) {
+            headers = EDIFACT_HEADERS;
+            trailers = EDIFACT_TRAILERS;
+            controlElements = EDIFACT_CONTROL_ELEMENTS;
+        } else {
+            headers = X12_HEADERS;
+            trailers = X12_TRAILERS;
+            controlElements = X12_CONTROL_ELEMENTS;
+        }
+
+        closeTo(0);
+        open(0);
+    }
+
+    @Override
+    public void interchangeEnd() {
+        // Entries not closed by a trailer end with the interchange
+        closeTo(0);
+    }
+
+    @Override
+    public boolean segmentBegin(String tag) {
+        final int level = indexOf(headers, tag);
+
+        if (level == 0) {
+            // The interchange entry was opened when the interchange began
+            header = open[0];
+            header.segmentPosition = location.getSegmentPosition();
+            headerLevel = 0;
+        } else if (level > 0) {
+            closeTo(level);
+            header = open(level);
+            header.segmentPosition = location.getSegmentPosition();
+            headerLevel = level;
+        } else {
+            final int trailerLevel = indexOf(trailers, tag);
+
+            if (trailerLevel > -1) {
+                closeTo(trailerLevel + 1);
+                trailer = open[trailerLevel];
+
+                if (trailer != null) {
+                    trailer.trailerStartOffset = boundary;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean segmentEnd() {
+        boundary = lexer.getByteOffset();
+        characterBoundary = location.getCharacterOffset() + 1L;
+
+        if (header != null) {
+            header.headerEndOffset = boundary;
+            header = null;
+        }
+
+        if (trailer != null) {
+            closeTo(indexOf(TYPES, trailer.getType()));
+            trailer = null;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean compositeBegin(boolean isNil) {
+        return false;
+    }
+
+    @Override
+    public boolean compositeEnd(boolean isNil) {
+        return false;
+    }
+
+    @Override
+    public boolean elementData(char[] text, int start, int length) {
+        if (header != null
+                && header.controlNumber == null
+                && location.getElementPosition() == controlElements[headerLevel]
+                && location.getComponentPosition() < 2) {
+            header.controlNumber = new String(text, start, length);
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean binaryData(InputStream binary) {
+        return false;
+    }
+
+    @Override
+    public void loopBegin(EDIReference typeReference) {
+        // Not used, the input is not validated
+    }
+
+    @Override
+    public void loopEnd(EDIReference typeReference) {
+        // Not used, the input is not validated
+    }
+
+    @Override
+    public void segmentError(CharSequence token, EDIReference typeReference, EDIStreamValidationError error) {
+        // Not used, the input is not validated
+    }
+
+    @Override
+    public void elementError(EDIStreamEvent event,
+                             EDIStreamValidationError error,
+                             EDIReference typeReference,
+                             CharSequence text,
+                             int element,
+                             int component,
+                             int repetition) {
+        // Not used, the input is not validated
+    }
+
+    IndexEntry open(int level) {
+        IndexEntry parent = null;
+
+        for (int i = level - 1; i >= 0 && parent == null; i--) {
+            parent = open[i];
+        }
+
+        IndexEntry entry = new IndexEntry(TYPES[level], parent, headers[level]);
+        entry.startOffset = boundary;
+        entry.characterOffset = characterBoundary;
+        entries.add(entry);
+        open[level] = entry;
+        return entry;
+    }
+
+    /**
+     * Close any open entries at or nested more deeply than the given level,
+     * e.g. a transaction missing its trailer when the group's trailer is read.
+     */
+    void closeTo(int level) {
+        for (int i = open.length - 1; i >= level; i--) {
+            IndexEntry entry = open[i];
+
+            if (entry != null) {
+                if (entry.trailerStartOffset < 0) {
+                    entry.trailerStartOffset = boundary;
+                }
+                entry.endOffset = boundary;
+                open[i] = null;
+            }
+        }
+    }
+
+    static <T> int indexOf(T[] values, T value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -43,6 +43,18 @@ public class StaEDIStreamLocation extends LocationView implements Location {
         return copy;
     }
 
+    public void reset() {
+        lineNumber = 1;
+        columnNumber = 0;
+        characterOffset = -1;
+        segmentPosition = -1;
+        segmentTag = null;
+        elementPosition = -1;
+        componentPosition = -1;
+        elementOccurrence = -1;
+        repeated = false;
+    }
+
     public void set(Location source) {
         lineNumber = source.getLineNumber();
         columnNumber = source.getColumnNumber();
@@ -24,6 +24,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -32,7 +35,9 @@ import java.util.stream.Collectors;
 import io.xlate.edi.internal.schema.SchemaUtils;
 import io.xlate.edi.internal.stream.tokenization.Dialect;
 import io.xlate.edi.internal.stream.tokenization.Lexer;
+import io.xlate.edi.internal.stream.tokenization.PipelinedLexer;
 import io.xlate.edi.internal.stream.tokenization.ProxyEventHandler;
+import io.xlate.edi.internal.stream.validation.ValidatorPool;
 import io.xlate.edi.schema.EDIReference;
 import io.xlate.edi.schema.EDISchemaException;
 import io.xlate.edi.schema.Schema;
@@ -43,20 +48,33 @@ import io.xlate.edi.stream.EDIStreamException;
 import io.xlate.edi.stream.EDIStreamReader;
 import io.xlate.edi.stream.EDIStreamValidationError;
 import io.xlate.edi.stream.Location;
+import io.xlate.edi.stream.SegmentView;
+import io.xlate.edi.stream.TransactionSchemaResolver;
+import io.xlate.edi.stream.ValidationLevel;
 
 public class StaEDIStreamReader implements EDIStreamReader {
 
     private static final Logger LOGGER = Logger.getLogger(StaEDIStreamReader.class.getName());
 
+    private final Schema initialControlSchema;
     private Schema controlSchema;
     private final Map<String, Object> properties;
     private final EDIInputErrorReporter reporter;
     private final StaEDIStreamLocation location = new StaEDIStreamLocation();
     private final ProxyEventHandler proxy;
-    private final Lexer lexer;
+    final Lexer lexer;
+    private InputStream stream;
+    private boolean closeStream;
+    private final TransactionSchemaResolver transactionSchemaResolver;
+    private final ValidationLevel validationLevel;
 
     private boolean complete = false;
     private boolean closed = false;
+    private boolean inputRequired = false;
+    private boolean transactionSchemaSet = false;
+    private boolean group = false;
+    private boolean transaction = false;
+    private StaEDISegmentView segmentView;
 
     public StaEDIStreamReader(
             InputStream stream,
@@ -64,15 +82,46 @@ public class StaEDIStreamReader implements EDIStreamReader {
             Schema schema,
             Map<String, Object> properties,
             EDIInputErrorReporter reporter) {
+        this(stream, false, charset, schema, properties, reporter);
+    }
+
+    StaEDIStreamReader(
+            InputStream stream,
+            boolean closeStream,
+            Charset charset,
+            Schema schema,
+            Map<String, Object> properties,
+            EDIInputErrorReporter reporter) {
+        this(stream, closeStream, charset, schema, properties, reporter, null);
+    }
 
+    StaEDIStreamReader(
+            InputStream stream,
+            boolean closeStream,
+            Charset charset,
+            Schema schema,
+            Map<String, Object> properties,
+            EDIInputErrorReporter reporter,
+            ValidatorPool validatorPool) {
+
+        this.stream = stream;
+        this.closeStream = closeStream;
+        this.initialControlSchema = schema;
         this.controlSchema = schema;
         this.properties = new HashMap<>(properties);
         this.reporter = reporter;
-        this.proxy = new ProxyEventHandler(location, this.controlSchema);
-        this.lexer = new Lexer(stream, charset, proxy, location);
+        this.transactionSchemaResolver = (TransactionSchemaResolver) properties.get(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER);
+        this.validationLevel = getValidationLevel(properties);
+        this.proxy = new ProxyEventHandler(location, this.controlSchema, validatorPool, validationLevel);
+
+        if (stream != null && getBooleanProperty(EDIInputFactory.EDI_PIPELINED_PARSING, false)) {
+            this.lexer = new PipelinedLexer(stream, charset, proxy, location, (Executor) properties.get(EDIInputFactory.EDI_PIPELINED_PARSING_EXECUTOR));
+        } else {
+            this.lexer = new Lexer(stream, charset, proxy, location);
+        }
     }
 
-    private void ensureOpen() {
+    void ensureOpen() {
         if (closed) {
             throw new IllegalStateException("Reader is closed");
         }
@@ -132,7 +181,7 @@ public class StaEDIStreamReader implements EDIStreamReader {
         ensureOpen();
         ensureIncomplete();
 
-        if (EDIStreamEvent.START_INTERCHANGE == proxy.getEvent() && useInternalControlSchema()) {
+        if (!inputRequired && EDIStreamEvent.START_INTERCHANGE == proxy.getEvent() && useInternalControlSchema()) {
             try {
                 LOGGER.finer(() -> "Setting control schema: " + getStandard() + ", " + getVersion());
                 setControlSchema(SchemaUtils.getControlSchema(getStandard(), getVersion()));
@@ -148,8 +197,14 @@ public class StaEDIStreamReader implements EDIStreamReader {
             }
         }
 
-        if (!proxy.nextEvent()) {
-            proxy.resetEvents();
+        /*
+         * When the previous parse required more input, any events already
+         * present are incomplete and parsing resumes without resetting them.
+         */
+        if (inputRequired || !proxy.nextEvent()) {
+            if (!inputRequired) {
+                proxy.resetEvents();
+            }
 
             try {
                 lexer.parse();
@@ -157,6 +212,12 @@ public class StaEDIStreamReader implements EDIStreamReader {
                 Location where = getLocation();
                 throw new EDIStreamException("Error parsing input", where, e);
             }
+
+            inputRequired = lexer.isInputRequired();
+        }
+
+        if (inputRequired) {
+            return EDIStreamEvent.INCOMPLETE;
         }
 
         final EDIStreamEvent event = proxy.getEvent();
@@ -175,14 +236,65 @@ public class StaEDIStreamReader implements EDIStreamReader {
             }
         }
 
+        switch (event) {
+        case START_GROUP:
+            group = true;
+            break;
+        case END_GROUP:
+            group = false;
+            break;
+        case START_TRANSACTION:
+            transaction = true;
+            break;
+        case END_TRANSACTION:
+            transaction = false;
+            break;
+        default:
+            break;
+        }
+
+        if (event == EDIStreamEvent.START_TRANSACTION) {
+            transactionSchemaSet = false;
+        } else if (event == EDIStreamEvent.END_SEGMENT && proxy.isTransactionSchemaAllowed()) {
+            resolveTransactionSchema();
+        }
+
         return event;
     }
 
+    /**
+     * Select the schema for the transaction whose header segment has just been
+     * read using the configured resolver, unless the application has already
+     * set one for the transaction.
+     */
+    void resolveTransactionSchema() throws EDIStreamException {
+        if (transactionSchemaResolver == null || transactionSchemaSet) {
+            return;
+        }
+
+        final Dialect dialect = lexer.getDialect();
+        final String[] version = dialect.getTransactionStandardVersion();
+
+        try {
+            proxy.setTransactionSchema(transactionSchemaResolver.resolve(dialect.getStandard(),
+                                                                         version != null ? version.clone() : null,
+                                                                         dialect.getTransactionType(),
+                                                                         dialect.getTransactionImplementationReference()));
+        } catch (EDISchemaException e) {
+            throw new EDIStreamException("Exception resolving transaction schema", location, e);
+        }
+    }
+
     @Override
     public EDIStreamEvent next() throws EDIStreamException {
         EDIStreamEvent event = null;
         boolean eventFound = false;
 
+        if (segmentView != null) {
+            // The view is no longer current, a segment in progress is abandoned
+            segmentView.clear();
+        }
+
         do {
             event = nextEvent();
 
@@ -210,6 +322,8 @@ public class StaEDIStreamReader implements EDIStreamReader {
             case START_SEGMENT:
                 tagFound = true;
                 break;
+            case INCOMPLETE:
+                return event;
             default:
                 break;
             }
@@ -222,6 +336,125 @@ public class StaEDIStreamReader implements EDIStreamReader {
         return event;
     }
 
+    @Override
+    public EDIStreamEvent nextSegment() throws EDIStreamException {
+        ensureOpen();
+        ensureIncomplete();
+
+        if (segmentView == null) {
+            segmentView = new StaEDISegmentView();
+        } else if (!segmentView.isInProgress()) {
+            // Discard the previous segment, a segment in progress is resumed
+            segmentView.clear();
+        }
+
+        proxy.setSegmentView(segmentView);
+
+        try {
+            EDIStreamEvent event;
+
+            do {
+                event = nextEvent();
+
+                if (event == EDIStreamEvent.INCOMPLETE) {
+                    return event;
+                }
+
+                if (this.reporter != null && event.isError()) {
+                    reporter.report(getErrorType(), this);
+                } else if (event == EDIStreamEvent.END_SEGMENT && segmentView.isComplete()) {
+                    return event;
+                }
+            } while (!complete);
+
+            return event;
+        } finally {
+            proxy.setSegmentView(null);
+        }
+    }
+
+    @Override
+    public SegmentView getSegment() {
+        ensureOpen();
+
+        if (segmentView == null || !segmentView.isComplete()) {
+            throw new IllegalStateException("No segment read by nextSegment");
+        }
+
+        return segmentView;
+    }
+
+    /**
+     * Limit the segments for which segment-level events are generated to those
+     * with the given tags. Used by the input factory when this reader is
+     * wrapped by a filter declaring the segments it accepts.
+     *
+     * @param segmentTags
+     *            the tags of the segments for which events are generated, or
+     *            null for all segments
+     */
+    void setSegmentFilter(Set<String> segmentTags) {
+        proxy.setSegmentFilter(segmentTags);
+    }
+
+    @Override
+    public EDIStreamEvent skipTransaction() throws EDIStreamException {
+        ensureOpen();
+
+        if (!transaction) {
+            throw new IllegalStateException("Reader is not positioned within a transaction");
+        }
+
+        final Dialect dialect = lexer.getDialect();
+        // Prevent the resolver from selecting a schema for the skipped transaction
+        transactionSchemaSet = true;
+        proxy.skipTransaction();
+        skipTo(dialect.getTransactionTrailer());
+
+        return advanceTo(EDIStreamEvent.END_TRANSACTION);
+    }
+
+    @Override
+    public EDIStreamEvent skipGroup() throws EDIStreamException {
+        ensureOpen();
+
+        if (!group) {
+            throw new IllegalStateException("Reader is not positioned within a group");
+        }
+
+        EDIStreamEvent event;
+
+        /*
+         * Each transaction is skipped individually so that its header and
+         * trailer are validated in sequence by the control validator.
+         */
+        do {
+            event = transaction ? skipTransaction() : next();
+        } while (event != EDIStreamEvent.END_GROUP && event != EDIStreamEvent.INCOMPLETE && !complete);
+
+        return event;
+    }
+
+    /**
+     * Skip the segments following the segment most recently read by the lexer
+     * up to the given trailer, unless that segment is the trailer.
+     */
+    void skipTo(String trailerTag) {
+        if (!trailerTag.equals(location.getSegmentTag())) {
+            lexer.skipTo(trailerTag);
+        }
+    }
+
+    EDIStreamEvent advanceTo(EDIStreamEvent target) throws EDIStreamException {
+        EDIStreamEvent event;
+
+        do {
+            event = next();
+        } while (event != target && event != EDIStreamEvent.INCOMPLETE && !complete);
+
+        return event;
+    }
+
     @Override
     public boolean hasNext() throws EDIStreamException {
         ensureOpen();
@@ -230,14 +463,58 @@ public class StaEDIStreamReader implements EDIStreamReader {
 
     @Override
     public void close() throws IOException {
+        if (!closed) {
+            lexer.close();
+            proxy.releaseValidators();
+        }
+
         this.closed = true;
-        // Do not close the stream
+
+        // Only close the stream when it was opened on behalf of the caller
+        if (closeStream) {
+            stream.close();
+        }
+    }
+
+    @Override
+    public void reset(InputStream stream) throws IOException {
+        ensureOpen();
+        Objects.requireNonNull(stream, "stream");
+
+        if (closeStream) {
+            this.stream.close();
+        }
+
+        this.stream = stream;
+        this.closeStream = false;
+        resetState(stream);
+    }
+
+    /**
+     * Discard the state of the previous input, retaining the lexer, event
+     * handler, and their resources for reuse.
+     */
+    void resetState(InputStream stream) {
+        this.controlSchema = initialControlSchema;
+        this.complete = false;
+        this.inputRequired = false;
+        this.transactionSchemaSet = false;
+        this.group = false;
+        this.transaction = false;
+
+        if (segmentView != null) {
+            segmentView.clear();
+        }
+
+        location.reset();
+        lexer.reset(stream);
+        proxy.reset(initialControlSchema);
     }
 
     @Override
     public EDIStreamEvent getEventType() {
         ensureOpen();
-        return proxy.getEvent();
+        return inputRequired ? EDIStreamEvent.INCOMPLETE : proxy.getEvent();
     }
 
     @Override
@@ -296,6 +573,7 @@ public class StaEDIStreamReader implements EDIStreamReader {
     @Override
     public void setTransactionSchema(Schema schema) {
         if (proxy.isTransactionSchemaAllowed()) {
+            transactionSchemaSet = true;
             proxy.setTransactionSchema(schema);
         } else {
             throw new IllegalStateException("Transaction schema can only be set during transaction start");
@@ -438,6 +716,10 @@ public class StaEDIStreamReader implements EDIStreamReader {
             throw new IllegalStateException();
         }
 
+        if (!lexer.isBinaryDataSupported()) {
+            throw new EDIStreamException("Binary data elements are not supported by pipelined readers", location);
+        }
+
         lexer.setBinaryLength(length);
     }
 
@@ -464,13 +746,48 @@ public class StaEDIStreamReader implements EDIStreamReader {
     }
 
     boolean useInternalControlSchema() {
-        if (this.controlSchema != null) {
+        if (this.controlSchema != null || validationLevel == ValidationLevel.NONE) {
             return false;
         }
 
         return getBooleanProperty(EDIInputFactory.EDI_VALIDATE_CONTROL_STRUCTURE, true);
     }
 
+    static ValidationLevel getValidationLevel(Map<String, Object> properties) {
+        return toValidationLevel(properties.get(EDIInputFactory.EDI_VALIDATION_LEVEL));
+    }
+
+    /**
+     * Convert a value of the {@link EDIInputFactory#EDI_VALIDATION_LEVEL}
+     * property, either a ValidationLevel or the name of one in any case, to a
+     * ValidationLevel.
+     *
+     * @param property
+     *            the value of the property, may be null
+     * @return the validation level, FULL when the property is null
+     * @throws IllegalArgumentException
+     *             when the value does not name a validation level
+     */
+    static ValidationLevel toValidationLevel(Object property) {
+        if (property == null) {
+            return ValidationLevel.FULL;
+        }
+        if (property instanceof ValidationLevel) {
+            return (ValidationLevel) property;
+        }
+
+        final String name = property.toString();
+
+        for (ValidationLevel level : ValidationLevel.values()) {
+            if (level.name().equalsIgnoreCase(name)) {
+                return level;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid value for property " + EDIInputFactory.EDI_VALIDATION_LEVEL
+                + ": '" + name + "', expected one of " + Arrays.toString(ValidationLevel.values()));
+    }
+
     boolean getBooleanProperty(String propertyName, boolean defaultValue) {
         Object property = properties.get(propertyName);
 
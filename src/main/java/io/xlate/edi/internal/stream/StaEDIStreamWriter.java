@@ -18,7 +18,6 @@ package io.xlate.edi.internal.stream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
@@ -74,7 +73,7 @@ public class StaEDIStreamWriter implements EDIStreamWriter, ElementDataHandler,
     private CharacterSet characters = new CharacterSet();
 
     private final OutputStream stream;
-    private final OutputStreamWriter writer;
+    private final CharacterEncoder writer;
     private final Map<String, Object> properties;
     private final EDIOutputErrorReporter reporter;
     private Dialect dialect;
@@ -113,7 +112,7 @@ public class StaEDIStreamWriter implements EDIStreamWriter, ElementDataHandler,
 
     public StaEDIStreamWriter(OutputStream stream, Charset charset, Map<String, Object> properties, EDIOutputErrorReporter reporter) {
         this.stream = stream;
-        this.writer = new OutputStreamWriter(stream, charset);
+        this.writer = new CharacterEncoder(stream, charset);
         this.properties = new HashMap<>(properties);
         this.reporter = reporter;
         this.emptyElementTruncation = booleanValue(properties.get(EDIOutputFactory.TRUNCATE_EMPTY_ELEMENTS));
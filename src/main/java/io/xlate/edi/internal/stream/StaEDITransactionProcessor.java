@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamIndex;
+import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.EDITransactionHandler;
+
+/**
+ * Processes the indexed transactions of a file using tasks that recursively
+ * split the range of transactions until each covers a small number of them.
+ */
+class StaEDITransactionProcessor<T> {
+
+    /*
+     * Number of leaf tasks created per thread of the pool, allowing for
+     * transactions of varying size to be balanced across threads.
+     */
+    static final int TASKS_PER_THREAD = 8;
+
+    private final EDIInputFactory factory;
+    private final FileChannel channel;
+    private final List<EDIStreamIndex.Entry> transactions;
+    private final EDITransactionHandler<? extends T> handler;
+    private final Consumer<? super T> consumer;
+
+    /*
+     * Results completed out of order are held until all preceding results
+     * have been consumed. Null when results are unordered.
+     */
+    private final Object[] results;
+    private final boolean[] completed;
+    private int nextResult = 0;
+
+    /*
+     * Serializes the calls to the consumer. A lock is used rather than a
+     * monitor so that a virtual thread calling a consumer that blocks does not
+     * pin its carrier thread.
+     */
+    private final ReentrantLock deliveryLock = new ReentrantLock();
+    private volatile boolean failed = false;
+
+    StaEDITransactionProcessor(EDIInputFactory factory,
+            FileChannel channel,
+            List<EDIStreamIndex.Entry> transactions,
+            EDITransactionHandler<? extends T> handler,
+            Consumer<? super T> consumer,
+            boolean ordered) {
+        this.factory = factory;
+        this.channel = channel;
+        this.transactions = transactions;
+        this.handler = handler;
+        this.consumer = consumer;
+        this.results = ordered ? new Object[transactions.size()] : null;
+        this.completed = ordered ? new boolean[transactions.size()] : null;
+    }
+
+    void process(ForkJoinPool pool) throws IOException, EDIStreamException {
+        final int threshold = Math.max(1, transactions.size() / (pool.getParallelism() * TASKS_PER_THREAD));
+
+        try {
+            pool.invoke(new TransactionTask(0, transactions.size(), threshold));
+        } catch (RuntimeException | Error e) {
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * Find the failure carried out of a task, possibly wrapped by the pool
+     * when rethrown in the calling thread, and rethrow it as is.
+     */
+    static RuntimeException rethrow(Throwable e) throws IOException, EDIStreamException {
+        Throwable failure = null;
+
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ProcessingException) {
+                failure = t.getCause();
+            }
+        }
+
+        if (failure == null) {
+            failure = e;
+        }
+        if (failure instanceof EDIStreamException) {
+            throw (EDIStreamException) failure;
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return (RuntimeException) failure;
+    }
+
+    void process(int index) {
+        try {
+            final T result;
+
+            try (EDIStreamReader reader = factory.createEDIStreamReader(channel, transactions.get(index))) {
+                result = handler.handle(reader);
+            }
+
+            deliver(index, result);
+        } catch (EDIStreamException | IOException | RuntimeException | Error e) {
+            failed = true;
+            throw new ProcessingException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    void deliver(int index, T result) {
+        deliveryLock.lock();
+
+        try {
+            if (failed) {
+                // No results are given to the consumer after a failure
+                return;
+            }
+            if (results == null) {
+                consumer.accept(result);
+                return;
+            }
+
+            results[index] = result;
+            completed[index] = true;
+
+            while (nextResult < results.length && completed[nextResult]) {
+                T next = (T) results[nextResult];
+                results[nextResult++] = null;
+                consumer.accept(next);
+            }
+        } finally {
+            deliveryLock.unlock();
+        }
+    }
+
+    class TransactionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final int start;
+        final int end;
+        final int threshold;
+
+        TransactionTask(int start, int end, int threshold) {
+            this.start = start;
+            this.end = end;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > threshold) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new TransactionTask(start, middle, threshold), new TransactionTask(middle, end, threshold));
+            } else {
+                for (int i = start; i < end && !failed; i++) {
+                    process(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Carries the failure of a handler, consumer, or reader out of a task.
+     */
+    static class ProcessingException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ProcessingException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamIndex;
+import io.xlate.edi.stream.EDIStreamReader;
+
+/**
+ * Spliterator over the indexed transactions of a file, giving a new reader of
+ * each transaction. Splits are made on transaction boundaries by dividing the
+ * remaining range of transactions in half.
+ */
+class StaEDITransactionSpliterator implements Spliterator<EDIStreamReader> {
+
+    private final EDIInputFactory factory;
+    private final FileChannel channel;
+    private final List<EDIStreamIndex.Entry> transactions;
+    private int index;
+    private final int end;
+
+    StaEDITransactionSpliterator(EDIInputFactory factory, FileChannel channel, List<EDIStreamIndex.Entry> transactions) {
+        this(factory, channel, transactions, 0, transactions.size());
+    }
+
+    StaEDITransactionSpliterator(EDIInputFactory factory,
+            FileChannel channel,
+            List<EDIStreamIndex.Entry> transactions,
+            int index,
+            int end) {
+        this.factory = factory;
+        this.channel = channel;
+        this.transactions = transactions;
+        this.index = index;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super EDIStreamReader> action) {
+        if (index >= end) {
+            return false;
+        }
+
+        action.accept(createReader(index++));
+        return true;
+    }
+
+    EDIStreamReader createReader(int transaction) {
+        try {
+            return factory.createEDIStreamReader(channel, transactions.get(transaction));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Spliterator<EDIStreamReader> trySplit() {
+        final int middle = (index + end) >>> 1;
+
+        if (middle <= index) {
+            return null;
+        }
+
+        Spliterator<EDIStreamReader> prefix = new StaEDITransactionSpliterator(factory, channel, transactions, index, middle);
+        index = middle;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (long) end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
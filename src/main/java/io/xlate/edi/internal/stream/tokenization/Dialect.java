@@ -103,4 +103,53 @@ public abstract class Dialect {
      *         transaction's version
      */
     public abstract String getTransactionVersionString();
+
+    /**
+     * Returns the identifying elements of the version of the standard used by
+     * the current transaction, i.e. the transaction's version without any
+     * implementation convention reference taken into account.
+     *
+     * @return the array of elements identifying the version of the standard
+     *         used by the current transaction
+     */
+    public String[] getTransactionStandardVersion() {
+        return getTransactionVersion();
+    }
+
+    /**
+     * Returns the reference to the implementation convention of the current
+     * transaction, e.g. X12 <code>ST03</code>.
+     *
+     * @return the implementation convention reference, or null when not
+     *         given or not supported by the standard
+     */
+    public String getTransactionImplementationReference() {
+        return null;
+    }
+
+    /**
+     * Returns the code identifying the type of the current transaction, e.g.
+     * the X12 transaction set identifier or the EDIFACT message type.
+     *
+     * @return the type of the current transaction, or null when not within a
+     *         transaction
+     */
+    public abstract String getTransactionType();
+
+    /**
+     * Returns the tag of the segment that ends a transaction, e.g. X12
+     * <code>SE</code>.
+     *
+     * @return the transaction trailer segment tag
+     */
+    public abstract String getTransactionTrailer();
+
+    /**
+     * Returns the tag of the segment that ends an interchange, e.g. X12
+     * <code>IEA</code>.
+     *
+     * @return the interchange trailer segment tag
+     */
+    public abstract String getInterchangeTrailer();
+
 }
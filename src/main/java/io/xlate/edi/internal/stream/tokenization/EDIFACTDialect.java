@@ -22,6 +22,8 @@ public class EDIFACTDialect extends Dialect {
 
     public static final String UNA = "UNA";
     public static final String UNB = "UNB";
+    private static final String UNT = "UNT";
+    private static final String UNZ = "UNZ";
 
     private static final String[] EMPTY = new String[0];
 
@@ -48,6 +50,7 @@ public class EDIFACTDialect extends Dialect {
     private static final int TX_ASSIGNED_CODE = 3;
     private String[] transactionVersion = new String[4];
     private String transactionVersionString;
+    private String transactionType;
 
     EDIFACTDialect() {
         componentDelimiter = DFLT_COMPONENT_ELEMENT_SEPARATOR;
@@ -250,9 +253,13 @@ public class EDIFACTDialect extends Dialect {
     public void elementData(CharSequence data, Location location) {
         if ("UNH".equals(location.getSegmentTag())) {
             if (location.getElementPosition() == 1) {
+                transactionType = null;
                 clearTransactionVersion();
             } else if (location.getElementPosition() == 2) {
                 switch (location.getComponentPosition()) {
+                case 1:
+                    transactionType = data.toString();
+                    break;
                 case 2:
                     transactionVersion[TX_VERSION] = data.toString();
                     break;
@@ -276,6 +283,7 @@ public class EDIFACTDialect extends Dialect {
 
     @Override
     public void transactionEnd() {
+        transactionType = null;
         clearTransactionVersion();
     }
 
@@ -293,4 +301,19 @@ public class EDIFACTDialect extends Dialect {
     public String getTransactionVersionString() {
         return transactionVersionString;
     }
+
+    @Override
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    @Override
+    public String getTransactionTrailer() {
+        return UNT;
+    }
+
+    @Override
+    public String getInterchangeTrailer() {
+        return UNZ;
+    }
 }
@@ -15,7 +15,6 @@
  ******************************************************************************/
 package io.xlate.edi.internal.stream.tokenization;
 
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
@@ -23,6 +22,8 @@ import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CoderResult;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.logging.Logger;
@@ -55,21 +56,55 @@ public class Lexer {
     private final Deque<Integer> startQueue = new ArrayDeque<>(20);
     private final Deque<Integer> lengthQueue = new ArrayDeque<>(20);
 
-    private final InputStream stream;
-    private CharsetDecoder decoder;
-    private char[] readChar = new char[1];
-    private CharBuffer readCharBuf = CharBuffer.wrap(readChar);
-    private ByteBuffer readByteBuf = ByteBuffer.allocate(4);
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int TOKEN_BUFFER_SIZE = 4096;
+
+    private InputStream stream;
+    private final CharsetDecoder decoder;
+    private ByteBuffer readByteBuf;
+    private final CharBuffer readCharBuf;
+    /*
+     * Position of readByteBuf at the start of the decode operation that
+     * filled readCharBuf. Used to locate the byte following the last
+     * character consumed from readCharBuf.
+     */
+    private int readByteMark = 0;
+    private boolean endOfInput = false;
+    private boolean inputRequired = false;
+    private CoderResult pendingDecodeError = null;
+    private CoderResult truncatedInput = null;
+
+    /*
+     * Bytes below this limit are mapped directly to characters without the
+     * use of the decoder. Zero when all input must be decoded.
+     */
+    private int singleByteLimit;
+    private final boolean singleByteFallback;
+
+    /*
+     * Count of the input bytes consumed. Exact for UTF-8 and single byte
+     * charsets, otherwise each decoded character is counted as one byte.
+     */
+    private long byteOffset = 0;
+    private final boolean utf8;
 
     private final StaEDIStreamLocation location;
 
     private CharacterSet characters = new CharacterSet();
-    private CharBuffer buffer = CharBuffer.allocate(4096);
+    private CharBuffer buffer;
     private Dialect dialect;
 
     private long binaryRemain = -1;
     private InputStream binaryStream = null;
 
+    /*
+     * Tag of the segment at which skipping ends, or null when segments are not
+     * being skipped. Skipped segments are tokenized (and the location updated)
+     * without notifying the handler.
+     */
+    private String skipTarget = null;
+    private boolean skippingSegment = false;
+
     private Notifier isn;
     private Notifier ien;
     private Notifier ssn;
@@ -79,14 +114,48 @@ public class Lexer {
     private Notifier en;
     private Notifier bn;
 
+    /**
+     * Create a Lexer that reads from the given stream. When the stream is
+     * null, input must be supplied using {@link #feedInput(ByteBuffer)} and
+     * {@link #endOfInput()}.
+     *
+     * @param stream
+     *            the source of EDI input, or null when input will be fed
+     * @param charset
+     *            the charset used to decode the input
+     * @param handler
+     *            the receiver of lexical events
+     * @param location
+     *            the location to be updated as input is consumed
+     */
     public Lexer(InputStream stream, Charset charset, EventHandler handler, StaEDIStreamLocation location) {
-        if (stream.markSupported()) {
-            this.stream = stream;
-        } else {
-            this.stream = new BufferedInputStream(stream);
-        }
-
+        this(stream, charset, handler, location, READ_BUFFER_SIZE, TOKEN_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a Lexer with the given capacities of its input and token
+     * buffers. A subclass that does not tokenize input itself (e.g.
+     * {@link PipelinedLexer}) gives zero to avoid allocating the buffers.
+     */
+    Lexer(InputStream stream,
+          Charset charset,
+          EventHandler handler,
+          StaEDIStreamLocation location,
+          int readBufferSize,
+          int tokenBufferSize) {
+        this.stream = stream;
+        this.readByteBuf = ByteBuffer.allocate(readBufferSize);
+        this.readCharBuf = CharBuffer.allocate(readBufferSize);
+        this.buffer = CharBuffer.allocate(tokenBufferSize);
         this.decoder = charset.newDecoder();
+        this.singleByteLimit = singleByteLimit(charset);
+        // UTF-8 input may switch to full decoding upon the first non-ASCII byte
+        this.singleByteFallback = StandardCharsets.UTF_8.equals(charset);
+        this.utf8 = singleByteFallback;
+
+        // Both buffers start out empty (ready for reading)
+        readByteBuf.flip();
+        readCharBuf.flip();
 
         this.location = location;
 
@@ -105,11 +174,23 @@ public class Lexer {
         ssn = (notifyState, start, length) -> {
             String segmentTag = new String(buffer.array(), start, length);
             location.incrementSegmentPosition(segmentTag);
+
+            if (skipTarget != null) {
+                // The interchange trailer always ends skipping
+                if (notifyState != State.TRAILER_BEGIN && !skipTarget.equals(segmentTag)) {
+                    skippingSegment = true;
+                    return false;
+                }
+
+                skipTarget = null;
+            }
+
             return handler.segmentBegin(segmentTag);
         };
 
         sen = (notifyState, start, length) -> {
-            boolean eventsReady = handler.segmentEnd();
+            boolean eventsReady = !skippingSegment && handler.segmentEnd();
+            skippingSegment = false;
             location.clearSegmentLocations();
             return eventsReady;
         };
@@ -121,18 +202,18 @@ public class Lexer {
                 location.incrementElementPosition();
             }
 
-            return handler.compositeBegin(false);
+            return !skippingSegment && handler.compositeBegin(false);
         };
 
         cen = (notifyState, start, length) -> {
-            boolean eventsReady = handler.compositeEnd(false);
+            boolean eventsReady = !skippingSegment && handler.compositeEnd(false);
             location.clearComponentPosition();
             return eventsReady;
         };
 
         en = (notifyState, start, length) -> {
             updateLocation(notifyState, location);
-            return handler.elementData(buffer.array(), start, length);
+            return !skippingSegment && handler.elementData(buffer.array(), start, length);
         };
 
         bn = (notifyState, start, length) -> {
@@ -141,19 +222,190 @@ public class Lexer {
         };
     }
 
+    static int singleByteLimit(Charset charset) {
+        if (StandardCharsets.ISO_8859_1.equals(charset)) {
+            return 0x100;
+        }
+        if (StandardCharsets.US_ASCII.equals(charset) || StandardCharsets.UTF_8.equals(charset)) {
+            return 0x80;
+        }
+        return 0;
+    }
+
+    /**
+     * Reset the Lexer to read from the beginning of a new input, retaining its
+     * buffers for reuse.
+     *
+     * @param stream
+     *            the source of EDI input, or null when input will be fed
+     */
+    public void reset(InputStream stream) {
+        this.stream = stream;
+
+        modes.clear();
+        input = 0;
+        state = State.INITIAL;
+        previous = null;
+        events.clear();
+        stateQueue.clear();
+        startQueue.clear();
+        lengthQueue.clear();
+
+        readByteBuf.clear();
+        readByteBuf.flip();
+        readCharBuf.clear();
+        readCharBuf.flip();
+        readByteMark = 0;
+        endOfInput = false;
+        inputRequired = false;
+        pendingDecodeError = null;
+        truncatedInput = null;
+        decoder.reset();
+        singleByteLimit = singleByteLimit(decoder.charset());
+        byteOffset = 0;
+
+        characters.reset();
+        buffer.clear();
+        dialect = null;
+        binaryRemain = -1;
+        binaryStream = null;
+        skipTarget = null;
+        skippingSegment = false;
+    }
+
+    /**
+     * Release any resources held by the Lexer other than the input stream,
+     * which is not closed.
+     */
+    public void close() {
+        // Nothing to release, all resources are reused
+    }
+
+    /**
+     * Skip the segments following the current segment, up to (but not
+     * including) the next segment with the given tag or the interchange
+     * trailer. Skipped segments are read without notifying the handler of
+     * their content, but are counted in the segment positions of the
+     * location.
+     *
+     * @param segmentTag
+     *            the tag of the segment at which skipping ends
+     */
+    public void skipTo(String segmentTag) {
+        this.skipTarget = segmentTag;
+    }
+
     public Dialect getDialect() {
         return dialect;
     }
 
+    /**
+     * Get the number of bytes of input consumed by the Lexer, i.e. the offset
+     * of the byte following the last character read.
+     *
+     * @return the offset of the next byte to be read
+     */
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    /**
+     * Append the remaining bytes of the input buffer to the bytes available to
+     * the Lexer. The input buffer is consumed and may be re-used by the caller
+     * once this method returns.
+     *
+     * @param input
+     *            buffer of EDI input
+     */
+    public void feedInput(ByteBuffer input) {
+        if (endOfInput) {
+            throw new IllegalStateException("End of input already signaled");
+        }
+
+        /*
+         * Bytes from the mark are retained in case decoded characters must be
+         * read again. When no decoded characters are pending (including when
+         * reading single byte input directly) only unread bytes are retained.
+         */
+        final int mark = readCharBuf.hasRemaining() ? readByteMark : readByteBuf.position();
+        final int position = readByteBuf.position() - mark;
+        final int limit = readByteBuf.limit() - mark;
+        final ByteBuffer target;
+
+        if (limit + input.remaining() > readByteBuf.capacity()) {
+            target = ByteBuffer.allocate(Math.max(limit + input.remaining(), readByteBuf.capacity() * 2));
+        } else {
+            target = readByteBuf;
+        }
+
+        System.arraycopy(readByteBuf.array(), mark, target.array(), 0, limit);
+        readByteBuf = target;
+        readByteBuf.clear();
+        readByteBuf.position(limit);
+        readByteBuf.put(input);
+        readByteBuf.flip();
+        readByteBuf.position(position);
+        readByteMark = 0;
+    }
+
+    int getInputBufferCapacity() {
+        return readByteBuf.capacity();
+    }
+
+    /**
+     * Signal that no more input will be fed to the Lexer.
+     */
+    public void endOfInput() {
+        endOfInput = true;
+    }
+
+    /**
+     * Indicates whether the most recent call to {@link #parse()} returned
+     * because all input fed to the Lexer was consumed before the next event
+     * was complete.
+     *
+     * @return true when more input must be fed before parsing may continue
+     */
+    public boolean isInputRequired() {
+        return inputRequired;
+    }
+
+    /**
+     * Indicates whether the most recent call to {@link #parse()} ended because
+     * all input was consumed (no more input is available from the stream or
+     * the end of input was signaled) while no interchange was in progress.
+     *
+     * @return true when all input has been consumed between interchanges
+     */
+    public boolean isInputComplete() {
+        return endOfInput && input < 0 && (state == State.INITIAL || state == State.INTERCHANGE_END);
+    }
+
+    /**
+     * Determine whether the Lexer is able to read binary data elements, i.e.
+     * whether {@link #setBinaryLength(long)} may be used.
+     *
+     * @return true when binary data elements are supported
+     */
+    public boolean isBinaryDataSupported() {
+        return true;
+    }
+
     public void setBinaryLength(long binaryLength) {
         this.binaryRemain = binaryLength;
 
+        /*
+         * Characters decoded beyond the current position are discarded and the
+         * binary data is read directly from the underlying bytes.
+         */
+        unreadCharacters();
+
         this.binaryStream = new InputStream() {
             @Override
             public int read() throws IOException {
                 int binaryInput = -1;
 
-                if (binaryRemain-- < 1 || (binaryInput = stream.read()) < 0) {
+                if (binaryRemain-- < 1 || (binaryInput = readByte()) < 0) {
                     state = State.ELEMENT_END_BINARY;
                 } else {
                     location.incrementOffset(binaryInput);
@@ -168,7 +420,21 @@ public class Lexer {
     }
 
     public void parse() throws IOException, EDIException {
-        if (nextEvent()) {
+        if (isBinaryInputRequired()) {
+            // The binary element is only delivered once all of its bytes have been fed
+            inputRequired = true;
+            return;
+        }
+
+        /*
+         * When resuming after more input was fed, the partially read token and
+         * any events not yet ready must be retained. A binary element waiting
+         * for its input is still the next event.
+         */
+        final boolean resuming = inputRequired && events.peek() != bn;
+        inputRequired = false;
+
+        if (!resuming && nextEvent()) {
             return;
         }
 
@@ -281,62 +547,212 @@ public class Lexer {
         }
 
         if (input < 0) {
-            throw error(EDIException.INCOMPLETE_STREAM);
+            if (!endOfInput) {
+                // More input will be fed, resume from the current state on the next call
+                inputRequired = true;
+                return;
+            }
+
+            EDIException incomplete = error(EDIException.INCOMPLETE_STREAM);
+
+            if (truncatedInput != null) {
+                incomplete.initCause(new MalformedInputException(truncatedInput.length()));
+            }
+
+            throw incomplete;
         }
     }
 
+    /**
+     * Determine whether the next event is a binary element of fed input for
+     * which not all bytes are available yet. The binary stream given to the
+     * handler may only read bytes that are already present, otherwise the
+     * element would end early at the end of the fed input.
+     *
+     * @return true when more input must be fed before the binary element
+     */
+    boolean isBinaryInputRequired() {
+        return stream == null
+                && !endOfInput
+                && events.peek() == bn
+                && readByteBuf.remaining() < binaryRemain;
+    }
+
     int readCharacter() throws IOException {
-        int next = stream.read();
+        if (state == State.ELEMENT_DATA_BINARY) {
+            // Binary data not consumed via the binary stream is skipped byte-by-byte
+            return readByte();
+        }
+
+        if (singleByteLimit > 0) {
+            int next = readByte();
 
-        if (next < 0) {
+            if (next < singleByteLimit) {
+                return next;
+            }
+
+            readSingleByteOverflow();
+        }
+
+        if (!readCharBuf.hasRemaining() && !decodeCharacters()) {
             return -1;
         }
 
-        boolean endOfInput = false;
-        boolean complete = false;
-        int position = 0;
+        final char next = readCharBuf.get();
+        byteOffset += utf8 ? utf8Length(next) : 1;
+        return next;
+    }
+
+    static int utf8Length(char value) {
+        if (value < 0x80) {
+            return 1;
+        }
+        if (value < 0x800 || Character.isSurrogate(value)) {
+            // Each half of a surrogate pair is counted as half of the 4 byte sequence
+            return 2;
+        }
+        return 3;
+    }
+
+    /**
+     * Handle a byte that can not be mapped directly to a character in single
+     * byte mode. When permitted, the byte is returned to the buffer and all
+     * remaining input will be decoded using the charset's decoder.
+     *
+     * @throws MalformedInputException
+     *             when the byte is not valid for the charset
+     */
+    void readSingleByteOverflow() throws MalformedInputException {
+        readByteBuf.position(readByteBuf.position() - 1);
+        byteOffset--;
+
+        if (!singleByteFallback) {
+            throw new MalformedInputException(1);
+        }
+
+        singleByteLimit = 0;
+    }
+
+    /**
+     * Decode the next block of available input into the character buffer.
+     *
+     * @return true if at least one character is available in the character
+     *         buffer, otherwise false (end of input)
+     * @throws IOException
+     *             when the underlying stream throws an exception or the input
+     *             can not be decoded
+     */
+    boolean decodeCharacters() throws IOException {
+        if (pendingDecodeError != null) {
+            CoderResult error = pendingDecodeError;
+            pendingDecodeError = null;
+            error.throwException();
+        }
 
         readCharBuf.clear();
-        readByteBuf.clear();
-        readByteBuf.put((byte) next);
 
-        do {
-            readByteBuf.flip();
-            CoderResult cr = decoder.decode(readByteBuf, readCharBuf, endOfInput);
+        try {
+            while (readCharBuf.position() == 0) {
+                readByteMark = readByteBuf.position();
+                CoderResult cr = decoder.decode(readByteBuf, readCharBuf, false);
+
+                if (cr.isError()) {
+                    if (readCharBuf.position() == 0) {
+                        cr.throwException();
+                    }
+                    // Report the error once the preceding characters are consumed
+                    pendingDecodeError = cr;
+                } else if (cr.isUnderflow() && readCharBuf.position() == 0 && !readBytes()) {
+                    if (endOfInput) {
+                        /*
+                         * End of input. Any remaining bytes are an incomplete
+                         * character sequence, reported as the cause of the
+                         * incomplete stream error.
+                         */
+                        cr = decoder.decode(readByteBuf, readCharBuf, true);
+                        decoder.reset();
+
+                        if (cr.isError()) {
+                            truncatedInput = cr;
+                        }
+                    }
+                    break;
+                }
+            }
+        } finally {
+            readCharBuf.flip();
+        }
+
+        return readCharBuf.hasRemaining();
+    }
+
+    /**
+     * Read the next available block of bytes from the stream, retaining any
+     * unconsumed bytes at the start of the byte buffer.
+     *
+     * @return true if more bytes were read, otherwise false (end of input or
+     *         no stream when input is fed)
+     * @throws IOException
+     *             when the underlying stream throws an exception
+     */
+    boolean readBytes() throws IOException {
+        if (endOfInput || stream == null) {
+            return false;
+        }
 
-            if (!cr.isUnderflow()) {
-                cr.throwException();
+        readByteBuf.compact();
+        int count;
+
+        try {
+            count = stream.read(readByteBuf.array(), readByteBuf.position(), readByteBuf.remaining());
+
+            if (count > 0) {
+                readByteBuf.position(readByteBuf.position() + count);
+            } else if (count < 0) {
+                endOfInput = true;
             }
+        } finally {
+            readByteBuf.flip();
+            readByteMark = 0;
+        }
 
-            if (endOfInput) {
-                complete = true;
-            } else if (readCharBuf.position() > 0) {
-                // Single character successfully written to the CharBuffer
-                complete = true;
-            } else {
-                next = stream.read();
+        return count >= 0;
+    }
 
-                if (next < 0) {
-                    endOfInput = true;
-                    decoder.reset();
-                } else {
-                    readByteBuf.limit(readByteBuf.capacity());
-                    readByteBuf.position(++position);
-                    readByteBuf.put((byte) next);
-                }
+    int readByte() throws IOException {
+        while (!readByteBuf.hasRemaining()) {
+            if (!readBytes()) {
+                return -1;
             }
-        } while (!complete);
+        }
 
-        if (endOfInput) {
-            decoder.reset();
+        byteOffset++;
+        return readByteBuf.get() & 0xFF;
+    }
+
+    /**
+     * Discard any decoded characters not yet consumed and reposition the byte
+     * buffer to the first byte following the last consumed character.
+     */
+    void unreadCharacters() {
+        if (!readCharBuf.hasRemaining()) {
+            return;
         }
 
-        if (readCharBuf.position() == 0 && endOfInput) {
-            // Nothing was written to the CharBuffer
-            return -1;
+        final int consumed = readCharBuf.position();
+
+        readByteBuf.position(readByteMark);
+        decoder.reset();
+
+        if (consumed > 0) {
+            // Decode exactly the consumed characters again to find the byte position
+            decoder.decode(readByteBuf, CharBuffer.allocate(consumed), false);
         }
 
-        return readChar[0];
+        decoder.reset();
+        readCharBuf.clear();
+        readCharBuf.flip();
+        pendingDecodeError = null;
     }
 
     void handleStateHeaderTag(int input) {
@@ -464,12 +880,15 @@ public class Lexer {
         Notifier event = events.peek();
         boolean eventsReady = false;
 
-        if (event != null) {
+        while (event != null) {
             events.remove();
             State nextState = stateQueue.remove();
             int start = startQueue.remove();
             int length = lengthQueue.remove();
             eventsReady = event.execute(nextState, start, length);
+
+            // Notifications of skipped or filtered segments may produce no events, drain them
+            event = eventsReady ? null : events.peek();
         }
 
         if (events.isEmpty()) {
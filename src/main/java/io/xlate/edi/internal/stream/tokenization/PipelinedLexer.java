@@ -0,0 +1,540 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.tokenization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import io.xlate.edi.internal.stream.StaEDIStreamLocation;
+import io.xlate.edi.schema.EDIReference;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamValidationError;
+
+/**
+ * Lexer that tokenizes its input on a separate thread. The tokens of each
+ * segment, together with their locations, are passed to the thread calling
+ * {@link #parse()} through a bounded single-producer/single-consumer queue and
+ * are given to the event handler (i.e. validated) on that thread. Reading and
+ * decoding the input is thereby overlapped with validation and the
+ * processing of events by the application.
+ *
+ * The tokenizing task is given to the Lexer's {@link Executor} on the first
+ * call to {@link #parse()} and ends following the end of the first interchange,
+ * the end of the input, or when the Lexer is reset or closed, in which case
+ * the thread running the task is interrupted. Binary data elements are not
+ * supported since their length must be known by the tokenizing thread in
+ * advance.
+ */
+public class PipelinedLexer extends Lexer {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Runs each tokenizing task on a new daemon thread.
+     */
+    static final Executor DEFAULT_EXECUTOR = task -> {
+        Thread thread = new Thread(task, "staedi-lexer");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+
+    private static final byte INTERCHANGE_BEGIN = 0;
+    private static final byte INTERCHANGE_END = 1;
+    private static final byte SEGMENT_BEGIN = 2;
+    private static final byte SEGMENT_END = 3;
+    private static final byte COMPOSITE_BEGIN = 4;
+    private static final byte COMPOSITE_END = 5;
+    private static final byte ELEMENT_DATA = 6;
+    private static final byte FAILURE = 7;
+
+    /**
+     * The tokens of a single segment (or the end of an interchange), each
+     * with the location at which it was read. Batches are reused once
+     * consumed.
+     */
+    static class TokenBatch {
+        int count;
+        int position;
+        byte[] types = new byte[16];
+        boolean[] flags = new boolean[16];
+        int[] starts = new int[16];
+        int[] lengths = new int[16];
+        StaEDIStreamLocation[] locations = new StaEDIStreamLocation[16];
+        char[] text = new char[256];
+        int textLength;
+        String tag;
+        Dialect dialect;
+        Throwable failure;
+
+        void clear() {
+            count = 0;
+            position = 0;
+            textLength = 0;
+            tag = null;
+            dialect = null;
+            failure = null;
+        }
+
+        int add(byte type, StaEDIStreamLocation location) {
+            if (count == types.length) {
+                int size = count * 2;
+                types = Arrays.copyOf(types, size);
+                flags = Arrays.copyOf(flags, size);
+                starts = Arrays.copyOf(starts, size);
+                lengths = Arrays.copyOf(lengths, size);
+                locations = Arrays.copyOf(locations, size);
+            }
+
+            if (locations[count] == null) {
+                locations[count] = new StaEDIStreamLocation();
+            }
+
+            types[count] = type;
+            flags[count] = false;
+            locations[count].set(location);
+            locations[count].setRepeated(location.isRepeated());
+            return count++;
+        }
+
+        void addText(int index, char[] source, int start, int length) {
+            if (textLength + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            }
+
+            System.arraycopy(source, start, text, textLength, length);
+            starts[index] = textLength;
+            lengths[index] = length;
+            textLength += length;
+        }
+    }
+
+    /**
+     * Bounded queue of token batches between a single producing (tokenizing)
+     * thread and a single consuming thread. Each batch is filled by the
+     * producer in its slot of the ring and published by advancing the tail;
+     * it is released for reuse by the consumer advancing the head.
+     *
+     * A thread waiting for a batch (consumer) or for a free slot (producer)
+     * registers itself and parks until the other thread advances its index
+     * and unparks it. Each index is advanced before the waiting thread is
+     * read, and each waiting thread is registered before the index is read,
+     * so that a wake-up can not be missed.
+     */
+    static class TokenQueue {
+        final TokenBatch[] ring;
+        final int mask;
+        final AtomicLong head = new AtomicLong();
+        final AtomicLong tail = new AtomicLong();
+        volatile boolean closed = false;
+        volatile Thread waitingProducer;
+        volatile Thread waitingConsumer;
+
+        TokenQueue(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            ring = new TokenBatch[size];
+            mask = size - 1;
+
+            for (int i = 0; i < size; i++) {
+                ring[i] = new TokenBatch();
+            }
+        }
+
+        /**
+         * Obtain the next batch to be filled by the producer, waiting while
+         * the queue is full.
+         */
+        TokenBatch acquire() {
+            final long index = tail.get();
+
+            if (index - head.get() > mask) {
+                waitingProducer = Thread.currentThread();
+
+                try {
+                    while (index - head.get() > mask) {
+                        await();
+                    }
+                } finally {
+                    waitingProducer = null;
+                }
+            }
+
+            TokenBatch batch = ring[(int) index & mask];
+            batch.clear();
+            return batch;
+        }
+
+        void publish() {
+            tail.set(tail.get() + 1);
+            LockSupport.unpark(waitingConsumer);
+        }
+
+        /**
+         * Obtain the next batch published by the producer, waiting while the
+         * queue is empty.
+         */
+        TokenBatch take() {
+            final long index = head.get();
+
+            if (tail.get() == index) {
+                waitingConsumer = Thread.currentThread();
+
+                try {
+                    while (tail.get() == index) {
+                        await();
+                    }
+                } finally {
+                    waitingConsumer = null;
+                }
+            }
+
+            return ring[(int) index & mask];
+        }
+
+        void release() {
+            head.set(head.get() + 1);
+            LockSupport.unpark(waitingProducer);
+        }
+
+        void await() {
+            if (closed) {
+                throw new IllegalStateException("Lexer is closed");
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Interrupted while waiting for tokens");
+            }
+
+            LockSupport.park(this);
+        }
+    }
+
+    private final InputStream input;
+    private final Charset charset;
+    private final EventHandler handler;
+    private final StaEDIStreamLocation location;
+    private final Executor executor;
+    private final int capacity;
+
+    FutureTask<Void> producer;
+    private TokenQueue queue;
+    private boolean closed = false;
+
+    // State of the consuming thread
+    private TokenBatch current;
+    private Dialect dialect;
+    private String skipTarget;
+
+    /**
+     * @param executor
+     *            executor of the tokenizing task, or null to run the task on a
+     *            new daemon thread
+     */
+    public PipelinedLexer(InputStream stream, Charset charset, EventHandler handler, StaEDIStreamLocation location, Executor executor) {
+        this(stream, charset, handler, location, executor, DEFAULT_CAPACITY);
+    }
+
+    PipelinedLexer(InputStream stream, Charset charset, EventHandler handler, StaEDIStreamLocation location, Executor executor, int capacity) {
+        // The input is tokenized by a separate Lexer, the buffers of this one are not used
+        super(null, charset, handler, location, 0, 0);
+        this.input = stream;
+        this.charset = charset;
+        this.handler = handler;
+        this.location = location;
+        this.executor = executor != null ? executor : DEFAULT_EXECUTOR;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void parse() throws IOException, EDIException {
+        if (closed) {
+            throw new IllegalStateException("Lexer is closed");
+        }
+
+        if (queue == null) {
+            start(input);
+        }
+
+        for (;;) {
+            if (current == null) {
+                current = queue.take();
+            }
+
+            while (current.position < current.count) {
+                if (replay(current, current.position++)) {
+                    return;
+                }
+            }
+
+            current = null;
+            queue.release();
+        }
+    }
+
+    @Override
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    @Override
+    public void skipTo(String segmentTag) {
+        this.skipTarget = segmentTag;
+    }
+
+    @Override
+    public boolean isBinaryDataSupported() {
+        return false;
+    }
+
+    @Override
+    public void setBinaryLength(long binaryLength) {
+        throw new UnsupportedOperationException("Binary data elements are not supported by pipelined readers");
+    }
+
+    @Override
+    public void reset(InputStream stream) {
+        // The previous tokenizing task may still be running, it is interrupted and given up with its queue
+        stop();
+        current = null;
+        dialect = null;
+        skipTarget = null;
+        start(stream);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        stop();
+    }
+
+    void start(InputStream stream) {
+        StaEDIStreamLocation producerLocation = new StaEDIStreamLocation();
+        Recorder recorder = new Recorder(new TokenQueue(capacity), producerLocation);
+        Lexer lexer = new Lexer(stream, charset, recorder, producerLocation);
+
+        queue = recorder.queue;
+        producer = new FutureTask<>(() -> produce(lexer, recorder), null);
+        executor.execute(producer);
+    }
+
+    void stop() {
+        if (queue != null) {
+            queue.closed = true;
+            // Interrupts the thread only while it runs the task, e.g. when waiting for input or for space in the queue
+            producer.cancel(true);
+            LockSupport.unpark(queue.waitingProducer);
+        }
+    }
+
+    /**
+     * Tokenize the input until the end of the interchange. Any failure,
+     * including an {@link Error}, is published to the consuming thread, which
+     * would otherwise wait for tokens indefinitely.
+     */
+    static void produce(Lexer lexer, Recorder recorder) {
+        try {
+            while (!recorder.interchangeEnded) {
+                lexer.parse();
+            }
+        } catch (Throwable e) {
+            if (!recorder.queue.closed) {
+                recorder.fail(e);
+            }
+        }
+    }
+
+    boolean replay(TokenBatch batch, int index) throws IOException, EDIException {
+        StaEDIStreamLocation snapshot = batch.locations[index];
+        location.set(snapshot);
+        location.setRepeated(snapshot.isRepeated());
+        boolean eventsReady;
+
+        switch (batch.types[index]) {
+        case INTERCHANGE_BEGIN:
+            dialect = batch.dialect;
+            handler.interchangeBegin(dialect);
+            return true;
+        case INTERCHANGE_END:
+            handler.interchangeEnd();
+            dialect = null;
+            skipTarget = null;
+            return true;
+        case SEGMENT_BEGIN:
+            if (skipTarget != null) {
+                // The interchange trailer always ends skipping
+                if (!skipTarget.equals(batch.tag) && !batch.tag.equals(dialect.getInterchangeTrailer())) {
+                    // Skip the remainder of the segment
+                    batch.position = batch.count;
+                    return false;
+                }
+
+                skipTarget = null;
+            }
+            return handler.segmentBegin(batch.tag);
+        case SEGMENT_END:
+            eventsReady = handler.segmentEnd();
+            location.clearSegmentLocations();
+            return eventsReady;
+        case COMPOSITE_BEGIN:
+            return handler.compositeBegin(batch.flags[index]);
+        case COMPOSITE_END:
+            eventsReady = handler.compositeEnd(batch.flags[index]);
+            location.clearComponentPosition();
+            return eventsReady;
+        case ELEMENT_DATA:
+            return handler.elementData(batch.text, batch.starts[index], batch.lengths[index]);
+        default:
+            // Failures are reported each time parsing is attempted
+            batch.position--;
+
+            if (batch.failure instanceof IOException) {
+                throw (IOException) batch.failure;
+            }
+            if (batch.failure instanceof EDIException) {
+                throw (EDIException) batch.failure;
+            }
+            if (batch.failure instanceof Error) {
+                throw (Error) batch.failure;
+            }
+            throw (RuntimeException) batch.failure;
+        }
+    }
+
+    /**
+     * Records the tokens of the input into the batches of the queue, on the
+     * tokenizing thread.
+     */
+    static class Recorder implements EventHandler {
+        final TokenQueue queue;
+        final StaEDIStreamLocation lexerLocation;
+        TokenBatch batch;
+        boolean interchangeEnded = false;
+
+        Recorder(TokenQueue queue, StaEDIStreamLocation lexerLocation) {
+            this.queue = queue;
+            this.lexerLocation = lexerLocation;
+        }
+
+        TokenBatch batch() {
+            if (batch == null) {
+                batch = queue.acquire();
+            }
+
+            return batch;
+        }
+
+        void publish() {
+            batch = null;
+            queue.publish();
+        }
+
+        void fail(Throwable e) {
+            TokenBatch failed = batch();
+            failed.add(FAILURE, lexerLocation);
+            failed.failure = e;
+            publish();
+        }
+
+        @Override
+        public void interchangeBegin(Dialect dialect) {
+            TokenBatch current = batch();
+            current.add(INTERCHANGE_BEGIN, lexerLocation);
+            current.dialect = dialect;
+        }
+
+        @Override
+        public void interchangeEnd() {
+            batch().add(INTERCHANGE_END, lexerLocation);
+            interchangeEnded = true;
+            publish();
+        }
+
+        @Override
+        public boolean segmentBegin(String tag) {
+            TokenBatch current = batch();
+            current.add(SEGMENT_BEGIN, lexerLocation);
+            current.tag = tag;
+            return false;
+        }
+
+        @Override
+        public boolean segmentEnd() {
+            batch().add(SEGMENT_END, lexerLocation);
+            publish();
+            // Return to the tokenizing loop to allow it to end with the interchange
+            return true;
+        }
+
+        @Override
+        public boolean compositeBegin(boolean isNil) {
+            TokenBatch current = batch();
+            int index = current.add(COMPOSITE_BEGIN, lexerLocation);
+            current.flags[index] = isNil;
+            return false;
+        }
+
+        @Override
+        public boolean compositeEnd(boolean isNil) {
+            TokenBatch current = batch();
+            int index = current.add(COMPOSITE_END, lexerLocation);
+            current.flags[index] = isNil;
+            return false;
+        }
+
+        @Override
+        public boolean elementData(char[] text, int start, int length) {
+            TokenBatch current = batch();
+            current.addText(current.add(ELEMENT_DATA, lexerLocation), text, start, length);
+            return false;
+        }
+
+        @Override
+        public boolean binaryData(InputStream binary) {
+            return false;
+        }
+
+        @Override
+        public void loopBegin(EDIReference typeReference) {
+            // Not signaled by the Lexer
+        }
+
+        @Override
+        public void loopEnd(EDIReference typeReference) {
+            // Not signaled by the Lexer
+        }
+
+        @Override
+        public void segmentError(CharSequence token, EDIReference typeReference, EDIStreamValidationError error) {
+            // Not signaled by the Lexer
+        }
+
+        @Override
+        public void elementError(EDIStreamEvent event,
+                                 EDIStreamValidationError error,
+                                 EDIReference typeReference,
+                                 CharSequence text,
+                                 int element,
+                                 int component,
+                                 int repetition) {
+            // Not signaled by the Lexer
+        }
+    }
+}
@@ -17,20 +17,29 @@ package io.xlate.edi.internal.stream.tokenization;
 
 import java.io.InputStream;
 import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 import io.xlate.edi.internal.stream.CharArraySequence;
+import io.xlate.edi.internal.stream.StaEDISegmentView;
 import io.xlate.edi.internal.stream.StaEDIStreamLocation;
 import io.xlate.edi.internal.stream.validation.UsageError;
 import io.xlate.edi.internal.stream.validation.Validator;
+import io.xlate.edi.internal.stream.validation.ValidatorPool;
 import io.xlate.edi.schema.EDIReference;
 import io.xlate.edi.schema.EDIType;
 import io.xlate.edi.schema.Schema;
 import io.xlate.edi.stream.EDIStreamEvent;
 import io.xlate.edi.stream.EDIStreamValidationError;
 import io.xlate.edi.stream.Location;
+import io.xlate.edi.stream.ValidationLevel;
 
 public class ProxyEventHandler implements EventHandler {
 
@@ -41,23 +50,64 @@ public class ProxyEventHandler implements EventHandler {
 
     private Schema transactionSchema;
     private Validator transactionValidator;
+    /*
+     * Validators of the transaction schemas most recently used by this handler,
+     * most recent first, retained for reuse across transactions and inputs.
+     * Limited so that a handler used for many inputs does not retain every
+     * schema it has seen.
+     */
+    private final List<Validator> transactionValidators = new ArrayList<>(4);
+    private Schema transactionContainerSchema;
+    private final Map<Schema, Validator> controlValidators = new IdentityHashMap<>(2);
+    private final ValidatorPool validatorPool;
+    private final ValidationLevel validationLevel;
 
     private boolean transactionSchemaAllowed = false;
     private boolean transaction = false;
 
     private InputStream binary;
     private String segmentTag;
+
+    /*
+     * Tags of the segments for which segment events are generated, or null
+     * for all segments. The events of other segments are suppressed.
+     */
+    private Set<String> segmentFilter;
+    private boolean segmentSuppressed = false;
+
+    /*
+     * View receiving the data of each segment while whole segments are read,
+     * or null. While a segment is collected into the view, only its
+     * END_SEGMENT and error events are generated.
+     */
+    private StaEDISegmentView segmentView;
     private CharArraySequence elementHolder = new CharArraySequence();
 
-    private StreamEvent[] events = new StreamEvent[99];
+    static final int MAXIMUM_TRANSACTION_VALIDATORS = 8;
+    private static final int INITIAL_EVENT_CAPACITY = 99;
+
+    private StreamEvent[] events = new StreamEvent[INITIAL_EVENT_CAPACITY];
     private int eventCount = 0;
     private int eventIndex = 0;
     private Dialect dialect;
 
     public ProxyEventHandler(StaEDIStreamLocation location, Schema controlSchema) {
+        this(location, controlSchema, null);
+    }
+
+    public ProxyEventHandler(StaEDIStreamLocation location, Schema controlSchema, ValidatorPool validatorPool) {
+        this(location, controlSchema, validatorPool, ValidationLevel.FULL);
+    }
+
+    public ProxyEventHandler(StaEDIStreamLocation location,
+                             Schema controlSchema,
+                             ValidatorPool validatorPool,
+                             ValidationLevel validationLevel) {
         this.location = location;
+        this.validatorPool = validatorPool;
+        this.validationLevel = validationLevel;
         setControlSchema(controlSchema, true);
-        for (int i = 0; i < 99; i++) {
+        for (int i = 0; i < events.length; i++) {
             events[i] = new StreamEvent();
         }
     }
@@ -68,7 +118,68 @@ public class ProxyEventHandler implements EventHandler {
         }
 
         this.controlSchema = controlSchema;
-        controlValidator = controlSchema != null ? new Validator(controlSchema, validateCodeValues, null) : null;
+
+        if (controlSchema != null && validationLevel != ValidationLevel.NONE) {
+            controlValidator = controlValidators.get(controlSchema);
+
+            if (controlValidator == null) {
+                controlValidator = newValidator(controlSchema, validateCodeValues, null);
+                controlValidators.put(controlSchema, controlValidator);
+            } else {
+                controlValidator.reset();
+            }
+        }
+    }
+
+    /**
+     * Reset the handler for a new input. Validators created for earlier input
+     * (for a limited number of the most recently used transaction schemas) are
+     * retained and reused when the same schemas are used again.
+     *
+     * @param controlSchema
+     *            the control schema given when the reader was created, or
+     *            null
+     */
+    public void reset(Schema controlSchema) {
+        resetEvents();
+        this.controlValidator = null;
+        this.transactionSchema = null;
+        this.transactionValidator = null;
+        this.transactionSchemaAllowed = false;
+        this.transaction = false;
+        this.binary = null;
+        this.segmentTag = null;
+        this.segmentSuppressed = false;
+        this.segmentView = null;
+        this.dialect = null;
+        setControlSchema(controlSchema, true);
+    }
+
+    /**
+     * Limit the segments for which segment events (the segment's start and end,
+     * its composites and elements, and their errors) are generated. The
+     * segments are still validated and loop events are generated for all
+     * segments.
+     *
+     * @param segmentTags
+     *            the tags of the segments for which events are generated, or
+     *            null for all segments
+     */
+    public void setSegmentFilter(Set<String> segmentTags) {
+        this.segmentFilter = segmentTags;
+    }
+
+    /**
+     * Collect the data of the segments read into the given view rather than
+     * generating the segments' element-level events. The data of a segment is
+     * only collected when its start is read while the view is set.
+     *
+     * @param segmentView
+     *            the view to receive the segments' data, or null to generate
+     *            events for all segments
+     */
+    public void setSegmentView(StaEDISegmentView segmentView) {
+        this.segmentView = segmentView;
     }
 
     public boolean isTransactionSchemaAllowed() {
@@ -82,8 +193,89 @@ public class ProxyEventHandler implements EventHandler {
     public void setTransactionSchema(Schema transactionSchema) {
         if (!Objects.equals(this.transactionSchema, transactionSchema)) {
             this.transactionSchema = transactionSchema;
-            transactionValidator = transactionSchema != null ? new Validator(transactionSchema, true, controlSchema) : null;
+            transactionValidator = transactionSchema != null && validationLevel != ValidationLevel.NONE
+                    ? getTransactionValidator(transactionSchema)
+                    : null;
+        }
+    }
+
+    /**
+     * Stop validating the current transaction, the remaining segments of which
+     * are being skipped.
+     */
+    public void skipTransaction() {
+        this.transactionSchema = null;
+        this.transactionValidator = null;
+    }
+
+    /**
+     * Get the validator for the transaction schema, reusing the validator
+     * previously created for the same schema (if any) by this handler. A
+     * reused validator is reset, since it may have last been used for an
+     * earlier transaction. The validator of the least recently used schema is
+     * released once more than {@link #MAXIMUM_TRANSACTION_VALIDATORS} are
+     * retained.
+     */
+    Validator getTransactionValidator(Schema transactionSchema) {
+        if (transactionContainerSchema != controlSchema) {
+            // Retained validators refer to the previous control schema
+            releaseValidators(transactionValidators);
+            transactionContainerSchema = controlSchema;
+        }
+
+        for (int i = 0, m = transactionValidators.size(); i < m; i++) {
+            Validator validator = transactionValidators.get(i);
+
+            if (validator.getSchema() == transactionSchema) {
+                if (i > 0) {
+                    transactionValidators.remove(i);
+                    transactionValidators.add(0, validator);
+                }
+                validator.reset();
+                return validator;
+            }
+        }
+
+        Validator validator = newValidator(transactionSchema, true, controlSchema);
+        transactionValidators.add(0, validator);
+
+        if (transactionValidators.size() > MAXIMUM_TRANSACTION_VALIDATORS) {
+            Validator eldest = transactionValidators.remove(transactionValidators.size() - 1);
+
+            if (validatorPool != null) {
+                validatorPool.release(eldest);
+            }
+        }
+
+        return validator;
+    }
+
+    Validator newValidator(Schema schema, boolean validateCodeValues, Schema containerSchema) {
+        final boolean validateElements = validationLevel == ValidationLevel.FULL;
+
+        if (validatorPool != null) {
+            return validatorPool.acquire(schema, validateCodeValues, validateElements, containerSchema);
         }
+        return new Validator(schema, validateCodeValues, validateElements, containerSchema);
+    }
+
+    /**
+     * Return the validators created by this handler to the pool (if any) from
+     * which they were acquired. The handler must not be used afterward.
+     */
+    public void releaseValidators() {
+        releaseValidators(controlValidators.values());
+        releaseValidators(transactionValidators);
+        controlValidator = null;
+        transactionValidator = null;
+    }
+
+    void releaseValidators(Collection<Validator> validators) {
+        if (validatorPool != null) {
+            validators.forEach(validatorPool::release);
+        }
+
+        validators.clear();
     }
 
     public void resetEvents() {
@@ -200,6 +392,8 @@ public class ProxyEventHandler implements EventHandler {
     @Override
     public boolean segmentBegin(String segmentTag) {
         this.segmentTag = segmentTag;
+        // Errors signaled for the segment's position are never suppressed
+        this.segmentSuppressed = false;
 
         /*
          * If this is the start of a transaction, loopStart will be called from the validator and
@@ -230,8 +424,41 @@ public class ProxyEventHandler implements EventHandler {
             typeReference = validator().getSegmentReferenceCode();
         }
 
+        segmentSuppressed = isSuppressed(segmentTag);
+
+        if (segmentView != null) {
+            if (segmentSuppressed) {
+                segmentView.clear();
+            } else {
+                segmentView.begin(segmentTag, location, typeReference);
+            }
+        }
+
         enqueueEvent(EDIStreamEvent.START_SEGMENT, EDIStreamValidationError.NONE, segmentTag, typeReference, location);
-        return eventsReady;
+        return ready(eventsReady);
+    }
+
+    /**
+     * Determine whether the events of a segment are to be suppressed. The
+     * events of a transaction header are always generated (the transaction
+     * schema may be set while it is current), as are those of segments read
+     * while an implementation is being selected using the event data.
+     */
+    boolean isSuppressed(String segmentTag) {
+        if (segmentFilter == null || segmentFilter.contains(segmentTag) || transactionSchemaAllowed) {
+            return false;
+        }
+
+        Validator validator = validator();
+        return validator == null || !validator.isPendingDiscrimination();
+    }
+
+    /**
+     * Events are only ready for the reader when at least one was not
+     * suppressed.
+     */
+    boolean ready(boolean eventsReady) {
+        return eventsReady && eventCount > 0;
     }
 
     boolean exitTransaction(CharSequence tag) {
@@ -246,9 +473,13 @@ public class ProxyEventHandler implements EventHandler {
             validator().validateVersionConstraints(dialect, this);
         }
 
+        if (isSegmentCollected()) {
+            segmentView.end();
+        }
+
         location.clearSegmentLocations();
         enqueueEvent(EDIStreamEvent.END_SEGMENT, EDIStreamValidationError.NONE, segmentTag, null, location);
-        return true;
+        return ready(true);
     }
 
     @Override
@@ -273,7 +504,7 @@ public class ProxyEventHandler implements EventHandler {
         }
 
         enqueueEvent(EDIStreamEvent.START_COMPOSITE, EDIStreamValidationError.NONE, "", typeReference, location);
-        return eventsReady;
+        return ready(eventsReady);
     }
 
     @Override
@@ -287,7 +518,7 @@ public class ProxyEventHandler implements EventHandler {
 
         location.clearComponentPosition();
         enqueueEvent(EDIStreamEvent.END_COMPOSITE, EDIStreamValidationError.NONE, "", null, location);
-        return eventsReady;
+        return ready(eventsReady);
     }
 
     @Override
@@ -303,12 +534,21 @@ public class ProxyEventHandler implements EventHandler {
         if (validator != null) {
             derivedComposite = validateElement(validator);
             typeReference = validator.getElementReference();
+
+            if (segmentSuppressed && validator.isBinaryElementLength()) {
+                // The reader must receive the length to read the binary element
+                segmentSuppressed = false;
+            }
         } else {
             derivedComposite = false;
             typeReference = null;
         }
 
         if (text != null && (!derivedComposite || length > 0) /* Not an inferred element */) {
+            if (isSegmentCollected()) {
+                segmentView.add(text, start, length, location);
+            }
+
             enqueueEvent(EDIStreamEvent.ELEMENT_DATA,
                          EDIStreamValidationError.NONE,
                          elementHolder,
@@ -325,7 +565,7 @@ public class ProxyEventHandler implements EventHandler {
             location.clearComponentPosition();
         }
 
-        return eventsReady;
+        return ready(eventsReady);
     }
 
     boolean validateElement(Validator validator) {
@@ -386,9 +626,13 @@ public class ProxyEventHandler implements EventHandler {
 
     @Override
     public boolean binaryData(InputStream binaryStream) {
+        if (isSegmentCollected()) {
+            segmentView.add(null, 0, 0, location);
+        }
+
         enqueueEvent(EDIStreamEvent.ELEMENT_DATA_BINARY, EDIStreamValidationError.NONE, "", null, location);
         setBinary(binaryStream);
-        return true;
+        return ready(true);
     }
 
     @Override
@@ -424,7 +668,20 @@ public class ProxyEventHandler implements EventHandler {
                               EDIReference typeReference,
                               Location location) {
 
+        if (segmentSuppressed && isSegmentEvent(event)) {
+            return;
+        }
+
+        if (isSegmentDataEvent(event) && isSegmentCollected() && !isSegmentDataRequired()) {
+            return;
+        }
+
         final int index = eventCount;
+
+        if (index == events.length) {
+            growEvents();
+        }
+
         StreamEvent target = events[index];
         EDIStreamEvent associatedEvent = (index > 0) ? getAssociatedEvent(error) : null;
 
@@ -457,6 +714,23 @@ public class ProxyEventHandler implements EventHandler {
         eventCount++;
     }
 
+    /**
+     * Double the capacity of the event array. The events are consumed and the
+     * array is reset for each pass of the lexer, so slots are always filled
+     * from the start of the array and existing {@link StreamEvent}s (including
+     * those for the new slots) are reused for the life of the handler.
+     */
+    private void growEvents() {
+        final int capacity = events.length;
+        StreamEvent[] expanded = Arrays.copyOf(events, capacity * 2);
+
+        for (int i = capacity; i < expanded.length; i++) {
+            expanded[i] = new StreamEvent();
+        }
+
+        events = expanded;
+    }
+
     private boolean eventExists(EDIStreamEvent associatedEvent, int index) {
         int offset = index;
 
@@ -470,6 +744,49 @@ public class ProxyEventHandler implements EventHandler {
         return false;
     }
 
+    private static boolean isSegmentEvent(EDIStreamEvent event) {
+        switch (event) {
+        case START_SEGMENT:
+        case END_SEGMENT:
+        case START_COMPOSITE:
+        case END_COMPOSITE:
+        case ELEMENT_DATA:
+        case ELEMENT_DATA_BINARY:
+        case ELEMENT_DATA_ERROR:
+        case ELEMENT_OCCURRENCE_ERROR:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    boolean isSegmentCollected() {
+        return segmentView != null && segmentView.isInProgress();
+    }
+
+    /**
+     * The data events of a collected segment are still required while an
+     * implementation is selected using the event data, and the reader must
+     * receive the length of a binary element to read the binary element.
+     */
+    boolean isSegmentDataRequired() {
+        Validator validator = validator();
+        return validator != null && (validator.isPendingDiscrimination() || validator.isBinaryElementLength());
+    }
+
+    private static boolean isSegmentDataEvent(EDIStreamEvent event) {
+        switch (event) {
+        case START_SEGMENT:
+        case START_COMPOSITE:
+        case END_COMPOSITE:
+        case ELEMENT_DATA:
+        case ELEMENT_DATA_BINARY:
+            return true;
+        default:
+            return false;
+        }
+    }
+
     private static EDIStreamEvent getAssociatedEvent(EDIStreamValidationError error) {
         final EDIStreamEvent event;
 
@@ -24,6 +24,8 @@ public class X12Dialect extends Dialect {
     private static final String ISX = "ISX";
     private static final String GS = "GS";
     private static final String ST = "ST";
+    private static final String SE = "SE";
+    private static final String IEA = "IEA";
 
     private static final int RELEASE_ISX_SEGMENT = 704; // 007040 (Version 7, release 4)
     private static final int RELEASE_ELEMENT_I65 = 402; // 004020 (Version 4, release 2)
@@ -53,6 +55,8 @@ public class X12Dialect extends Dialect {
 
     private String[] transactionVersion = new String[2];
     private String transactionVersionString;
+    private String transactionType;
+    private String implementationReference;
     private String agencyCode;
     private String groupVersion;
 
@@ -176,6 +180,7 @@ public class X12Dialect extends Dialect {
     }
 
     void clearTransactionVersion() {
+        implementationReference = null;
         agencyCode = "";
         groupVersion = "";
         transactionVersion[TX_AGENCY] = agencyCode;
@@ -211,14 +216,22 @@ public class X12Dialect extends Dialect {
             default:
                 break;
             }
-        } else if (ST.equals(location.getSegmentTag()) && location.getElementPosition() == 3 && data.length() > 0) {
-            transactionVersion[TX_VERSION] = data.toString();
-            updateTransactionVersionString(transactionVersion);
+        } else if (ST.equals(location.getSegmentTag())) {
+            if (location.getElementPosition() == 1) {
+                transactionType = data.toString();
+                implementationReference = null;
+            } else if (location.getElementPosition() == 3 && data.length() > 0) {
+                implementationReference = data.toString();
+                transactionVersion[TX_VERSION] = implementationReference;
+                updateTransactionVersionString(transactionVersion);
+            }
         }
     }
 
     @Override
     public void transactionEnd() {
+        transactionType = null;
+        implementationReference = null;
         transactionVersion[TX_VERSION] = groupVersion;
         updateTransactionVersionString(transactionVersion);
     }
@@ -237,4 +250,29 @@ public class X12Dialect extends Dialect {
     public String getTransactionVersionString() {
         return transactionVersionString;
     }
+
+    @Override
+    public String[] getTransactionStandardVersion() {
+        return groupVersion.isEmpty() ? null : new String[] { agencyCode, groupVersion };
+    }
+
+    @Override
+    public String getTransactionImplementationReference() {
+        return implementationReference;
+    }
+
+    @Override
+    public String getTransactionType() {
+        return transactionType;
+    }
+
+    @Override
+    public String getTransactionTrailer() {
+        return SE;
+    }
+
+    @Override
+    public String getInterchangeTrailer() {
+        return IEA;
+    }
 }
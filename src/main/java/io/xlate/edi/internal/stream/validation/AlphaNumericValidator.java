@@ -38,18 +38,43 @@ class AlphaNumericValidator extends ElementValidator {
         return singleton;
     }
 
+    /**
+     * Validate the value against the element's value set without a compiled
+     * index. Readers and writers reach this validator through the usage tree,
+     * where the compiled value set of each element is cached, and use
+     * {@link #validate(Dialect, EDISimpleType, StringIndex, CharSequence, List)}
+     * instead.
+     */
     @Override
     void validate(Dialect dialect,
                   EDISimpleType element,
                   CharSequence value,
                   List<EDIStreamValidationError> errors) {
 
+        Set<String> valueSet = element.getValueSet(dialect.getTransactionVersionString());
+        validate(dialect, element, valueSet.isEmpty() || valueSet.contains(value.toString()), value, errors);
+    }
+
+    @Override
+    void validate(Dialect dialect,
+                  EDISimpleType element,
+                  StringIndex valueSet,
+                  CharSequence value,
+                  List<EDIStreamValidationError> errors) {
+
+        validate(dialect, element, valueSet.isEmpty() || valueSet.contains(value), value, errors);
+    }
+
+    private static void validate(Dialect dialect,
+                                 EDISimpleType element,
+                                 boolean inValueSet,
+                                 CharSequence value,
+                                 List<EDIStreamValidationError> errors) {
+
         int length = value.length();
         validateLength(dialect, element, length, errors);
 
-        Set<String> valueSet = element.getValueSet(dialect.getTransactionVersionString());
-
-        if (!valueSet.isEmpty() && !valueSet.contains(value.toString())) {
+        if (!inValueSet) {
             errors.add(EDIStreamValidationError.INVALID_CODE_VALUE);
         } else {
             for (int i = 0; i < length; i++) {
@@ -94,6 +94,32 @@ abstract class ElementValidator {
                            CharSequence value,
                            List<EDIStreamValidationError> errors);
 
+    /**
+     * Validate the value, using a compiled form of the element's value set
+     * (for the dialect's transaction version) when checking enumerated
+     * values. Validators that do not check enumerated values ignore the value
+     * set.
+     *
+     * @param dialect
+     *            dialect of the input
+     * @param element
+     *            element type being validated
+     * @param valueSet
+     *            compiled set of allowed values, empty when any value is
+     *            allowed
+     * @param value
+     *            value to validate
+     * @param errors
+     *            list to which validation errors are added
+     */
+    void validate(Dialect dialect,
+                  EDISimpleType element,
+                  StringIndex valueSet,
+                  CharSequence value,
+                  List<EDIStreamValidationError> errors) {
+        validate(dialect, element, value, errors);
+    }
+
     abstract void format(Dialect dialect,
                          EDISimpleType element,
                          CharSequence value,
@@ -30,15 +30,15 @@ class PairedSyntaxValidator implements SyntaxValidator {
     }
 
     @Override
-    public void validate(EDISyntaxRule syntax, UsageNode structure, ValidationEventHandler handler) {
-        SyntaxStatus status = scanSyntax(syntax, structure.getChildren());
+    public void validate(EDISyntaxRule syntax, UsageNode structure, int[] usage, ValidationEventHandler handler) {
+        SyntaxStatus status = scanSyntax(syntax, structure.getChildren(), usage);
 
         if (status.elementCount == 0) {
             return;
         }
 
         if (status.elementCount < syntax.getPositions().size()) {
-            signalConditionError(syntax, structure, handler);
+            signalConditionError(syntax, structure, usage, handler);
         }
     }
 }
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.validation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable set of distinct strings that may be probed using any
+ * {@link CharSequence} without creating a {@link String} for the probe. Each
+ * string is assigned an index (in iteration order of the source collection)
+ * that callers may use to associate additional data with the key.
+ *
+ * The hash of a probe is computed using the same function as
+ * {@link String#hashCode()}, so the hash of the keys is simply retrieved
+ * from the (cached) value of the key.
+ */
+final class StringIndex {
+
+    static final StringIndex EMPTY = new StringIndex(Collections.emptyList());
+
+    private final String[] keys;
+    private final int[] table;
+    private final int mask;
+
+    StringIndex(Collection<String> values) {
+        Set<String> distinct = new LinkedHashSet<>(values);
+        this.keys = distinct.toArray(new String[distinct.size()]);
+
+        int capacity = Integer.highestOneBit(Math.max(keys.length, 1) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < keys.length; i++) {
+            int slot = keys[i].hashCode() & mask;
+
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            // Store the index offset by one, zero marks an empty slot
+            table[slot] = i + 1;
+        }
+    }
+
+    static int hash(CharSequence value) {
+        int h = 0;
+
+        for (int i = 0, m = value.length(); i < m; i++) {
+            h = 31 * h + value.charAt(i);
+        }
+
+        return h;
+    }
+
+    static boolean contentEquals(String key, CharSequence value, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    String get(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Find the index of the key equal to the value.
+     *
+     * @param value sequence of characters to find
+     * @return the index of the matching key, or -1 when not present
+     */
+    int indexOf(CharSequence value) {
+        if (value == null || keys.length == 0) {
+            return -1;
+        }
+
+        final int length = value.length();
+        int slot = hash(value) & mask;
+        int entry;
+
+        while ((entry = table[slot]) != 0) {
+            if (contentEquals(keys[entry - 1], value, length)) {
+                return entry - 1;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    boolean contains(CharSequence value) {
+        return indexOf(value) > -1;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(keys);
+    }
+}
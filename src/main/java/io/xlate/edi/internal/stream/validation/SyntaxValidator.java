@@ -65,7 +65,7 @@ interface SyntaxValidator {
         protected boolean anchorPresent = false;
     }
 
-    default SyntaxStatus scanSyntax(EDISyntaxRule syntax, List<UsageNode> children) {
+    default SyntaxStatus scanSyntax(EDISyntaxRule syntax, List<UsageNode> children, int[] usage) {
         final SyntaxStatus status = new SyntaxStatus();
         final AtomicBoolean anchorPosition = new AtomicBoolean(true);
 
@@ -74,7 +74,7 @@ interface SyntaxValidator {
               .filter(position -> position < children.size() + 1)
               .map(position -> children.get(position - 1))
               .forEach(node -> {
-                  if (node.isUsed()) {
+                  if (node.isUsed(usage)) {
                       status.elementCount++;
 
                       if (anchorPosition.get()) {
@@ -88,7 +88,7 @@ interface SyntaxValidator {
         return status;
     }
 
-    default void signalConditionError(EDISyntaxRule syntax, UsageNode structure, ValidationEventHandler handler) {
+    default void signalConditionError(EDISyntaxRule syntax, UsageNode structure, int[] usage, ValidationEventHandler handler) {
         final List<UsageNode> children = structure.getChildren();
         final int limit = children.size() + 1;
 
@@ -98,7 +98,7 @@ interface SyntaxValidator {
 
             if (position < limit) {
                 UsageNode node = children.get(position - 1);
-                used = node.isUsed();
+                used = node.isUsed(usage);
                 typeReference = node.getLink();
             } else {
                 used = false;
@@ -115,14 +115,14 @@ interface SyntaxValidator {
         }
     }
 
-    default void signalExclusionError(EDISyntaxRule syntax, UsageNode structure, ValidationEventHandler handler) {
+    default void signalExclusionError(EDISyntaxRule syntax, UsageNode structure, int[] usage, ValidationEventHandler handler) {
         final List<UsageNode> children = structure.getChildren();
         final int limit = children.size() + 1;
         int tally = 0;
 
         for (int position : syntax.getPositions()) {
             if (position < limit
-                    && children.get(position - 1).isUsed()
+                    && children.get(position - 1).isUsed(usage)
                     && ++tally > 1) {
 
                 EDIReference typeReference = children.get(position - 1).getLink();
@@ -172,5 +172,5 @@ interface SyntaxValidator {
         return position;
     }
 
-    void validate(EDISyntaxRule syntax, UsageNode structure, ValidationEventHandler handler);
+    void validate(EDISyntaxRule syntax, UsageNode structure, int[] usage, ValidationEventHandler handler);
 }
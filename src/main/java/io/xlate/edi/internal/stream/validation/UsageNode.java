@@ -16,9 +16,12 @@
 package io.xlate.edi.internal.stream.validation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import io.xlate.edi.internal.stream.tokenization.Dialect;
@@ -27,23 +30,73 @@ import io.xlate.edi.schema.EDIReference;
 import io.xlate.edi.schema.EDISimpleType;
 import io.xlate.edi.schema.EDISyntaxRule;
 import io.xlate.edi.schema.EDIType;
+import io.xlate.edi.schema.implementation.Discriminator;
 import io.xlate.edi.schema.implementation.EDITypeImplementation;
+import io.xlate.edi.schema.implementation.PolymorphicImplementation;
 import io.xlate.edi.stream.EDIStreamValidationError;
 
 class UsageNode {
 
-    private static final String TOSTRING_FORMAT = "usageCount: %d, depth: %d, link: { %s }";
+    private static final String TOSTRING_FORMAT = "ordinal: %d, depth: %d, link: { %s }";
+    static final int MAXIMUM_VERSIONED_CHILDREN = 32;
 
     private final UsageNode parent;
     private final int depth;
     private final EDIReference link;
+    private final String id;
+    private final EDIType.Type nodeType;
     private final int siblingIndex;
 
+    /*
+     * Position of this node in a pre-order traversal of the tree. The usage
+     * count of the node is held by each validator in a counter array at this
+     * index and the counters of all descendants occupy the range up to (but
+     * excluding) subtreeEnd.
+     */
+    private final int ordinal;
+    private int subtreeEnd;
+
     private final ElementValidator validator;
     private final List<UsageNode> children = new ArrayList<>();
-    private int usageCount;
 
-    UsageNode(UsageNode parent, int depth, EDIReference link, int siblingIndex) {
+    /*
+     * Compiled value sets of a simple type (shared by the nodes of the type)
+     * and the compiled values of an implementation's discriminator.
+     */
+    private final ValueSets valueSets;
+    private final StringIndex discriminatorValues;
+
+    /*
+     * Index of the distinct IDs of the children with the position of the first
+     * child having each ID (in the same order as the index's keys). Set once
+     * the children of the node have been built.
+     */
+    private StringIndex childIds;
+    private int[] childIdPositions;
+
+    /*
+     * Index of the segment tags that begin each child (the child's own ID for
+     * a segment, the ID of its first segment for a loop) with the ascending
+     * positions of the children beginning with each tag.
+     */
+    private StringIndex childSegmentTags;
+    private int[][] childSegmentTagPositions;
+
+    /*
+     * Children filtered for each version. When none of the children have
+     * version-specific occurrences, the same list applies to all versions.
+     * Otherwise, the lists of a limited number of version strings (taken from
+     * the input) are retained.
+     */
+    private List<UsageNode> unversionedChildren;
+    private Map<String, List<UsageNode>> versionedChildren;
+
+    UsageNode(UsageNode parent,
+              int depth,
+              EDIReference link,
+              int siblingIndex,
+              int ordinal,
+              Map<EDISimpleType, ValueSets> typeValueSets) {
         if (link == null) {
             throw new NullPointerException();
         }
@@ -51,21 +104,43 @@ class UsageNode {
         this.parent = parent;
         this.depth = depth;
         this.link = link;
+        this.ordinal = ordinal;
+        this.subtreeEnd = ordinal + 1;
 
         EDIType referencedType = link.getReferencedType();
 
+        if (link instanceof EDITypeImplementation) {
+            this.id = ((EDITypeImplementation) link).getId();
+        } else {
+            this.id = referencedType.getId();
+        }
+
+        this.nodeType = referencedType.getType();
+
         if (referencedType instanceof EDISimpleType) {
             final EDISimpleType simple = (EDISimpleType) referencedType;
             this.validator = ElementValidator.getInstance(simple.getBase());
+            this.valueSets = typeValueSets.computeIfAbsent(getSimpleType(), ValueSets::new);
         } else {
             this.validator = null;
+            this.valueSets = null;
+        }
+
+        final Discriminator discriminator;
+
+        if (link instanceof PolymorphicImplementation) {
+            discriminator = ((PolymorphicImplementation) link).getDiscriminator();
+        } else {
+            discriminator = null;
         }
 
+        this.discriminatorValues = discriminator != null ? new StringIndex(discriminator.getValueSet()) : StringIndex.EMPTY;
+
         this.siblingIndex = siblingIndex;
     }
 
-    public static boolean hasMinimumUsage(String version, UsageNode node) {
-        return node == null || node.hasMinimumUsage(version);
+    public static boolean hasMinimumUsage(int[] usage, String version, UsageNode node) {
+        return node == null || node.hasMinimumUsage(usage, version);
     }
 
     public static UsageNode getParent(UsageNode node) {
@@ -76,17 +151,17 @@ class UsageNode {
         return node != null ? node.getFirstChild() : null;
     }
 
-    public static void resetChildren(UsageNode... nodes) {
+    public static void resetChildren(int[] usage, UsageNode... nodes) {
         for (UsageNode node : nodes) {
             if (node != null) {
-                node.resetChildren();
+                node.resetChildren(usage);
             }
         }
     }
 
     @Override
     public String toString() {
-        return String.format(TOSTRING_FORMAT, usageCount, depth, link);
+        return String.format(TOSTRING_FORMAT, ordinal, depth, link);
     }
 
     UsageNode getParent() {
@@ -114,7 +189,33 @@ class UsageNode {
     }
 
     List<UsageNode> getChildren(String version) {
-        return children.stream().filter(c -> c == null || c.link.getMaxOccurs(version) > 0).collect(Collectors.toList());
+        if (unversionedChildren != null) {
+            return unversionedChildren;
+        }
+
+        if (versionedChildren == null) {
+            // Node is not yet indexed
+            return filterChildren(version);
+        }
+
+        List<UsageNode> result = versionedChildren.get(version);
+
+        if (result == null) {
+            result = filterChildren(version);
+
+            if (versionedChildren.size() < MAXIMUM_VERSIONED_CHILDREN) {
+                List<UsageNode> previous = versionedChildren.putIfAbsent(version, result);
+                result = previous != null ? previous : result;
+            }
+        }
+
+        return result;
+    }
+
+    private List<UsageNode> filterChildren(String version) {
+        return Collections.unmodifiableList(children.stream()
+                                                    .filter(c -> c == null || c.link.getMaxOccurs(version) > 0)
+                                                    .collect(Collectors.toList()));
     }
 
     UsageNode getChild(String version, int index) {
@@ -127,11 +228,11 @@ class UsageNode {
     }
 
     String getId() {
-        if (link instanceof EDITypeImplementation) {
-            return ((EDITypeImplementation) link).getId();
-        }
+        return id;
+    }
 
-        return link.getReferencedType().getId();
+    boolean isId(CharSequence value) {
+        return StringIndex.contentEquals(id, value, value.length());
     }
 
     EDISimpleType getSimpleType() {
@@ -147,12 +248,23 @@ class UsageNode {
         }
 
         final EDISimpleType element = getSimpleType();
+        final StringIndex valueSet;
 
         if (validateCodeValues) {
-            validator.validate(dialect, element, value, errors);
+            valueSet = getValueSet(dialect.getTransactionVersionString());
         } else {
-            validator.validate(dialect, UnenumeratedElement.from(element), value, errors);
+            valueSet = StringIndex.EMPTY;
         }
+
+        validator.validate(dialect, element, valueSet, value, errors);
+    }
+
+    StringIndex getValueSet(String version) {
+        return valueSets.get(version);
+    }
+
+    StringIndex getDiscriminatorValues() {
+        return discriminatorValues;
     }
 
     List<EDISyntaxRule> getSyntaxRules() {
@@ -169,33 +281,45 @@ class UsageNode {
         return siblingIndex;
     }
 
-    void incrementUsage() {
-        usageCount++;
+    int getOrdinal() {
+        return ordinal;
+    }
+
+    int getSubtreeEnd() {
+        return subtreeEnd;
     }
 
-    boolean isUsed() {
-        return usageCount > 0;
+    void setSubtreeEnd(int subtreeEnd) {
+        this.subtreeEnd = subtreeEnd;
+    }
+
+    void incrementUsage(int[] usage) {
+        usage[ordinal]++;
+    }
+
+    boolean isUsed(int[] usage) {
+        return usage[ordinal] > 0;
     }
 
     boolean isFirstChild() {
         return this == getFirstSibling();
     }
 
-    boolean hasMinimumUsage(String version) {
-        return usageCount >= link.getMinOccurs(version);
+    boolean hasMinimumUsage(int[] usage, String version) {
+        return usage[ordinal] >= link.getMinOccurs(version);
     }
 
     boolean hasVersions() {
         return getSimpleType().hasVersions();
     }
 
-    boolean exceedsMaximumUsage(String version) {
-        return usageCount > link.getMaxOccurs(version);
+    boolean exceedsMaximumUsage(int[] usage, String version) {
+        return usage[ordinal] > link.getMaxOccurs(version);
     }
 
     boolean isNodeType(EDIType.Type... types) {
         for (EDIType.Type type : types) {
-            if (link.getReferencedType().isType(type)) {
+            if (nodeType == type) {
                 return true;
             }
         }
@@ -203,20 +327,15 @@ class UsageNode {
     }
 
     EDIType.Type getNodeType() {
-        return link.getReferencedType().getType();
+        return nodeType;
     }
 
-    void reset() {
-        usageCount = 0;
-        resetChildren();
+    void reset(int[] usage) {
+        Arrays.fill(usage, ordinal, subtreeEnd, 0);
     }
 
-    void resetChildren() {
-        for (UsageNode node : children) {
-            if (node != null) {
-                node.reset();
-            }
-        }
+    void resetChildren(int[] usage) {
+        Arrays.fill(usage, ordinal + 1, subtreeEnd, 0);
     }
 
     private UsageNode getSibling(int index) {
@@ -237,82 +356,109 @@ class UsageNode {
         return (!children.isEmpty()) ? children.get(0) : null;
     }
 
-    UsageNode getChildById(CharSequence id) {
-        return children.stream()
-                       .filter(c -> c != null && c.getId().contentEquals(id))
-                       .findFirst()
-                       .orElse(null);
-    }
+    /**
+     * Build the index of child IDs. Must be called once all children have
+     * been added to the node.
+     */
+    void indexChildren() {
+        Map<String, Integer> firstPositions = new LinkedHashMap<>();
+        Map<String, List<Integer>> tagPositions = new LinkedHashMap<>();
 
-    UsageNode getSiblingById(CharSequence id) {
-        return parent != null ? parent.getChildById(id) : null;
-    }
+        for (int i = 0, m = children.size(); i < m; i++) {
+            UsageNode child = children.get(i);
 
-    private static class UnenumeratedElement implements EDISimpleType {
-        final EDISimpleType target;
+            if (child != null) {
+                firstPositions.putIfAbsent(child.getId(), i);
 
-        static EDISimpleType from(EDISimpleType target) {
-            return new UnenumeratedElement(target);
-        }
+                String tag = child.getSegmentTag();
 
-        private UnenumeratedElement(EDISimpleType target) {
-            this.target = target;
+                if (tag != null) {
+                    tagPositions.computeIfAbsent(tag, k -> new ArrayList<>(1)).add(i);
+                }
+            }
         }
 
-        @Override
-        public String getId() {
-            return target.getId();
-        }
+        childIds = new StringIndex(firstPositions.keySet());
+        childIdPositions = firstPositions.values().stream().mapToInt(Integer::intValue).toArray();
 
-        @Override
-        public Base getBase() {
-            return target.getBase();
-        }
+        childSegmentTags = new StringIndex(tagPositions.keySet());
+        childSegmentTagPositions = tagPositions.values()
+                                               .stream()
+                                               .map(positions -> positions.stream().mapToInt(Integer::intValue).toArray())
+                                               .toArray(int[][]::new);
 
-        @Override
-        public String getCode() {
-            return target.getCode();
+        if (children.stream().anyMatch(c -> c != null && c.link.hasVersions())) {
+            versionedChildren = new ConcurrentHashMap<>(4);
+        } else {
+            unversionedChildren = filterChildren("");
         }
+    }
 
-        @Override
-        public Type getType() {
-            return Type.ELEMENT;
+    UsageNode getChildById(CharSequence id) {
+        if (childIds == null) {
+            return null;
         }
 
-        /**
-         * @see io.xlate.edi.schema.EDISimpleType#getNumber()
-         * @deprecated
-         */
-        @SuppressWarnings({ "java:S1123", "java:S1133" })
-        @Override
-        @Deprecated
-        public int getNumber() {
-            return target.getNumber();
-        }
+        int index = childIds.indexOf(id);
+        return index > -1 ? children.get(childIdPositions[index]) : null;
+    }
 
-        @Override
-        public long getMinLength() {
-            return target.getMinLength();
-        }
+    UsageNode getSiblingById(CharSequence id) {
+        return parent != null ? parent.getChildById(id) : null;
+    }
 
-        @Override
-        public long getMinLength(String version) {
-            return target.getMinLength(version);
+    /**
+     * Get the ID of the segment that begins this node: the node's own ID for a
+     * segment and the ID of the first child for a loop. Other node types do not
+     * begin with a segment and result in null.
+     */
+    String getSegmentTag() {
+        switch (nodeType) {
+        case SEGMENT:
+            return id;
+        case GROUP:
+        case TRANSACTION:
+        case LOOP:
+            UsageNode first = getFirstChild();
+            return first != null ? first.getId() : null;
+        default:
+            return null;
         }
+    }
 
-        @Override
-        public long getMaxLength() {
-            return target.getMaxLength();
+    /**
+     * Find the first child at or after position <code>from</code> that begins
+     * with the segment tag.
+     *
+     * @return the child, or null when no child beginning with the tag follows
+     */
+    UsageNode getChildStartingWith(CharSequence tag, int from) {
+        if (childSegmentTags == null) {
+            return null;
         }
 
-        @Override
-        public long getMaxLength(String version) {
-            return target.getMaxLength(version);
+        int index = childSegmentTags.indexOf(tag);
+
+        if (index < 0) {
+            return null;
         }
 
-        @Override
-        public Set<String> getValueSet() {
-            return Collections.emptySet();
+        for (int position : childSegmentTagPositions[index]) {
+            if (position >= from) {
+                return children.get(position);
+            }
         }
+
+        return null;
+    }
+
+    /**
+     * Find the next sibling following this node that begins with the segment
+     * tag.
+     *
+     * @return the sibling, or null when no sibling beginning with the tag follows
+     */
+    UsageNode getNextSiblingStartingWith(CharSequence tag) {
+        return parent != null ? parent.getChildStartingWith(tag, siblingIndex + 1) : null;
     }
 }
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.validation;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import io.xlate.edi.internal.schema.StaEDISchema;
+import io.xlate.edi.schema.EDIComplexType;
+import io.xlate.edi.schema.EDIReference;
+import io.xlate.edi.schema.EDISimpleType;
+import io.xlate.edi.schema.EDIType;
+import io.xlate.edi.schema.Schema;
+import io.xlate.edi.schema.implementation.CompositeImplementation;
+import io.xlate.edi.schema.implementation.EDITypeImplementation;
+import io.xlate.edi.schema.implementation.LoopImplementation;
+import io.xlate.edi.schema.implementation.SegmentImplementation;
+
+/**
+ * Compiled structure of the standard and (optional) implementation trees of a
+ * {@link Schema}. The tree does not change once built and is shared by all
+ * validators of the same schema. Usage of the nodes is tracked separately by
+ * each {@link Validator} in an array of counters indexed by
+ * {@link UsageNode#getOrdinal()}.
+ */
+final class UsageTree {
+
+    static final Logger LOGGER = Logger.getLogger(UsageTree.class.getName());
+
+    private final UsageNode root;
+    private final UsageNode implRoot;
+    private final int size;
+
+    private int nextOrdinal = 0;
+
+    /*
+     * Compiled value sets of each simple type, shared by the nodes using the
+     * type.
+     */
+    private final Map<EDISimpleType, ValueSets> valueSets = new IdentityHashMap<>();
+
+    private UsageTree(Schema schema) {
+        LOGGER.finer(() -> "Creating usage tree");
+        root = buildTree(null, 0, referenceOf(schema.getStandard(), 1, 1), -1);
+        LOGGER.finer(() -> "Done creating usage tree");
+
+        if (schema.getImplementation() != null) {
+            implRoot = buildImplTree(null, 0, schema.getImplementation(), -1);
+        } else {
+            implRoot = null;
+        }
+
+        size = nextOrdinal;
+    }
+
+    /**
+     * Obtain the compiled tree for the schema. Trees for schemas loaded by
+     * this library are compiled once and retained by the schema, other
+     * implementations of {@link Schema} are compiled for each call.
+     *
+     * @param schema the schema to compile
+     * @return the compiled tree
+     */
+    static UsageTree of(Schema schema) {
+        if (schema instanceof StaEDISchema) {
+            return ((StaEDISchema) schema).getCompiledForm(UsageTree.class, UsageTree::new);
+        }
+
+        return new UsageTree(schema);
+    }
+
+    UsageNode getRoot() {
+        return root;
+    }
+
+    UsageNode getImplRoot() {
+        return implRoot;
+    }
+
+    /**
+     * Create a new set of usage counters, one for each node of the standard
+     * and implementation trees.
+     *
+     * @return new array of counters, initially zero
+     */
+    int[] newUsageCounters() {
+        return new int[size];
+    }
+
+    private static EDIReference referenceOf(EDIComplexType type, int minOccurs, int maxOccurs) {
+        return new EDIReference() {
+            @Override
+            public EDIType getReferencedType() {
+                return type;
+            }
+
+            @Override
+            public int getMinOccurs() {
+                return minOccurs;
+            }
+
+            @Override
+            public int getMaxOccurs() {
+                return maxOccurs;
+            }
+        };
+    }
+
+    private UsageNode buildTree(UsageNode parent, int parentDepth, EDIReference link, int index) {
+        int depth = parentDepth + 1;
+        EDIType referencedNode = link.getReferencedType();
+
+        UsageNode node = new UsageNode(parent, depth, link, index, nextOrdinal++, valueSets);
+
+        if (!(referencedNode instanceof EDIComplexType)) {
+            return node;
+        }
+
+        EDIComplexType structure = (EDIComplexType) referencedNode;
+
+        List<? extends EDIReference> children = structure.getReferences();
+        List<UsageNode> childUsages = node.getChildren();
+
+        int childIndex = -1;
+
+        for (EDIReference child : children) {
+            childUsages.add(buildTree(node, depth, child, ++childIndex));
+        }
+
+        node.setSubtreeEnd(nextOrdinal);
+        node.indexChildren();
+        return node;
+    }
+
+    private UsageNode buildImplTree(UsageNode parent, int parentDepth, EDITypeImplementation impl, int index) {
+        int depth = parentDepth + 1;
+        final UsageNode node = new UsageNode(parent, depth, impl, index, nextOrdinal++, valueSets);
+        final List<EDITypeImplementation> children;
+
+        switch (impl.getType()) {
+        case COMPOSITE:
+            children = CompositeImplementation.class.cast(impl).getSequence();
+            break;
+        case ELEMENT:
+            children = Collections.emptyList();
+            break;
+        case TRANSACTION:
+        case LOOP:
+            children = LoopImplementation.class.cast(impl).getSequence();
+            break;
+        case SEGMENT:
+            children = SegmentImplementation.class.cast(impl).getSequence();
+            break;
+        default:
+            throw new IllegalArgumentException("Illegal type of EDITypeImplementation: " + impl.getType());
+        }
+
+        List<UsageNode> childUsages = node.getChildren();
+
+        int childIndex = -1;
+
+        for (EDITypeImplementation child : children) {
+            ++childIndex;
+
+            UsageNode childNode = null;
+
+            if (child != null) {
+                childNode = buildImplTree(node, depth, child, childIndex);
+            }
+
+            childUsages.add(childNode);
+        }
+
+        node.setSubtreeEnd(nextOrdinal);
+        node.indexChildren();
+        return node;
+    }
+}
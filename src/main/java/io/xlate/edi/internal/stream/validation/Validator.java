@@ -36,6 +36,7 @@ import static io.xlate.edi.stream.EDIStreamValidationError.UNEXPECTED_SEGMENT;
 import java.nio.CharBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
@@ -77,10 +78,13 @@ public class Validator {
     private Schema containerSchema;
     private Schema schema;
     private final boolean validateCodeValues;
+    private final boolean validateElements;
     private boolean initial = true;
 
     private final UsageNode root;
     private final UsageNode implRoot;
+    // Usage counters for the nodes of both trees, indexed by node ordinal
+    private final int[] usage;
 
     private boolean segmentExpected;
     private UsageNode segment;
@@ -150,22 +154,27 @@ public class Validator {
     }
 
     public Validator(Schema schema, boolean validateCodeValues, Schema containerSchema) {
+        this(schema, validateCodeValues, true, containerSchema);
+    }
+
+    /**
+     * @param validateElements
+     *            when false, only the structure of segments and loops is
+     *            validated. Elements are located in the schema (for type
+     *            references and composites) but not validated.
+     */
+    public Validator(Schema schema, boolean validateCodeValues, boolean validateElements, Schema containerSchema) {
         this.schema = schema;
         this.validateCodeValues = validateCodeValues;
+        this.validateElements = validateElements;
         this.containerSchema = containerSchema;
 
-        LOGGER.finer(() -> "Creating usage tree");
-        root = buildTree(schema.getStandard());
-        LOGGER.finer(() -> "Done creating usage tree");
+        UsageTree tree = UsageTree.of(schema);
+        root = tree.getRoot();
+        implRoot = tree.getImplRoot();
+        usage = tree.newUsageCounters();
         correctSegment = segment = root.getFirstChild();
-
-        if (schema.getImplementation() != null) {
-            implRoot = buildImplTree(null, 0, schema.getImplementation(), -1);
-            implNode = implRoot.getFirstChild();
-        } else {
-            implRoot = null;
-            implNode = null;
-        }
+        implNode = UsageNode.getFirstChild(implRoot);
     }
 
     public void reset() {
@@ -173,13 +182,9 @@ public class Validator {
             return;
         }
 
-        root.reset();
+        Arrays.fill(usage, 0);
         correctSegment = segment = root.getFirstChild();
-
-        if (implRoot != null) {
-            implRoot.reset();
-            implNode = implRoot.getFirstChild();
-        }
+        implNode = UsageNode.getFirstChild(implRoot);
 
         cursor.reset(root, implRoot);
         depth = 1;
@@ -193,11 +198,29 @@ public class Validator {
         implElement = null;
 
         implSegmentCandidates.clear();
+        loopStack.clear();
+        revalidationQueue.clear();
         useErrors.clear();
         elementErrors.clear();
         initial = true;
     }
 
+    public Schema getSchema() {
+        return schema;
+    }
+
+    Schema getContainerSchema() {
+        return containerSchema;
+    }
+
+    boolean isValidateCodeValues() {
+        return validateCodeValues;
+    }
+
+    boolean isValidateElements() {
+        return validateElements;
+    }
+
     public boolean isPendingDiscrimination() {
         return !implSegmentCandidates.isEmpty();
     }
@@ -236,103 +259,14 @@ public class Validator {
         return null;
     }
 
-    private static EDIReference referenceOf(EDIComplexType type, int minOccurs, int maxOccurs) {
-        return new EDIReference() {
-            @Override
-            public EDIType getReferencedType() {
-                return type;
-            }
-
-            @Override
-            public int getMinOccurs() {
-                return minOccurs;
-            }
-
-            @Override
-            public int getMaxOccurs() {
-                return maxOccurs;
-            }
-        };
-    }
-
-    private static UsageNode buildTree(final EDIComplexType root) {
-        return buildTree(null, 0, referenceOf(root, 1, 1), -1);
-    }
-
-    private static UsageNode buildTree(UsageNode parent, int parentDepth, EDIReference link, int index) {
-        int depth = parentDepth + 1;
-        EDIType referencedNode = link.getReferencedType();
-
-        UsageNode node = new UsageNode(parent, depth, link, index);
-
-        if (!(referencedNode instanceof EDIComplexType)) {
-            return node;
-        }
-
-        EDIComplexType structure = (EDIComplexType) referencedNode;
-
-        List<? extends EDIReference> children = structure.getReferences();
-        List<UsageNode> childUsages = node.getChildren();
-
-        int childIndex = -1;
-
-        for (EDIReference child : children) {
-            childUsages.add(buildTree(node, depth, child, ++childIndex));
-        }
-
-        return node;
-    }
-
-    private static UsageNode buildImplTree(UsageNode parent, int parentDepth, EDITypeImplementation impl, int index) {
-        int depth = parentDepth + 1;
-        final UsageNode node = new UsageNode(parent, depth, impl, index);
-        final List<EDITypeImplementation> children;
-
-        switch (impl.getType()) {
-        case COMPOSITE:
-            children = CompositeImplementation.class.cast(impl).getSequence();
-            break;
-        case ELEMENT:
-            children = Collections.emptyList();
-            break;
-        case TRANSACTION:
-        case LOOP:
-            children = LoopImplementation.class.cast(impl).getSequence();
-            break;
-        case SEGMENT:
-            children = SegmentImplementation.class.cast(impl).getSequence();
-            break;
-        default:
-            throw new IllegalArgumentException("Illegal type of EDITypeImplementation: " + impl.getType());
-        }
-
-        List<UsageNode> childUsages = node.getChildren();
-
-        int childIndex = -1;
-
-        for (EDITypeImplementation child : children) {
-            ++childIndex;
-
-            UsageNode childNode = null;
-
-            if (child != null) {
-                childNode = buildImplTree(node, depth, child, childIndex);
-            }
-
-            childUsages.add(childNode);
-        }
-
-        return node;
-    }
-
     private UsageNode startLoop(UsageNode loop) {
-        loop.incrementUsage();
-        loop.resetChildren();
+        loop.incrementUsage(usage);
+        loop.resetChildren(usage);
 
         UsageNode startSegment = loop.getFirstChild();
 
-        startSegment.reset();
-        startSegment.incrementUsage();
+        startSegment.reset(usage);
+        startSegment.incrementUsage(usage);
 
         depth++;
 
@@ -371,30 +305,50 @@ public class Validator {
             handled = handleNode(tag, cursor.standard, cursor.impl, startDepth, handler);
 
             if (!handled) {
-                /*
-                 * The segment doesn't match the current node, ensure
-                 * requirements for the current node are met.
-                 */
-                checkMinimumUsage(cursor.standard);
+                handled = advanceToCandidate(tag, startDepth, handler);
+            }
+        }
+
+        handleMissingMandatory(handler);
+    }
 
-                UsageNode nextImpl = checkMinimumImplUsage(cursor.impl, cursor.standard);
+    /**
+     * Advance the cursor past the siblings that cannot match the segment tag,
+     * directly to the next sibling beginning with the tag. Requirements are
+     * checked only for the nodes passed over. When no following sibling begins
+     * with the tag, the end of the loop is reached and the segment is searched
+     * for earlier in the loop and in the parent loops.
+     *
+     * @return true when the segment was handled at the end of the loop,
+     *         otherwise false with the cursor positioned at the candidate node
+     */
+    boolean advanceToCandidate(CharSequence tag, int startDepth, ValidationEventHandler handler) {
+        final UsageNode candidate = cursor.standard.getNextSiblingStartingWith(tag);
 
-                if (cursor.hasNextSibling()) {
-                    // Advance to the next segment in the loop
-                    cursor.next(nextImpl); // Impl node may be unchanged
-                } else {
-                    // End of the loop - check if the segment appears earlier in the loop
-                    handled = checkPeerSegments(tag, cursor.standard, startDepth, handler);
+        do {
+            /*
+             * The segment doesn't match the current node, ensure
+             * requirements for the current node are met.
+             */
+            checkMinimumUsage(cursor.standard);
 
-                    if (!handled) {
-                        // Determine if the segment is in a loop higher in the tree or in the transaction whatsoever
-                        handled = checkParents(cursor, tag, startDepth, handler);
-                    }
+            UsageNode nextImpl = checkMinimumImplUsage(cursor.impl, cursor.standard);
+
+            if (!cursor.hasNextSibling()) {
+                // End of the loop - check if the segment appears earlier in the loop
+                if (checkPeerSegments(tag, cursor.standard, startDepth, handler)) {
+                    return true;
                 }
+
+                // Determine if the segment is in a loop higher in the tree or in the transaction whatsoever
+                return checkParents(cursor, tag, startDepth, handler);
             }
-        }
 
-        handleMissingMandatory(handler);
+            // Advance to the next segment in the loop
+            cursor.next(nextImpl); // Impl node may be unchanged
+        } while (cursor.standard != candidate);
+
+        return false;
     }
 
     UsageNode checkMinimumImplUsage(UsageNode nextImpl, UsageNode current) {
@@ -428,7 +382,7 @@ public class Validator {
     }
 
     boolean handleSegment(CharSequence tag, UsageNode current, UsageNode currentImpl, int startDepth, ValidationEventHandler handler) {
-        if (!current.getId().contentEquals(tag)) {
+        if (!current.isId(tag)) {
             /*
              * The schema segment does not match the segment tag found
              * in the stream.
@@ -436,7 +390,7 @@ public class Validator {
             return false;
         }
 
-        if (current.isUsed() && current.isFirstChild() &&
+        if (current.isUsed(usage) && current.isFirstChild() &&
                 current.getParent().isNodeType(EDIType.Type.LOOP)) {
             /*
              * The current segment is the first segment in the loop and
@@ -448,10 +402,10 @@ public class Validator {
         }
 
         completeLoops(handler, startDepth);
-        current.incrementUsage();
-        current.resetChildren();
+        current.incrementUsage(usage);
+        current.resetChildren(usage);
 
-        if (current.exceedsMaximumUsage(SEGMENT_VERSION)) {
+        if (current.exceedsMaximumUsage(usage, SEGMENT_VERSION)) {
             handleMissingMandatory(handler);
             handler.segmentError(current.getId(), current.getLink(), SEGMENT_EXCEEDS_MAXIMUM_USE);
         }
@@ -472,10 +426,10 @@ public class Validator {
                 // Save the currentImpl so that the search is resumed from the correct location
                 implNode = currentImpl;
             } else if (implSegmentCandidates.size() == 1) {
-                currentImpl.incrementUsage();
-                currentImpl.resetChildren();
+                currentImpl.incrementUsage(usage);
+                currentImpl.resetChildren(usage);
 
-                if (currentImpl.exceedsMaximumUsage(SEGMENT_VERSION)) {
+                if (currentImpl.exceedsMaximumUsage(usage, SEGMENT_VERSION)) {
                     handler.segmentError(currentImpl.getId(), current.getLink(), SEGMENT_EXCEEDS_MAXIMUM_USE);
                 }
 
@@ -508,7 +462,7 @@ public class Validator {
     }
 
     void checkMinimumUsage(UsageNode node) {
-        if (!node.hasMinimumUsage(SEGMENT_VERSION)) {
+        if (!node.hasMinimumUsage(usage, SEGMENT_VERSION)) {
             /*
              * The schema segment has not met it's minimum usage
              * requirement.
@@ -526,7 +480,7 @@ public class Validator {
     }
 
     boolean handleLoop(CharSequence tag, UsageNode current, UsageNode currentImpl, int startDepth, ValidationEventHandler handler) {
-        if (!current.getFirstChild().getId().contentEquals(tag)) {
+        if (!current.getFirstChild().isId(tag)) {
             return false;
         }
 
@@ -560,7 +514,7 @@ public class Validator {
 
         correctSegment = segment = startLoop(current);
 
-        if (current.exceedsMaximumUsage(SEGMENT_VERSION)) {
+        if (current.exceedsMaximumUsage(usage, SEGMENT_VERSION)) {
             handleMissingMandatory(handler);
             handler.segmentError(tag, current.getLink(), LOOP_OCCURS_OVER_MAXIMUM_TIMES);
         }
@@ -590,9 +544,9 @@ public class Validator {
                 useErrors.clear();
                 handler.segmentError(next.getId(), next.getLink(), SEGMENT_NOT_IN_PROPER_SEQUENCE);
 
-                next.incrementUsage();
+                next.incrementUsage(usage);
 
-                if (next.exceedsMaximumUsage(SEGMENT_VERSION)) {
+                if (next.exceedsMaximumUsage(usage, SEGMENT_VERSION)) {
                     handler.segmentError(next.getId(), next.getLink(), SEGMENT_EXCEEDS_MAXIMUM_USE);
                 }
 
@@ -621,7 +575,7 @@ public class Validator {
     boolean checkUnexpectedSegment(CharSequence tag, UsageNode current, int startDepth, ValidationEventHandler handler) {
         boolean handled = false;
 
-        if (!current.getId().contentEquals(tag)) {
+        if (!current.isId(tag)) {
             final String tagString = tag.toString();
 
             if (containerSchema != null && containerSchema.containsSegment(tagString)) {
@@ -682,7 +636,7 @@ public class Validator {
             UsageNode implSeg = toSegment(candidate);
             implType = (PolymorphicImplementation) candidate.getLink();
 
-            if (isMatch(implType, currentEvent)) {
+            if (isMatch(candidate, currentEvent)) {
                 handleImplementationSelected(candidate, implSeg, handler);
 
                 if (implNode.isFirstChild()) {
@@ -708,17 +662,17 @@ public class Validator {
         implSegmentSelected = true;
 
         if (candidate.isNodeType(Type.LOOP)) {
-            candidate.incrementUsage();
-            candidate.resetChildren();
-            implSeg.incrementUsage();
+            candidate.incrementUsage(usage);
+            candidate.resetChildren(usage);
+            implSeg.incrementUsage(usage);
 
-            if (candidate.exceedsMaximumUsage(SEGMENT_VERSION)) {
+            if (candidate.exceedsMaximumUsage(usage, SEGMENT_VERSION)) {
                 handler.segmentError(implSeg.getId(), implSeg.getLink(), LOOP_OCCURS_OVER_MAXIMUM_TIMES);
             }
         } else {
-            candidate.incrementUsage();
+            candidate.incrementUsage(usage);
 
-            if (candidate.exceedsMaximumUsage(SEGMENT_VERSION)) {
+            if (candidate.exceedsMaximumUsage(usage, SEGMENT_VERSION)) {
                 handler.segmentError(implSeg.getId(), implSeg.getLink(), SEGMENT_EXCEEDS_MAXIMUM_USE);
             }
         }
@@ -732,15 +686,15 @@ public class Validator {
         handleMissingMandatory(handler);
     }
 
-    static boolean isMatch(PolymorphicImplementation implType, StreamEvent currentEvent) {
-        Discriminator discr = implType.getDiscriminator();
+    static boolean isMatch(UsageNode candidate, StreamEvent currentEvent) {
+        Discriminator discr = ((PolymorphicImplementation) candidate.getLink()).getDiscriminator();
 
         // If no discriminator, matches by default
         if (discr ==  null) {
             return true;
         }
 
-        if (discr.getValueSet().contains(currentEvent.getData().toString())) {
+        if (candidate.getDiscriminatorValues().contains(currentEvent.getData())) {
             int eleLoc = discr.getElementPosition();
             int comLoc = discr.getComponentPosition() == 0 ? -1 : discr.getComponentPosition();
             Location location = currentEvent.getLocation();
@@ -809,19 +763,31 @@ public class Validator {
 
         this.composite = null;
         this.element = segment.getChild(version, elementPosition);
+        this.implComposite = null;
 
-        validateImplRepetitions(version, elementPosition, -1);
+        if (!validateElements) {
+            this.implElement = getImplElement(version, elementPosition);
 
-        this.implComposite = null;
+            if (element != null && element.isNodeType(EDIType.Type.COMPOSITE)) {
+                this.composite = this.element;
+                this.element = null;
+                this.implComposite = this.implElement;
+                this.implElement = null;
+            }
+
+            return true;
+        }
+
+        validateImplRepetitions(version, elementPosition, -1);
         this.implElement = getImplElement(version, elementPosition);
 
         if (element == null) {
             elementErrors.add(new UsageError(TOO_MANY_DATA_ELEMENTS));
             return false;
         } else if (!element.isNodeType(EDIType.Type.COMPOSITE)) {
-            this.element.incrementUsage();
+            this.element.incrementUsage(usage);
 
-            if (this.element.exceedsMaximumUsage(version)) {
+            if (this.element.exceedsMaximumUsage(usage, version)) {
                 elementErrors.add(new UsageError(this.element, TOO_MANY_REPETITIONS));
                 return false;
             }
@@ -834,9 +800,9 @@ public class Validator {
 
         this.composite = this.element;
         this.element = null;
-        this.composite.incrementUsage();
+        this.composite.incrementUsage(usage);
 
-        if (this.composite.exceedsMaximumUsage(version)) {
+        if (this.composite.exceedsMaximumUsage(usage, version)) {
             elementErrors.add(new UsageError(this.composite, TOO_MANY_REPETITIONS));
             return false;
         }
@@ -849,7 +815,7 @@ public class Validator {
         this.implElement = null;
 
         if (implSegmentSelected) {
-            this.implComposite.incrementUsage();
+            this.implComposite.incrementUsage(usage);
         }
 
         return elementErrors.isEmpty();
@@ -876,10 +842,12 @@ public class Validator {
         int componentIndex = position.getComponentPosition() - 1;
         final String version = dialect.getTransactionVersionString();
 
-        validateImplRepetitions(version, elementPosition, componentIndex);
+        if (validateElements) {
+            validateImplRepetitions(version, elementPosition, componentIndex);
+        }
 
         if (elementPosition >= segment.getChildren(version).size()) {
-            if (componentIndex < 0) {
+            if (componentIndex < 0 && validateElements) {
                 /*
                  * Only notify if this is not a composite - handled in
                  * validCompositeOccurrences
@@ -906,6 +874,13 @@ public class Validator {
             }
         }
 
+        if (!validateElements) {
+            if (componentIndex > -1) {
+                locateComponentElement(version, componentIndex, valueReceived);
+            }
+            return true;
+        }
+
         if (componentIndex > -1) {
             validateComponentElement(dialect, componentIndex, valueReceived);
         } else {
@@ -935,7 +910,7 @@ public class Validator {
             elementErrors.add(new UsageError(this.element, TOO_MANY_COMPONENTS));
         } else {
             if (componentIndex == 0) {
-                UsageNode.resetChildren(this.element, this.implElement);
+                UsageNode.resetChildren(usage, this.element, this.implElement);
             }
 
             String version = dialect.getTransactionVersionString();
@@ -955,17 +930,29 @@ public class Validator {
         }
     }
 
+    void locateComponentElement(String version, int componentIndex, boolean valueReceived) {
+        if (element.isNodeType(EDIType.Type.COMPOSITE)
+                && componentIndex < element.getChildren(version).size()
+                && (valueReceived || componentIndex != 0 /* Derived component*/)) {
+            this.element = this.element.getChild(version, componentIndex);
+
+            if (isImplElementSelected()) {
+                this.implElement = this.implElement.getChild(version, componentIndex);
+            }
+        }
+    }
+
     void validateElementValue(Dialect dialect, StaEDIStreamLocation position, CharSequence value) {
         final String version = dialect.getTransactionVersionString();
 
         if (!element.isNodeType(EDIType.Type.COMPOSITE)) {
-            this.element.incrementUsage();
+            this.element.incrementUsage(usage);
 
             if (this.implElement != null) {
-                this.implElement.incrementUsage();
+                this.implElement.incrementUsage(usage);
             }
 
-            if (this.element.exceedsMaximumUsage(version)) {
+            if (this.element.exceedsMaximumUsage(usage, version)) {
                 elementErrors.add(new UsageError(this.element, TOO_MANY_REPETITIONS));
             }
         }
@@ -1020,6 +1007,11 @@ public class Validator {
     }
 
     public void validateSyntax(Dialect dialect, ElementDataHandler handler, ValidationEventHandler validationHandler, final StaEDIStreamLocation location, final boolean isComposite) {
+        if (!validateElements) {
+            // Missing elements and element syntax rules are not validated
+            return;
+        }
+
         if (isComposite && composite == null) {
             // End composite but element is not composite in schema
             return;
@@ -1060,7 +1052,7 @@ public class Validator {
         for (EDISyntaxRule rule : structure.getSyntaxRules()) {
             final EDISyntaxRule.Type ruleType = rule.getType();
             SyntaxValidator validator = SyntaxValidator.getInstance(ruleType);
-            validator.validate(rule, structure, validationHandler);
+            validator.validate(rule, structure, usage, validationHandler);
         }
     }
 
@@ -1070,7 +1062,7 @@ public class Validator {
         for (EDISyntaxRule rule : loop.getSyntaxRules()) {
             final EDISyntaxRule.Type ruleType = rule.getType();
             SyntaxValidator validator = SyntaxValidator.getInstance(ruleType);
-            validator.validate(rule, loop, validationHandler);
+            validator.validate(rule, loop, usage, validationHandler);
         }
     }
 
@@ -1094,13 +1086,13 @@ public class Validator {
     }
 
     void validateDataElementRequirement(String version) {
-        if (!UsageNode.hasMinimumUsage(version, element) || !UsageNode.hasMinimumUsage(version, implElement)) {
+        if (!UsageNode.hasMinimumUsage(usage, version, element) || !UsageNode.hasMinimumUsage(usage, version, implElement)) {
             elementErrors.add(new UsageError(this.element, REQUIRED_DATA_ELEMENT_MISSING));
         }
     }
 
     boolean tooFewRepetitions(String version, UsageNode node) {
-        if (!UsageNode.hasMinimumUsage(version, node)) {
+        if (!UsageNode.hasMinimumUsage(usage, version, node)) {
             return node.getLink().getMinOccurs(version) > 1;
         }
 
@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.validation;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import io.xlate.edi.internal.schema.StaEDISchema;
+import io.xlate.edi.schema.Schema;
+
+/**
+ * Idle validators retained for reuse by readers created from the same
+ * factory. Validators are pooled by the identity of their schema, container
+ * schema, and element and code value settings, and are reset when acquired. A validator
+ * must only be released by the reader that acquired it once the reader no
+ * longer uses it.
+ *
+ * <p>
+ * The idle validators of a schema are retained by the schema itself, with the
+ * pools only weakly referenced, so that they are discarded along with a schema
+ * that is no longer used (e.g. one evicted from a
+ * {@link io.xlate.edi.schema.SchemaRegistry SchemaRegistry}) or a pool whose
+ * factory is no longer used. Validators of other implementations of
+ * {@link Schema} are not pooled.
+ */
+public final class ValidatorPool {
+
+    static final int DEFAULT_MAXIMUM_IDLE = 8;
+
+    static final class Key {
+        final Schema containerSchema;
+        final boolean validateCodeValues;
+        final boolean validateElements;
+        final int hash;
+
+        Key(Schema containerSchema, boolean validateCodeValues, boolean validateElements) {
+            this.containerSchema = containerSchema;
+            this.validateCodeValues = validateCodeValues;
+            this.validateElements = validateElements;
+            int h = 31 * System.identityHashCode(containerSchema) + Boolean.hashCode(validateCodeValues);
+            this.hash = 31 * h + Boolean.hashCode(validateElements);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key other = (Key) o;
+            return containerSchema == other.containerSchema
+                    && validateCodeValues == other.validateCodeValues
+                    && validateElements == other.validateElements;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Idle validators of a single schema, by pool. Retained as a compiled form
+     * of the schema.
+     */
+    static final class IdleValidators {
+        final Map<ValidatorPool, ConcurrentMap<Key, Queue<Validator>>> pools = Collections.synchronizedMap(new WeakHashMap<>(2));
+    }
+
+    private final int maximumIdle;
+
+    public ValidatorPool() {
+        this(DEFAULT_MAXIMUM_IDLE);
+    }
+
+    /**
+     * @param maximumIdle
+     *            the maximum number of idle validators retained for each
+     *            schema
+     */
+    public ValidatorPool(int maximumIdle) {
+        if (maximumIdle < 1) {
+            throw new IllegalArgumentException("maximumIdle must be positive");
+        }
+        this.maximumIdle = maximumIdle;
+    }
+
+    public Validator acquire(Schema schema, boolean validateCodeValues, Schema containerSchema) {
+        return acquire(schema, validateCodeValues, true, containerSchema);
+    }
+
+    public Validator acquire(Schema schema, boolean validateCodeValues, boolean validateElements, Schema containerSchema) {
+        Queue<Validator> validators = getIdle(schema, new Key(containerSchema, validateCodeValues, validateElements), false);
+        Validator validator = validators != null ? validators.poll() : null;
+
+        if (validator == null) {
+            return new Validator(schema, validateCodeValues, validateElements, containerSchema);
+        }
+
+        validator.reset();
+        return validator;
+    }
+
+    public void release(Validator validator) {
+        if (validator == null) {
+            return;
+        }
+
+        Key key = new Key(validator.getContainerSchema(),
+                          validator.isValidateCodeValues(),
+                          validator.isValidateElements());
+        Queue<Validator> validators = getIdle(validator.getSchema(), key, true);
+
+        if (validators != null) {
+            // Validators in excess of the maximum are discarded
+            validators.offer(validator);
+        }
+    }
+
+    int getIdleCount(Schema schema, boolean validateCodeValues, Schema containerSchema) {
+        Queue<Validator> validators = getIdle(schema, new Key(containerSchema, validateCodeValues, true), false);
+        return validators != null ? validators.size() : 0;
+    }
+
+    Queue<Validator> getIdle(Schema schema, Key key, boolean create) {
+        if (!(schema instanceof StaEDISchema)) {
+            return null;
+        }
+
+        IdleValidators idle = ((StaEDISchema) schema).getCompiledForm(IdleValidators.class, s -> new IdleValidators());
+        ConcurrentMap<Key, Queue<Validator>> validators;
+
+        if (create) {
+            validators = idle.pools.computeIfAbsent(this, p -> new ConcurrentHashMap<>(4));
+            return validators.computeIfAbsent(key, k -> new ArrayBlockingQueue<>(maximumIdle));
+        }
+
+        validators = idle.pools.get(this);
+        return validators != null ? validators.get(key) : null;
+    }
+}
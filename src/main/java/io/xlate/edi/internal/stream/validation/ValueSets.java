@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.validation;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import io.xlate.edi.schema.EDISimpleType;
+
+/**
+ * Compiled value sets of a simple type, shared by all nodes of a
+ * {@link UsageTree} using the type. The value set of a type without versions
+ * is compiled once. Those of a versioned type are compiled once for each
+ * distinct value set applicable to a version of the type (i.e. for each of
+ * the type's versions and its default values), not for each version string
+ * found in the input.
+ */
+final class ValueSets {
+
+    /*
+     * Limit of the compiled value sets retained for a versioned type. Only
+     * reached by implementations of EDISimpleType not returning the same set
+     * for each version.
+     */
+    static final int MAXIMUM_VERSIONED = 16;
+
+    static final class Entry {
+        final Set<String> source;
+        final StringIndex values;
+
+        Entry(Set<String> source, StringIndex values) {
+            this.source = source;
+            this.values = values;
+        }
+    }
+
+    private final EDISimpleType type;
+    private volatile StringIndex unversioned;
+    private volatile Entry[] versioned = new Entry[0];
+
+    ValueSets(EDISimpleType type) {
+        this.type = type;
+    }
+
+    static StringIndex compile(Set<String> source) {
+        return source != null ? new StringIndex(source) : StringIndex.EMPTY;
+    }
+
+    StringIndex get(String version) {
+        if (!type.hasVersions()) {
+            StringIndex values = unversioned;
+
+            if (values == null) {
+                // Compiled at most once per thread racing to compile it
+                values = compile(type.getValueSet());
+                unversioned = values;
+            }
+
+            return values;
+        }
+
+        final Set<String> source = type.getValueSet(version);
+
+        for (Entry entry : versioned) {
+            if (entry.source == source) {
+                return entry.values;
+            }
+        }
+
+        return add(source);
+    }
+
+    private synchronized StringIndex add(Set<String> source) {
+        final Entry[] current = versioned;
+
+        for (Entry entry : current) {
+            if (entry.source == source) {
+                return entry.values;
+            }
+        }
+
+        final StringIndex values = compile(source);
+
+        if (current.length < MAXIMUM_VERSIONED) {
+            Entry[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = new Entry(source, values);
+            versioned = next;
+        }
+
+        return values;
+    }
+}
@@ -16,6 +16,7 @@
 package io.xlate.edi.schema;
 
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
 
 @SuppressWarnings("java:S1214") // Allow constant string value to be used in this interface
@@ -48,8 +49,44 @@ public interface SchemaFactory {
 
     public abstract Schema createSchema(URL location) throws EDISchemaException;
 
+    /**
+     * Create a schema from the stream. The stream may contain either an XML
+     * schema or a schema previously written in binary form by
+     * {@link #writeSchema(Schema, OutputStream)}; the format is detected from
+     * the content of the stream.
+     *
+     * @param stream
+     *            the stream containing the schema
+     * @return the schema
+     * @throws EDISchemaException
+     *             when the schema can not be read
+     */
     public abstract Schema createSchema(InputStream stream) throws EDISchemaException;
 
+    /**
+     * Write a schema previously created by this factory to the stream in a
+     * compact binary form. The types, implementation, syntax rules, and
+     * value sets of the schema are written fully resolved, including any
+     * included schemas, so that the schema may later be created from the
+     * stream with {@link #createSchema(InputStream)} without parsing XML.
+     *
+     * The stream is not closed by this method.
+     *
+     * @param schema
+     *            the schema to write
+     * @param stream
+     *            the stream to which the schema will be written
+     * @throws EDISchemaException
+     *             when the schema can not be written
+     * @throws UnsupportedOperationException
+     *             if the factory does not support writing schemas
+     *
+     * @since 1.10
+     */
+    public default void writeSchema(Schema schema, OutputStream stream) throws EDISchemaException {
+        throw new UnsupportedOperationException("Writing schemas is not supported");
+    }
+
     /**
      * Retrieve the control schema for the provided standard and version. This
      * method loads an internal, immutable schema provided by StAEDI.
@@ -66,6 +103,25 @@ public interface SchemaFactory {
      */
     public Schema getControlSchema(String standard, String[] version) throws EDISchemaException;
 
+    /**
+     * Load the internal control schemas provided by StAEDI for the standard
+     * (or for all standards when null) so that the first interchange read or
+     * written for each version does not incur the cost of loading the schema.
+     * Control schemas are loaded once and shared by all factories, readers and
+     * writers.
+     *
+     * @param standard
+     *            the standard, e.g. X12 or EDIFACT, or null for all standards
+     * @return the number of control schemas available for the standard
+     * @throws EDISchemaException
+     *             when a schema can not be loaded.
+     *
+     * @since 1.10
+     */
+    public default int preloadControlSchemas(String standard) throws EDISchemaException {
+        return 0;
+    }
+
     /**
      * Query the set of properties that this factory supports.
      *
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.schema;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * A registry of schemas identified by an application-defined key, for example
+ * a combination of trading partner, transaction set, and version. Schemas are
+ * created on demand by the registry's {@link Loader} and retained until
+ * evicted, so that applications selecting a schema for each transaction (e.g.
+ * for {@link io.xlate.edi.stream.EDIStreamReader#setTransactionSchema(Schema)
+ * setTransactionSchema}) may do so cheaply.
+ *
+ * A registry is safe for use by multiple threads. Each schema is loaded only
+ * once, even when requested concurrently, and a request for one key never
+ * waits for the loading of a schema with a different key. When the total
+ * weight of the retained schemas exceeds the registry's maximum, the least
+ * recently used schemas are evicted. A use of a schema that coincides with
+ * another thread's update of the registry may not be recorded, so the order of
+ * eviction is approximate under contention.
+ *
+ * @param <K>
+ *            type of the keys used to identify schemas
+ *
+ * @since 1.10
+ */
+public interface SchemaRegistry<K> {
+
+    /**
+     * Loads the schema for a key not currently retained by a registry.
+     *
+     * @param <K>
+     *            type of the keys used to identify schemas
+     */
+    @FunctionalInterface
+    public interface Loader<K> {
+        /**
+         * Load the schema identified by the key.
+         *
+         * @param key
+         *            key identifying the schema
+         * @return the schema, never null
+         * @throws EDISchemaException
+         *             when the schema can not be loaded
+         */
+        Schema load(K key) throws EDISchemaException;
+    }
+
+    /**
+     * Create a new registry retaining at most <code>maximumSize</code>
+     * schemas.
+     *
+     * @param <K>
+     *            type of the keys used to identify schemas
+     * @param maximumSize
+     *            maximum number of schemas retained
+     * @param loader
+     *            loader used to create schemas not present in the registry
+     * @return the new registry
+     */
+    public static <K> SchemaRegistry<K> newRegistry(long maximumSize, Loader<K> loader) {
+        return newRegistry(maximumSize, schema -> 1L, loader);
+    }
+
+    /**
+     * Create a new registry retaining schemas up to a maximum total weight,
+     * where the weight of each schema is determined by the
+     * <code>weigher</code> when the schema is loaded (e.g. an estimate of its
+     * size such as its number of types).
+     *
+     * @param <K>
+     *            type of the keys used to identify schemas
+     * @param maximumWeight
+     *            maximum total weight of the schemas retained
+     * @param weigher
+     *            function giving the (non-negative) weight of a schema
+     * @param loader
+     *            loader used to create schemas not present in the registry
+     * @return the new registry
+     */
+    public static <K> SchemaRegistry<K> newRegistry(long maximumWeight,
+                                                    ToLongFunction<? super Schema> weigher,
+                                                    Loader<K> loader) {
+        return new io.xlate.edi.internal.schema.StaEDISchemaRegistry<>(maximumWeight, weigher, loader);
+    }
+
+    /**
+     * Retrieve the schema for the key, loading it if not present in the
+     * registry. When another thread is already loading the schema for the
+     * same key, this method waits for that load to complete and returns its
+     * result.
+     *
+     * @param key
+     *            key identifying the schema
+     * @return the schema for the key
+     * @throws EDISchemaException
+     *             when the schema can not be loaded. Failures are not
+     *             retained, a later request for the key will attempt to load
+     *             the schema again.
+     */
+    public Schema getSchema(K key) throws EDISchemaException;
+
+    /**
+     * Retrieve the schema for the key only if it has already been loaded.
+     *
+     * @param key
+     *            key identifying the schema
+     * @return the schema for the key, or null if not present in the registry
+     */
+    public Schema getSchemaIfPresent(K key);
+
+    /**
+     * Add a schema to the registry, replacing any schema present for the
+     * key.
+     *
+     * @param key
+     *            key identifying the schema
+     * @param schema
+     *            the schema
+     */
+    public void putSchema(K key, Schema schema);
+
+    /**
+     * Remove the schema for the key from the registry, if present.
+     *
+     * @param key
+     *            key identifying the schema
+     */
+    public void invalidate(K key);
+
+    /**
+     * Remove all schemas from the registry.
+     */
+    public void invalidateAll();
+
+    /**
+     * Retrieve the number of schemas retained by the registry.
+     *
+     * @return the number of schemas retained
+     */
+    public int size();
+}
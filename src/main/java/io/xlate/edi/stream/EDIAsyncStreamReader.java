@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.stream;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link EDIStreamReader} that does not read from a blocking source of
+ * input. Instead, input is pushed to the reader in chunks as it becomes
+ * available using {@link #feedInput(ByteBuffer)}.
+ *
+ * When the input fed to the reader has been consumed before the next event is
+ * complete, {@link #next()} will return {@link EDIStreamEvent#INCOMPLETE}.
+ * Parsing resumes from the same point in the input once more input has been
+ * fed. The end of the input must be signaled using {@link #endOfInput()}.
+ *
+ * <pre>
+ * EDIAsyncStreamReader reader = factory.createEDIAsyncStreamReader();
+ *
+ * // When bytes arrive
+ * reader.feedInput(chunk);
+ *
+ * while (reader.hasNext()) {
+ *     EDIStreamEvent event = reader.next();
+ *
+ *     if (event == EDIStreamEvent.INCOMPLETE) {
+ *         break; // Wait for more input
+ *     }
+ *
+ *     // Handle event
+ * }
+ * </pre>
+ *
+ * @since 1.10
+ */
+public interface EDIAsyncStreamReader extends EDIStreamReader {
+
+    /**
+     * Make the remaining bytes of the given buffer available to the reader.
+     * The bytes are copied, the buffer's position will be advanced to its
+     * limit, and the buffer may be re-used by the caller once this method
+     * returns.
+     *
+     * @param input
+     *            buffer containing the next chunk of EDI input
+     * @throws IllegalStateException
+     *             if {@link #endOfInput()} has already been called
+     */
+    void feedInput(ByteBuffer input);
+
+    /**
+     * Signal that no more input will be fed to the reader. Subsequent calls to
+     * {@link #next()} will report an error if the input ends before the end
+     * of the interchange.
+     */
+    void endOfInput();
+
+    /**
+     * Indicates whether all input fed to the reader has been consumed and the
+     * reader is waiting for more input, i.e. the most recent event returned
+     * was {@link EDIStreamEvent#INCOMPLETE}.
+     *
+     * @return true if more input must be fed before the next event is
+     *         available, otherwise false
+     */
+    boolean needMoreInput();
+
+    /**
+     * Reset this reader to read a new EDI input, which must then be fed to the
+     * reader using {@link #feedInput(ByteBuffer)}. Any input not yet consumed
+     * is discarded. As with {@link #reset(java.io.InputStream)}, the reader's
+     * resources are retained for reuse.
+     *
+     * @throws IllegalStateException
+     *             if the reader has been closed
+     *
+     * @since 1.10
+     */
+    void reset();
+}
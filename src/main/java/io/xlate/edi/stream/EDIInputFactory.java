@@ -15,7 +15,13 @@
  ******************************************************************************/
 package io.xlate.edi.stream;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
@@ -39,6 +45,67 @@ public abstract class EDIInputFactory extends PropertySupport {
      */
     public static final String XML_DECLARE_TRANSACTION_XMLNS = "io.xlate.edi.stream.XML_DECLARE_TRANSACTION_XMLNS";
 
+    /**
+     * A {@link TransactionSchemaResolver} used by readers created by the
+     * factory to select the schema for each transaction in the input, without
+     * the application calling
+     * {@link EDIStreamReader#setTransactionSchema(Schema)}.
+     *
+     * @since 1.10
+     */
+    public static final String EDI_TRANSACTION_SCHEMA_RESOLVER = "io.xlate.edi.stream.EDI_TRANSACTION_SCHEMA_RESOLVER";
+
+    /**
+     * When set to true, the validators used by readers created by the factory
+     * are retained by the factory when each reader is closed, and reused by
+     * later readers validating with the same schemas. Readers must be closed
+     * for their validators to be reused. Default value is false.
+     *
+     * Idle validators are retained along with their schema and are discarded
+     * once the schema is no longer used (e.g. after its eviction from a
+     * {@link io.xlate.edi.schema.SchemaRegistry SchemaRegistry}).
+     *
+     * @since 1.10
+     */
+    public static final String EDI_REUSE_VALIDATORS = "io.xlate.edi.stream.EDI_REUSE_VALIDATORS";
+
+    /**
+     * The {@link ValidationLevel} of readers created by the factory, given
+     * either as a ValidationLevel or as the name of one (in any case). Setting
+     * any other value results in an IllegalArgumentException. Default value
+     * is {@link ValidationLevel#FULL FULL}.
+     *
+     * @since 1.10
+     */
+    public static final String EDI_VALIDATION_LEVEL = "io.xlate.edi.stream.EDI_VALIDATION_LEVEL";
+
+    /**
+     * When set to true, readers created by the factory for an InputStream read
+     * and tokenize their input on a separate thread, ahead of the validation
+     * of the input and the events returned to the application. Binary data
+     * elements are not supported by such readers, an {@link EDIStreamException}
+     * is thrown when one is encountered. Default value is false.
+     *
+     * @since 1.10
+     */
+    public static final String EDI_PIPELINED_PARSING = "io.xlate.edi.stream.EDI_PIPELINED_PARSING";
+
+    /**
+     * The {@link java.util.concurrent.Executor Executor} used to run the
+     * tokenizing task of readers with {@link #EDI_PIPELINED_PARSING} enabled.
+     * Each task blocks while reading its input and while waiting for the
+     * reader to consume its tokens, so the executor should not be one shared
+     * with tasks that are expected to complete quickly (e.g. the common
+     * ForkJoinPool). The task of a reader ends, and its thread is
+     * interrupted, when the reader is reset or closed. Note that an input
+     * stream backed by an interruptible channel is closed when the thread
+     * reading it is interrupted. When not set, each task is run on a new
+     * daemon thread.
+     *
+     * @since 1.10
+     */
+    public static final String EDI_PIPELINED_PARSING_EXECUTOR = "io.xlate.edi.stream.EDI_PIPELINED_PARSING_EXECUTOR";
+
     /**
      * Create a new instance of the factory. This static method creates a new
      * factory instance.
@@ -123,6 +190,226 @@ public abstract class EDIInputFactory extends PropertySupport {
                                                           Schema schema)
             throws EDIStreamException;
 
+    /**
+     * Creates a new {@link EDIStreamReader} that reads the file at the given
+     * {@link Path} (with default encoding). The file is read through
+     * memory-mapped windows rather than a buffered stream. The file will be
+     * closed when the reader is closed.
+     *
+     * @param path
+     *            {@link Path} of the file from which the EDI data will be read
+     * @return a new {@link EDIStreamReader} which reads from the file
+     * @throws IOException
+     *             when the file can not be opened
+     *
+     * @since 1.10
+     */
+    public abstract EDIStreamReader createEDIStreamReader(Path path) throws IOException;
+
+    /**
+     * Creates a new {@link EDIStreamReader} that reads from the given
+     * {@link FileChannel} (with default encoding), beginning at the channel's
+     * current position. The channel is read through memory-mapped windows
+     * rather than a buffered stream. The channel will not be closed by the
+     * reader.
+     *
+     * @param channel
+     *            {@link FileChannel} from which the EDI data will be read
+     * @return a new {@link EDIStreamReader} which reads from the channel
+     * @throws IOException
+     *             when the channel's position can not be determined
+     *
+     * @since 1.10
+     */
+    public abstract EDIStreamReader createEDIStreamReader(FileChannel channel) throws IOException;
+
+    /**
+     * Creates a new {@link EDIStreamReader} that reads from the given
+     * {@link FileChannel} and encoding, beginning at the channel's current
+     * position, and which uses the {@link Schema} for validation of the
+     * input's control structures (interchange, group, transaction). The
+     * channel is read through memory-mapped windows rather than a buffered
+     * stream. The channel will not be closed by the reader.
+     *
+     * @param channel
+     *            {@link FileChannel} from which the EDI data will be read
+     * @param encoding
+     *            character encoding of the stream, must be a valid
+     *            {@link java.nio.charset.Charset Charset}.
+     * @param schema
+     *            {@link Schema} for control structure validation
+     * @return a new {@link EDIStreamReader} which reads from the channel
+     * @throws IOException
+     *             when the channel's position can not be determined
+     * @throws EDIStreamException
+     *             when encoding is not supported
+     *
+     * @since 1.10
+     */
+    public abstract EDIStreamReader createEDIStreamReader(FileChannel channel,
+                                                          String encoding,
+                                                          Schema schema)
+            throws IOException, EDIStreamException;
+
+    /**
+     * Creates a new {@link EDIAsyncStreamReader} (with default encoding) to
+     * which input is fed in chunks as it becomes available, rather than being
+     * read from a blocking {@link InputStream}.
+     *
+     * @return a new {@link EDIAsyncStreamReader}
+     *
+     * @since 1.10
+     */
+    public abstract EDIAsyncStreamReader createEDIAsyncStreamReader();
+
+    /**
+     * Creates a new {@link EDIAsyncStreamReader} using the given encoding
+     * which uses the {@link Schema} for validation of the input's control
+     * structures (interchange, group, transaction). Input is fed to the reader
+     * in chunks as it becomes available, rather than being read from a
+     * blocking {@link InputStream}. The encoding must be a valid
+     * {@link java.nio.charset.Charset Charset}.
+     *
+     * @param encoding
+     *            character encoding of the input, must be a valid
+     *            {@link java.nio.charset.Charset Charset}.
+     * @param schema
+     *            {@link Schema} for control structure validation
+     * @return a new {@link EDIAsyncStreamReader}
+     * @throws EDIStreamException
+     *             when encoding is not supported
+     *
+     * @since 1.10
+     */
+    public abstract EDIAsyncStreamReader createEDIAsyncStreamReader(String encoding, Schema schema)
+            throws EDIStreamException;
+
+    /**
+     * Creates a new {@link EDIStreamIndex} of the interchanges, groups, and
+     * transactions read from the given stream (with default encoding). The
+     * input is tokenized without validation and the stream is read to its end,
+     * but is not closed.
+     *
+     * @param stream
+     *            {@link InputStream} from which the EDI data will be read
+     * @return a new {@link EDIStreamIndex} of the input
+     * @throws EDIStreamException
+     *             when the input can not be read or is not well-formed
+     *
+     * @since 1.10
+     */
+    public abstract EDIStreamIndex createEDIStreamIndex(InputStream stream) throws EDIStreamException;
+
+    /**
+     * Reads an {@link EDIStreamIndex} previously written using
+     * {@link EDIStreamIndex#write(java.io.OutputStream)}. The stream is not
+     * closed.
+     *
+     * @param stream
+     *            {@link InputStream} from which the index will be read
+     * @return the {@link EDIStreamIndex} read from the stream
+     * @throws IOException
+     *             when the stream can not be read or does not contain an index
+     *
+     * @since 1.10
+     */
+    public abstract EDIStreamIndex readEDIStreamIndex(InputStream stream) throws IOException;
+
+    /**
+     * Creates a new {@link EDIStreamReader} (with default encoding) that reads
+     * only the given entry of an {@link EDIStreamIndex} from the indexed file,
+     * without reading the data preceding it. The header and trailer segments
+     * of the entry's enclosing interchange (and group) are read from the file
+     * as well, so that the dialect and delimiters of the interchange are
+     * available and the reader's events are those of a complete interchange.
+     *
+     * Locations reported by the reader are relative to the data read, not to
+     * the complete file. The channel will not be closed by the reader.
+     *
+     * @param channel
+     *            {@link FileChannel} of the indexed file
+     * @param entry
+     *            the entry of the {@link EDIStreamIndex} to be read
+     * @return a new {@link EDIStreamReader} which reads the entry
+     * @throws IOException
+     *             when the channel can not be read
+     *
+     * @since 1.10
+     */
+    public abstract EDIStreamReader createEDIStreamReader(FileChannel channel, EDIStreamIndex.Entry entry)
+            throws IOException;
+
+    /**
+     * Creates a {@link Stream} of readers, one for each transaction of the
+     * file at the given {@link Path}. The file is indexed (see
+     * {@link #createEDIStreamIndex(InputStream)}) when this method is called
+     * and each reader is created as the stream is traversed (see
+     * {@link #createEDIStreamReader(FileChannel, EDIStreamIndex.Entry)}).
+     *
+     * The stream's {@link java.util.Spliterator Spliterator} is split on
+     * transaction boundaries, allowing the transactions to be read by the
+     * tasks of a parallel stream, e.g.
+     * <code>factory.createTransactionStream(path).parallel().map(...)</code>.
+     * The readers are configured using the properties of this factory. The
+     * file is closed when the stream is closed.
+     *
+     * @param path
+     *            {@link Path} of the file from which the EDI data will be read
+     * @return a new {@link Stream} of readers of the file's transactions
+     * @throws IOException
+     *             when the file can not be read
+     * @throws EDIStreamException
+     *             when the file is not well-formed
+     *
+     * @since 1.10
+     */
+    public abstract Stream<EDIStreamReader> createTransactionStream(Path path) throws IOException, EDIStreamException;
+
+    /**
+     * Processes the transactions of the file at the given {@link Path} in
+     * parallel. The file is first indexed (see
+     * {@link #createEDIStreamIndex(InputStream)}), then each transaction is
+     * read by a separate {@link EDIStreamReader} (see
+     * {@link #createEDIStreamReader(FileChannel, EDIStreamIndex.Entry)}) and
+     * given to the handler by tasks executed in the given
+     * {@link ForkJoinPool}. The readers are configured using the properties
+     * of this factory, e.g. for validation.
+     *
+     * The results of the handler are given to the consumer, by one thread at
+     * a time, either in the order of the transactions in the file or in the
+     * order in which they are completed. Processing stops at the first
+     * exception thrown by the handler or the consumer, after which no further
+     * results are given to the consumer, and the exception is rethrown to the
+     * caller.
+     *
+     * @param <T>
+     *            the type of the handler's results
+     * @param path
+     *            {@link Path} of the file from which the EDI data will be read
+     * @param handler
+     *            the handler of each transaction
+     * @param consumer
+     *            the consumer of the handler's results
+     * @param ordered
+     *            true if the results are given to the consumer in the order of
+     *            the transactions in the file
+     * @param pool
+     *            the {@link ForkJoinPool} used to process the transactions,
+     *            e.g. {@link ForkJoinPool#commonPool()}
+     * @throws IOException
+     *             when the file can not be read
+     * @throws EDIStreamException
+     *             when the file is not well-formed or thrown by the handler
+     *
+     * @since 1.10
+     */
+    public abstract <T> void processTransactions(Path path,
+                                                 EDITransactionHandler<? extends T> handler,
+                                                 Consumer<? super T> consumer,
+                                                 boolean ordered,
+                                                 ForkJoinPool pool)
+            throws IOException, EDIStreamException;
+
     /**
      * Creates a new {@link EDIStreamReader} by wrapping the given reader with
      * the {@link EDIStreamFilter} filter.
@@ -24,7 +24,17 @@ public enum EDIStreamEvent {
 
     SEGMENT_ERROR(true),
     ELEMENT_DATA_ERROR(true),
-    ELEMENT_OCCURRENCE_ERROR(true);
+    ELEMENT_OCCURRENCE_ERROR(true),
+
+    /**
+     * Returned by an {@link EDIAsyncStreamReader} when all input fed to the
+     * reader has been consumed before the next event could be completed. More
+     * input must be fed (or the end of input signaled) before the next event
+     * is available.
+     *
+     * @since 1.10
+     */
+    INCOMPLETE;
 
     private final boolean error;
 
@@ -15,6 +15,8 @@
  ******************************************************************************/
 package io.xlate.edi.stream;
 
+import java.util.Set;
+
 /**
  * This interface declares a simple filter interface that one can create to
  * filter EDIStreamReaders
@@ -36,4 +38,25 @@ public interface EDIStreamFilter {
 	 */
 	boolean accept(EDIStreamReader reader);
 
+	/**
+	 * Returns the tags of the segments for which this filter may accept
+	 * events. When a set is returned, the filter declares that it accepts no
+	 * segment events (START_SEGMENT through END_SEGMENT, including element
+	 * data and element errors) of any other segment, allowing the reader to
+	 * avoid generating those events. Other events, such as loop, transaction,
+	 * and segment error events, are generated for all segments.
+	 *
+	 * When a reader created by an {@link EDIInputFactory} is wrapped by a
+	 * filter that declares its segment tags, the wrapped reader should only
+	 * be used via the filtered reader.
+	 *
+	 * @return the set of segment tags accepted by this filter, or null
+	 *         (default) if the filter may accept events of any segment
+	 *
+	 * @since 1.10
+	 */
+	default Set<String> getSegmentTags() {
+		return null;
+	}
+
 }
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * An index of the interchange, functional group, and transaction boundaries
+ * of an EDI input, created using
+ * {@link EDIInputFactory#createEDIStreamIndex(java.io.InputStream)}. The index
+ * may be persisted (e.g. as a sidecar file next to the indexed input) using
+ * {@link #write(OutputStream)} and loaded again using
+ * {@link EDIInputFactory#readEDIStreamIndex(java.io.InputStream)}.
+ *
+ * An entry of the index may be read without reading the input preceding it
+ * using
+ * {@link EDIInputFactory#createEDIStreamReader(java.nio.channels.FileChannel, Entry)}.
+ *
+ * @since 1.10
+ */
+public interface EDIStreamIndex {
+
+    /**
+     * An interchange, functional group, or transaction within the indexed
+     * input.
+     *
+     * Byte offsets are those of the boundaries between segments. The offset of
+     * an entry (or of its trailer) is the offset following the previous
+     * segment, and may include whitespace preceding the entry's header (or
+     * trailer) segment.
+     */
+    interface Entry {
+
+        /**
+         * Get the type of the entry, one of
+         * {@link EDIStreamEvent#START_INTERCHANGE START_INTERCHANGE},
+         * {@link EDIStreamEvent#START_GROUP START_GROUP}, or
+         * {@link EDIStreamEvent#START_TRANSACTION START_TRANSACTION}.
+         *
+         * @return the type of the entry
+         */
+        EDIStreamEvent getType();
+
+        /**
+         * Get the entry that encloses this entry, i.e. the group or
+         * interchange of a transaction or the interchange of a group.
+         *
+         * @return the enclosing entry, or null for an interchange
+         */
+        Entry getParent();
+
+        /**
+         * Get the tag of the entry's header segment, e.g. <code>ST</code> or
+         * <code>UNH</code>.
+         *
+         * @return the header segment tag
+         */
+        String getSegmentTag();
+
+        /**
+         * Get the control reference of the entry given in its header segment,
+         * e.g. ISA13, GS06, or ST02 for X12 and UNB05, UNG05, or UNH01 for
+         * EDIFACT.
+         *
+         * @return the control number, or null if not present
+         */
+        String getControlNumber();
+
+        /**
+         * Get the position of the entry's header segment within the indexed
+         * input, as given by {@link Location#getSegmentPosition()}.
+         *
+         * @return the segment position of the header
+         */
+        int getSegmentPosition();
+
+        /**
+         * Get the character offset of the start of the entry.
+         *
+         * @return the character offset of the entry
+         */
+        long getCharacterOffset();
+
+        /**
+         * Get the byte offset of the start of the entry.
+         *
+         * @return the byte offset of the entry
+         */
+        long getStartOffset();
+
+        /**
+         * Get the byte offset following the entry's header segment.
+         *
+         * @return the byte offset following the header
+         */
+        long getHeaderEndOffset();
+
+        /**
+         * Get the byte offset of the start of the entry's trailer segment.
+         *
+         * @return the byte offset of the trailer
+         */
+        long getTrailerStartOffset();
+
+        /**
+         * Get the byte offset following the entry's trailer segment.
+         *
+         * @return the byte offset following the entry
+         */
+        long getEndOffset();
+    }
+
+    /**
+     * Get the standard of the indexed input, e.g. X12 or EDIFACT.
+     *
+     * @return the standard of the indexed input
+     */
+    String getStandard();
+
+    /**
+     * Get all entries of the index, in the order of their header segments in
+     * the indexed input.
+     *
+     * @return the list of entries
+     */
+    List<Entry> getEntries();
+
+    /**
+     * Get the entries of the index for the transactions of the indexed input.
+     *
+     * @return the list of transaction entries
+     */
+    List<Entry> getTransactions();
+
+    /**
+     * Write the index to the given stream. The stream is not closed.
+     *
+     * @param stream
+     *            the destination of the index
+     * @throws IOException
+     *             when the index can not be written
+     */
+    void write(OutputStream stream) throws IOException;
+
+}
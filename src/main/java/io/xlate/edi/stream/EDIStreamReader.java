@@ -433,4 +433,151 @@ public interface EDIStreamReader extends Closeable, EDIStreamConstants {
      * @since 1.9
      */
     EDIReference getSchemaTypeReference();
+
+    /**
+     * Advance the reader to the end of the next complete segment, a view of
+     * which is then available from {@link #getSegment()}. The element-level
+     * events of the segment are not generated, and other events (e.g.
+     * {@link EDIStreamEvent#START_TRANSACTION START_TRANSACTION}, or the
+     * events of a segment already partially read using {@link #next()}) are
+     * skipped. Validation errors are only available to an
+     * {@link EDIInputErrorReporter} given to the reader's factory. Data of
+     * binary elements is skipped and not available from the view.
+     *
+     * When a segment has been read, the current event is the
+     * {@link EDIStreamEvent#END_SEGMENT END_SEGMENT} of the segment, and the
+     * application may continue to use other methods of the reader, e.g. to
+     * set the transaction schema when the segment is a transaction header.
+     *
+     * @return {@link EDIStreamEvent#END_SEGMENT END_SEGMENT} when a segment
+     *         has been read, {@link EDIStreamEvent#END_INTERCHANGE
+     *         END_INTERCHANGE} when no segment remains in the input, or
+     *         {@link EDIStreamEvent#INCOMPLETE INCOMPLETE} when an
+     *         {@link EDIAsyncStreamReader} needs more input to complete the
+     *         segment, in which case the segment is resumed by calling this
+     *         method again once more input has been fed
+     * @throws EDIStreamException
+     *             if there is an error processing the underlying EDI source
+     * @throws IllegalStateException
+     *             if the reader has been closed
+     * @throws NoSuchElementException
+     *             if the reader has already reached the end of the input
+     * @throws UnsupportedOperationException
+     *             if the reader does not support reading whole segments
+     *
+     * @since 1.10
+     */
+    default EDIStreamEvent nextSegment() throws EDIStreamException {
+        throw new UnsupportedOperationException("nextSegment not supported");
+    }
+
+    /**
+     * Get a view of the tag and element data of the segment most recently
+     * read by {@link #nextSegment()}. The view is reused by the reader for
+     * each segment, avoiding the overhead of retrieving each element's data
+     * from the reader for applications that process whole segments.
+     *
+     * @return the view of the segment
+     * @throws IllegalStateException
+     *             if the reader has been advanced other than by a call to
+     *             {@link #nextSegment()} returning
+     *             {@link EDIStreamEvent#END_SEGMENT END_SEGMENT}, or if the
+     *             reader has been closed
+     * @throws UnsupportedOperationException
+     *             if the reader does not support reading whole segments
+     *
+     * @since 1.10
+     */
+    default SegmentView getSegment() {
+        throw new UnsupportedOperationException("getSegment not supported");
+    }
+
+    /**
+     * Skip the remainder of the current transaction. The segments between the
+     * current segment and the transaction's trailer segment (e.g. X12
+     * <code>SE</code> or EDIFACT <code>UNT</code>) are read without generating
+     * events or being validated, but are counted in the segment positions
+     * given by the reader's {@link Location}. The events of the trailer
+     * segment are processed as usual (without being returned), and the
+     * reader is left positioned at the
+     * {@link EDIStreamEvent#END_TRANSACTION END_TRANSACTION} event.
+     *
+     * Validation errors of the trailer segment are only available to an
+     * {@link EDIInputErrorReporter} given to the reader's factory. Segments
+     * containing binary data that would otherwise be detected using the
+     * transaction schema can not be skipped reliably.
+     *
+     * @return {@link EDIStreamEvent#END_TRANSACTION END_TRANSACTION}, or
+     *         {@link EDIStreamEvent#INCOMPLETE INCOMPLETE} when an
+     *         {@link EDIAsyncStreamReader} needs more input to complete the
+     *         skip, in which case the skip may be resumed by calling this
+     *         method again once more input has been fed
+     * @throws EDIStreamException
+     *             if there is an error processing the underlying EDI source
+     * @throws IllegalStateException
+     *             if the reader is not positioned within a transaction, i.e.
+     *             after a {@link EDIStreamEvent#START_TRANSACTION
+     *             START_TRANSACTION} event and before the corresponding
+     *             {@link EDIStreamEvent#END_TRANSACTION END_TRANSACTION}
+     * @throws UnsupportedOperationException
+     *             if the reader does not support skipping
+     *
+     * @since 1.10
+     */
+    default EDIStreamEvent skipTransaction() throws EDIStreamException {
+        throw new UnsupportedOperationException("skipTransaction not supported");
+    }
+
+    /**
+     * Skip the remainder of the current functional group. Each remaining
+     * transaction in the group is skipped as described for
+     * {@link #skipTransaction()}, with only the transaction header and
+     * trailer segments being processed. The reader is left positioned at the
+     * {@link EDIStreamEvent#END_GROUP END_GROUP} event.
+     *
+     * @return {@link EDIStreamEvent#END_GROUP END_GROUP}, or
+     *         {@link EDIStreamEvent#INCOMPLETE INCOMPLETE} when an
+     *         {@link EDIAsyncStreamReader} needs more input to complete the
+     *         skip, in which case the skip may be resumed by calling this
+     *         method again once more input has been fed
+     * @throws EDIStreamException
+     *             if there is an error processing the underlying EDI source
+     * @throws IllegalStateException
+     *             if the reader is not positioned within a functional group
+     * @throws UnsupportedOperationException
+     *             if the reader does not support skipping
+     *
+     * @since 1.10
+     */
+    default EDIStreamEvent skipGroup() throws EDIStreamException {
+        throw new UnsupportedOperationException("skipGroup not supported");
+    }
+
+    /**
+     * Reset this reader to read a new EDI input from the given stream. The
+     * reader continues with the same encoding, properties, and control schema
+     * (if one was given when the reader was created), but no other state from
+     * the previous input is retained. Resources allocated for reading, such as
+     * buffers and validators, are reused so that an application processing a
+     * large number of small inputs may do so with a single reader.
+     *
+     * The previous stream is closed only if it was opened by the reader's
+     * factory (e.g. for a {@link java.nio.file.Path Path}). The new stream is
+     * not closed by the reader.
+     *
+     * @param stream
+     *            {@link InputStream} from which the next EDI input will be
+     *            read
+     * @throws IllegalStateException
+     *             if the reader has been closed
+     * @throws IOException
+     *             if the previous stream could not be closed
+     * @throws UnsupportedOperationException
+     *             if the reader can not be reset
+     *
+     * @since 1.10
+     */
+    default void reset(InputStream stream) throws IOException {
+        throw new UnsupportedOperationException("reset not supported");
+    }
 }
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.stream;
+
+/**
+ * Processes a single transaction read from an {@link EDIStreamReader},
+ * producing a result. Used by
+ * {@link EDIInputFactory#processTransactions(java.nio.file.Path, EDITransactionHandler, java.util.function.Consumer, boolean, java.util.concurrent.ForkJoinPool)}
+ * to process the transactions of an input in parallel.
+ *
+ * @param <T>
+ *            the type of the result
+ *
+ * @since 1.10
+ */
+@FunctionalInterface
+public interface EDITransactionHandler<T> {
+
+    /**
+     * Process the transaction read by the given reader. The reader is
+     * positioned before the START_INTERCHANGE event of an interchange
+     * containing only the transaction (and its group, if any), and is closed
+     * once this method returns.
+     *
+     * @param reader
+     *            the reader of the transaction
+     * @return the result of processing the transaction
+     * @throws EDIStreamException
+     *             when the transaction can not be processed
+     */
+    T handle(EDIStreamReader reader) throws EDIStreamException;
+
+}
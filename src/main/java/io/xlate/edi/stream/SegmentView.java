@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.stream;
+
+import io.xlate.edi.schema.EDIReference;
+
+/**
+ * A view of a complete segment read by {@link EDIStreamReader#nextSegment()},
+ * obtained from {@link EDIStreamReader#getSegment()}. The view is owned and reused by the reader; its content, including the
+ * {@link CharSequence}s returned for element data, is only valid until the
+ * reader is next advanced. Applications that need to retain any data must copy
+ * it, e.g. using {@link CharSequence#toString()}.
+ *
+ * Elements, repetitions, and components are identified by their 1-based
+ * positions within the segment, the same as those given by the reader's
+ * {@link Location}.
+ *
+ * @since 1.10
+ */
+public interface SegmentView {
+
+    /**
+     * Get the segment's tag, e.g. <code>ST</code> or <code>UNH</code>.
+     *
+     * @return the segment tag
+     */
+    String getTag();
+
+    /**
+     * Get the location of the start of the segment.
+     *
+     * @return the location of the segment
+     */
+    Location getLocation();
+
+    /**
+     * Get the schema reference for the segment, when available. See
+     * {@link EDIStreamReader#getSchemaTypeReference()}.
+     *
+     * @return the schema reference for the segment, or null
+     */
+    EDIReference getSchemaTypeReference();
+
+    /**
+     * Get the position of the last element present in the segment.
+     *
+     * @return the number of elements in the segment
+     */
+    int getElementCount();
+
+    /**
+     * Get the number of occurrences of an element present in the segment.
+     *
+     * @param element
+     *            the position of the element
+     * @return the number of occurrences of the element, or 0 when the element
+     *         is not present
+     */
+    int getRepetitionCount(int element);
+
+    /**
+     * Get the position of the last component present in an occurrence of an
+     * element. A simple element, or a composite given without component
+     * separators, is considered to have a single component.
+     *
+     * @param element
+     *            the position of the element
+     * @param repetition
+     *            the occurrence of the element
+     * @return the number of components in the element occurrence, or 0 when
+     *         the occurrence is not present
+     */
+    int getComponentCount(int element, int repetition);
+
+    /**
+     * Get the data of the first occurrence of an element. Equivalent to
+     * <code>getComponent(element, 1, 1)</code>.
+     *
+     * @param element
+     *            the position of the element
+     * @return the data of the element (or its first component), or null when
+     *         the element is not present
+     */
+    CharSequence getElement(int element);
+
+    /**
+     * Get the data of an occurrence of an element. Equivalent to
+     * <code>getComponent(element, repetition, 1)</code>.
+     *
+     * @param element
+     *            the position of the element
+     * @param repetition
+     *            the occurrence of the element
+     * @return the data of the element occurrence (or its first component), or
+     *         null when the occurrence is not present
+     */
+    CharSequence getElement(int element, int repetition);
+
+    /**
+     * Get the data of a component of an occurrence of an element. Component
+     * 1 of a simple element is the element's data.
+     *
+     * @param element
+     *            the position of the element
+     * @param repetition
+     *            the occurrence of the element
+     * @param component
+     *            the position of the component
+     * @return the data of the component, or null when the component is not
+     *         present
+     */
+    CharSequence getComponent(int element, int repetition, int component);
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.stream;
+
+import io.xlate.edi.schema.EDISchemaException;
+import io.xlate.edi.schema.Schema;
+
+/**
+ * This interface is used by an {@link EDIStreamReader} to select the schema
+ * for each transaction/message in the input, based on the identifying
+ * information found in the transaction's header segment. A resolver is given
+ * to the reader using the
+ * {@link EDIInputFactory#EDI_TRANSACTION_SCHEMA_RESOLVER} property.
+ *
+ * The resolver is called by the reader after the header segment (e.g. X12
+ * <code>ST</code> or EDIFACT <code>UNH</code>) of each transaction has been
+ * read and before the corresponding {@link EDIStreamEvent#END_SEGMENT
+ * END_SEGMENT} event is returned. The schema returned is used to validate the
+ * remainder of the transaction in the same way as a schema given to
+ * {@link EDIStreamReader#setTransactionSchema(Schema)}, which may still be
+ * called by the application to replace it while the header segment is
+ * current.
+ *
+ * Implementations are typically expected to return cached schemas, for example
+ * using a {@link io.xlate.edi.schema.SchemaRegistry SchemaRegistry}.
+ *
+ * @since 1.10
+ */
+@FunctionalInterface
+public interface TransactionSchemaResolver {
+    /**
+     * Select the schema for a transaction.
+     *
+     * @param standard
+     *            the standard of the interchange, e.g. X12 or EDIFACT
+     * @param transactionVersion
+     *            the identifying elements of the version of the standard used
+     *            by the transaction. For X12, the agency and version of the
+     *            functional group (GS07 and GS08), regardless of any
+     *            implementation convention reference. For EDIFACT, the
+     *            controlling agency, version, release, and association
+     *            assigned code of the message identifier (UNH02).
+     * @param transactionType
+     *            the code identifying the type of the transaction, e.g. the
+     *            transaction set identifier (X12 ST01) or the message type
+     *            (EDIFACT UNH02-1)
+     * @param implementationReference
+     *            the reference to the implementation convention of the
+     *            transaction (X12 ST03), or null when not present. Always null
+     *            for EDIFACT.
+     * @return the schema for the transaction, or null when the transaction
+     *         should not be validated by a transaction schema
+     * @throws EDISchemaException
+     *             when the schema can not be obtained
+     */
+    Schema resolve(String standard, String[] transactionVersion, String transactionType, String implementationReference)
+            throws EDISchemaException;
+}
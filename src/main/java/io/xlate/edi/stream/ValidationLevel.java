@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.stream;
+
+/**
+ * The extent to which an {@link EDIStreamReader} validates its input against
+ * the control schema and any transaction schema in use, given to the reader
+ * using the {@link EDIInputFactory#EDI_VALIDATION_LEVEL} property. Validation
+ * not required by the selected level is not performed at all, rather than
+ * being performed with its results discarded.
+ *
+ * @since 1.10
+ */
+public enum ValidationLevel {
+    /**
+     * No validation is performed and no schema is applied to the input,
+     * including the control schema. Only interchange, segment, composite, and
+     * element events are generated, since group, transaction, and loop
+     * boundaries are determined using the schemas. This is equivalent to
+     * setting {@link EDIInputFactory#EDI_VALIDATE_CONTROL_STRUCTURE} to false
+     * and not using a transaction schema.
+     */
+    NONE,
+
+    /**
+     * The sequence and occurrences of segments and loops are validated.
+     * Elements are not validated, i.e. no element type, length, code value,
+     * requirement, or syntax rule checks are performed.
+     */
+    STRUCTURE,
+
+    /**
+     * Segments, loops, and elements are fully validated. This is the default.
+     */
+    FULL;
+}
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.stream;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.xlate.edi.internal.stream.StaEDISegmentSubscription;
+
+/**
+ * A {@link Flow.Publisher} of the segments read by an {@link EDIStreamReader},
+ * for use by applications built on reactive libraries. Segments are read only
+ * as they are requested by the subscriber, so the input is consumed
+ * incrementally and the number of segments held in memory is bounded by the
+ * subscriber's demand.
+ *
+ * Segments are read and delivered by tasks submitted to an {@link Executor}
+ * while demand is outstanding; no thread is dedicated to the reader while the
+ * subscriber is not requesting segments. Each task delivers a bounded number
+ * of segments before it is submitted again. The tasks block while reading the
+ * input, so the executor should be one suited to blocking work (e.g. a
+ * dedicated thread pool or virtual threads) rather than the
+ * {@link java.util.concurrent.ForkJoinPool#commonPool() common pool}. Each
+ * {@link SegmentView} delivered is an independent copy that the subscriber may
+ * retain.
+ *
+ * The publisher supports a single subscriber, since the reader may only be
+ * read once. An {@link EDIAsyncStreamReader} is not supported, since the
+ * publisher is not able to feed it input. The reader is closed when the
+ * subscriber has received all segments, when an error occurs, or when the
+ * subscription is cancelled. Validation errors are reported as for
+ * {@link EDIStreamReader#nextSegment()}.
+ *
+ * @since 1.10
+ */
+public class EDISegmentPublisher implements Flow.Publisher<SegmentView> {
+
+    private final EDIStreamReader reader;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Create a publisher of the segments read by the reader, delivered using
+     * the given executor.
+     *
+     * @param reader
+     *            the reader of the segments to be published
+     * @param executor
+     *            the executor used to read and deliver segments
+     * @throws IllegalArgumentException
+     *             if the reader is an {@link EDIAsyncStreamReader}
+     */
+    public EDISegmentPublisher(EDIStreamReader reader, Executor executor) {
+        this.reader = StaEDISegmentSubscription.requireBlockingReader(Objects.requireNonNull(reader, "reader"));
+        this.executor = Objects.requireNonNull(executor, "executor");
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SegmentView> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    // Nothing to deliver
+                }
+
+                @Override
+                public void cancel() {
+                    // Nothing to cancel
+                }
+            });
+            subscriber.onError(new IllegalStateException("Publisher supports a single subscriber"));
+            return;
+        }
+
+        StaEDISegmentSubscription subscription = new StaEDISegmentSubscription(reader,
+                                                                               executor,
+                                                                               subscriber::onNext,
+                                                                               subscriber::onError,
+                                                                               subscriber::onComplete);
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                subscription.request(n);
+            }
+
+            @Override
+            public void cancel() {
+                subscription.cancel();
+            }
+        });
+
+        // Segments are only delivered once onSubscribe has returned
+        subscription.start();
+    }
+}
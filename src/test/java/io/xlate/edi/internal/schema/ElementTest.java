@@ -24,4 +24,41 @@ class ElementTest {
         assertEquals("id: E1, type: ELEMENT, base: STRING, code: 1, minLength: 0, maxLength: 5, values: [ABCDE, FGHIJ]", e.toString());
     }
 
+    @Test
+    void testElementVersionedAttributes() {
+        ElementType e = new ElementType("E1", Base.STRING, "1", 1, 1L, 5L, Collections.singleton("A"),
+                                        Arrays.asList(new ElementType.Version("", "003040", 2L, null, null),
+                                                      new ElementType.Version("004010", "", null, 10L, Collections.singleton("B"))));
+
+        for (int i = 0; i < 2; i++) {
+            // Second pass resolves the applicable version from the cache
+            assertEquals(2L, e.getMinLength("003030"));
+            assertEquals(5L, e.getMaxLength("003030"));
+            assertEquals(Collections.singleton("A"), e.getValueSet("003030"));
+
+            assertEquals(1L, e.getMinLength("003050"));
+            assertEquals(5L, e.getMaxLength("003050"));
+
+            assertEquals(1L, e.getMinLength("005010"));
+            assertEquals(10L, e.getMaxLength("005010"));
+            assertEquals(Collections.singleton("B"), e.getValueSet("005010"));
+        }
+    }
+
+    @Test
+    void testElementVersionsResolvedLimited() {
+        ElementType e = new ElementType("E1", Base.STRING, "1", 1, 1L, 5L, Collections.singleton("A"),
+                                        Arrays.asList(new ElementType.Version("", "003040", 2L, null, null),
+                                                      new ElementType.Version("004010", "", null, 10L, Collections.singleton("B"))));
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(2L, e.getMinLength(String.format("002%03d", i)));
+            assertEquals(10L, e.getMaxLength(String.format("005%03d", i)));
+        }
+
+        assertEquals(VersionIndex.MAXIMUM_RESOLVED, e.versions.getResolvedCount());
+        // Retained versions continue to resolve
+        assertEquals(2L, e.getMinLength("002000"));
+        assertEquals(Collections.singleton("B"), e.getValueSet("005999"));
+    }
 }
@@ -16,6 +16,7 @@
 package io.xlate.edi.internal.schema;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -24,14 +25,22 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.AbstractMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -40,12 +49,18 @@ import javax.xml.stream.XMLStreamException;
 
 import org.junit.jupiter.api.Test;
 
+import io.xlate.edi.internal.schema.implementation.BaseComplexImpl;
+import io.xlate.edi.internal.schema.implementation.BaseImpl;
 import io.xlate.edi.schema.EDIComplexType;
+import io.xlate.edi.schema.EDIReference;
 import io.xlate.edi.schema.EDISchemaException;
 import io.xlate.edi.schema.EDISimpleType;
 import io.xlate.edi.schema.EDIType;
 import io.xlate.edi.schema.Schema;
 import io.xlate.edi.schema.SchemaFactory;
+import io.xlate.edi.schema.implementation.EDITypeImplementation;
+import io.xlate.edi.schema.implementation.LoopImplementation;
+import io.xlate.edi.schema.implementation.SegmentImplementation;
 import io.xlate.edi.stream.EDIStreamConstants.Standards;
 
 @SuppressWarnings("resource")
@@ -88,6 +103,80 @@ class StaEDISchemaFactoryTest {
         assertEquals(StaEDISchema.INTERCHANGE_ID, schema.getStandard().getId(), "Incorrect root id");
     }
 
+    @Test
+    void testPreloadControlSchemas() throws EDISchemaException {
+        SchemaFactory factory = SchemaFactory.newFactory();
+        assertEquals(7, factory.preloadControlSchemas(Standards.EDIFACT));
+        assertTrue(SchemaUtils.controlSchemas.containsKey("/EDIFACT/v2.xml"));
+        assertTrue(SchemaUtils.controlSchemas.containsKey("/EDIFACT/v4r02.xml"));
+    }
+
+    @Test
+    void testControlSchemaLoadedOnceConcurrently() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<Schema>> results = executor.invokeAll(Collections.nCopies(8, () -> SchemaUtils.getControlSchema(Standards.X12, new String[] { "00704" })));
+            Schema expected = results.get(0).get();
+            assertNotNull(expected);
+
+            for (Future<Schema> result : results) {
+                assertSame(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void testControlSchemaAwaitedOutsideMapLock() throws Exception {
+        Schema expected = SchemaUtils.getControlSchema(Standards.X12, new String[] { "00704" });
+        String resource = "/test/pending-control-schema.xml";
+        FutureTask<Schema> loading = new FutureTask<>(() -> expected);
+        SchemaUtils.controlSchemas.put(resource, loading);
+
+        try {
+            FutureTask<Schema> waiting = new FutureTask<>(() -> SchemaUtils.getControlSchema(new AbstractMap.SimpleEntry<>("X12.99999", resource)));
+            Thread waiter = new Thread(waiting);
+            waiter.start();
+            long deadline = System.currentTimeMillis() + 10_000;
+
+            // The waiting thread is parked on the task, not blocked on a monitor of the map
+            while (waiter.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+                assertNotEquals(Thread.State.BLOCKED, waiter.getState());
+                Thread.sleep(1);
+            }
+
+            assertEquals(Thread.State.WAITING, waiter.getState());
+            loading.run();
+            assertSame(expected, waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            SchemaUtils.controlSchemas.remove(resource);
+        }
+    }
+
+    @Test
+    void testControlSchemaFailureNotRetained() {
+        String resource = "/test/failed-control-schema.xml";
+        FutureTask<Schema> failed = new FutureTask<>(() -> {
+            throw new EDISchemaException("Simulated failure");
+        });
+        failed.run();
+        SchemaUtils.controlSchemas.put(resource, failed);
+
+        EDISchemaException thrown = assertThrows(EDISchemaException.class,
+                                                 () -> SchemaUtils.getControlSchema(new AbstractMap.SimpleEntry<>("X12.99999", resource)));
+        assertEquals("Simulated failure", thrown.getMessage());
+        assertFalse(SchemaUtils.controlSchemas.containsKey(resource));
+    }
+
+    @Test
+    void testVersionsSharingControlSchema() throws EDISchemaException {
+        Schema v2 = SchemaUtils.getControlSchema(Standards.EDIFACT, new String[] { "UNOA", "2" });
+        Schema v1 = SchemaUtils.getControlSchema(Standards.EDIFACT, new String[] { "UNOA", "1" });
+        assertSame(v1, v2);
+    }
+
     @Test
     void testIsPropertySupportedTrue() {
         SchemaFactory factory = SchemaFactory.newFactory();
@@ -706,4 +795,134 @@ class StaEDISchemaFactoryTest {
         }
         assertTrue(root instanceof IOException);
     }
+
+    Schema binaryCopy(SchemaFactory factory, Schema schema) throws EDISchemaException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        factory.writeSchema(schema, output);
+        return factory.createSchema(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    void assertSchemaTypesEqual(Schema expected, Schema actual) {
+        List<EDIType> mismatched = StreamSupport.stream(expected.spliterator(), false)
+                                                .filter(type -> !(type.equals(actual.getType(type.getId()))
+                                                        && type.hashCode() == Objects.hashCode(actual.getType(type.getId()))
+                                                        && type.toString().equals(String.valueOf(actual.getType(type.getId())))))
+                                                .collect(Collectors.toList());
+        long actualCount = StreamSupport.stream(actual.spliterator(), false).count();
+        long expectedCount = StreamSupport.stream(expected.spliterator(), false).count();
+
+        assertTrue(mismatched.isEmpty(), () -> "Binary schema types differ: " + mismatched);
+        assertEquals(expectedCount, actualCount);
+        assertEquals(expected.getStandard().getId(), actual.getStandard().getId());
+        assertEquals(expected.getImplementation(), actual.getImplementation());
+    }
+
+    /**
+     * Compare the implementation trees, including the attributes and standard
+     * references not considered by the implementations' equals methods.
+     */
+    void assertImplementationsEqual(EDITypeImplementation expected, EDITypeImplementation actual, String... versions) {
+        assertEquals(expected, actual);
+
+        if (expected == null) {
+            return;
+        }
+
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+
+        EDIReference expectedRef = ((BaseImpl<?>) expected).getStandardReference();
+        EDIReference actualRef = ((BaseImpl<?>) actual).getStandardReference();
+        assertEquals(expectedRef.getReferencedType(), actualRef.getReferencedType());
+        assertEquals(expectedRef.hasVersions(), actualRef.hasVersions());
+
+        for (String version : versions) {
+            assertEquals(expectedRef.getMinOccurs(version), actualRef.getMinOccurs(version));
+            assertEquals(expectedRef.getMaxOccurs(version), actualRef.getMaxOccurs(version));
+        }
+
+        if (expected instanceof BaseComplexImpl) {
+            List<EDITypeImplementation> expectedSequence = ((BaseComplexImpl) expected).getSequence();
+            List<EDITypeImplementation> actualSequence = ((BaseComplexImpl) actual).getSequence();
+            assertEquals(expectedSequence.size(), actualSequence.size());
+
+            for (int i = 0; i < expectedSequence.size(); i++) {
+                assertImplementationsEqual(expectedSequence.get(i), actualSequence.get(i), versions);
+            }
+        }
+    }
+
+    @Test
+    void testBinarySchemaWithImplementation() throws EDISchemaException {
+        SchemaFactory factory = SchemaFactory.newFactory();
+        Schema schema = factory.createSchema(getClass().getResource("/x12/IG-999.xml"));
+        Schema binary = binaryCopy(factory, schema);
+
+        assertNotNull(binary.getImplementation());
+        assertEquals(StaEDISchema.IMPLEMENTATION_ID, binary.getImplementation().getId());
+        assertSchemaTypesEqual(schema, binary);
+        assertEquals(schema.hashCode(), binary.hashCode());
+        assertImplementationsEqual(schema.getImplementation(), binary.getImplementation());
+
+        schema = factory.createSchema(getClass().getResource("/x12/EDISchemaMultiVersionImplementation.xml"));
+        binary = binaryCopy(factory, schema);
+        assertSchemaTypesEqual(schema, binary);
+        assertImplementationsEqual(schema.getImplementation(), binary.getImplementation(), "X.003010", "X.004010");
+
+        LoopImplementation transaction = binary.getImplementation();
+        assertEquals("Implementation with version-specific occurrences", transaction.getDescription());
+        SegmentImplementation segment = (SegmentImplementation) transaction.getSequence().get(0);
+        assertEquals("Versioned Segment", segment.getTitle());
+
+        EDIReference e999 = ((BaseImpl<?>) segment.getSequence().get(0)).getStandardReference();
+        assertTrue(e999.hasVersions());
+        assertEquals(0, e999.getMinOccurs("X.003010"));
+        assertEquals(1, e999.getMinOccurs("X.004010"));
+        EDIReference e000 = ((BaseImpl<?>) segment.getSequence().get(1)).getStandardReference();
+        assertEquals(1, e000.getMaxOccurs("X.003010"));
+        assertEquals(5, e000.getMaxOccurs("X.004010"));
+        assertSame(((EDIComplexType) binary.getType("S0A")).getReferences().get(1), e000);
+    }
+
+    @Test
+    void testBinarySchemaWithInclude() throws EDISchemaException {
+        SchemaFactory factory = SchemaFactory.newFactory();
+        Schema schema = factory.createSchema(getClass().getResource("/x12/005010X222/837.xml"));
+        assertSchemaTypesEqual(schema, binaryCopy(factory, schema));
+    }
+
+    @Test
+    void testBinaryControlSchema() throws EDISchemaException {
+        SchemaFactory factory = SchemaFactory.newFactory();
+        Schema schema = factory.getControlSchema(Standards.EDIFACT, new String[] { "UNOA", "4", "", "", "" });
+        Schema binary = binaryCopy(factory, schema);
+        assertSchemaTypesEqual(schema, binary);
+        assertEquals(StaEDISchema.INTERCHANGE_ID, binary.getStandard().getId());
+    }
+
+    @Test
+    void testBinarySchemaVersionedTypes() throws EDISchemaException {
+        SchemaFactory factory = SchemaFactory.newFactory();
+        Schema schema = factory.createSchema(getClass().getResource("/x12/EDISchemaMultiVersionElementType.xml"));
+        Schema binary = binaryCopy(factory, schema);
+        assertSchemaTypesEqual(schema, binary);
+
+        EDISimpleType expected = (EDISimpleType) schema.getType("E999");
+        EDISimpleType actual = (EDISimpleType) binary.getType("E999");
+        assertTrue(actual.hasVersions());
+
+        for (String version : new String[] { "X.003010", "X.004010", "X.005010" }) {
+            assertEquals(expected.getMinLength(version), actual.getMinLength(version));
+            assertEquals(expected.getMaxLength(version), actual.getMaxLength(version));
+            assertEquals(expected.getValueSet(version), actual.getValueSet(version));
+        }
+    }
+
+    @Test
+    void testBinarySchemaUnsupportedVersion() {
+        SchemaFactory factory = SchemaFactory.newFactory();
+        InputStream stream = new ByteArrayInputStream(new byte[] { 'E', 'D', 'I', 'S', 0, 99 });
+        EDISchemaException thrown = assertThrows(EDISchemaException.class, () -> factory.createSchema(stream));
+        assertEquals("Unsupported binary schema version: 99", thrown.getOriginalMessage());
+    }
 }
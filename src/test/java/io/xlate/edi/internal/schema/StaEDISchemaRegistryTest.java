@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.schema;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.schema.EDISchemaException;
+import io.xlate.edi.schema.Schema;
+import io.xlate.edi.schema.SchemaRegistry;
+
+class StaEDISchemaRegistryTest {
+
+    final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    Schema load(String key) {
+        loads.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+        return new StaEDISchema(StaEDISchema.INTERCHANGE_ID, StaEDISchema.TRANSACTION_ID);
+    }
+
+    int loadCount(String key) {
+        AtomicInteger count = loads.get(key);
+        return count != null ? count.get() : 0;
+    }
+
+    @Test
+    void testSchemaLoadedOnce() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        SchemaRegistry<String> registry = SchemaRegistry.newRegistry(10, key -> {
+            try {
+                loading.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EDISchemaException("Interrupted", e);
+            }
+            return load(key);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<Schema>> results = new ArrayList<>();
+
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> registry.getSchema("850")));
+            }
+
+            loading.countDown();
+            Schema first = results.get(0).get();
+
+            for (Future<Schema> result : results) {
+                assertSame(first, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loadCount("850"));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() throws EDISchemaException {
+        SchemaRegistry<String> registry = SchemaRegistry.newRegistry(2, this::load);
+        Schema a = registry.getSchema("A");
+        registry.getSchema("B");
+        assertSame(a, registry.getSchema("A"));
+
+        registry.getSchema("C");
+
+        assertEquals(2, registry.size());
+        assertSame(a, registry.getSchemaIfPresent("A"));
+        assertNull(registry.getSchemaIfPresent("B"));
+
+        registry.getSchema("B");
+        assertEquals(2, loadCount("B"));
+        assertEquals(1, loadCount("A"));
+    }
+
+    @Test
+    void testManyKeysEvictedInOrderOfUse() throws EDISchemaException {
+        SchemaRegistry<String> registry = SchemaRegistry.newRegistry(100, this::load);
+        Schema first = registry.getSchema("P0");
+
+        for (int i = 1; i < 1000; i++) {
+            registry.getSchema("P" + i);
+            // Keep the first schema in use
+            assertSame(first, registry.getSchema("P0"));
+        }
+
+        assertEquals(100, registry.size());
+        assertSame(first, registry.getSchemaIfPresent("P0"));
+        assertNull(registry.getSchemaIfPresent("P900"));
+        assertNotNull(registry.getSchemaIfPresent("P901"));
+        assertNotNull(registry.getSchemaIfPresent("P999"));
+        assertEquals(1, loadCount("P0"));
+    }
+
+    @Test
+    void testWeightedEviction() throws EDISchemaException {
+        Map<Schema, Long> weights = Collections.synchronizedMap(new IdentityHashMap<>());
+        SchemaRegistry<Long> registry = SchemaRegistry.newRegistry(10, weights::get, key -> {
+            Schema schema = load(String.valueOf(key));
+            weights.put(schema, key);
+            return schema;
+        });
+
+        registry.getSchema(4L);
+        registry.getSchema(5L);
+        assertEquals(2, registry.size());
+
+        registry.getSchema(6L);
+        assertNull(registry.getSchemaIfPresent(4L));
+        assertNull(registry.getSchemaIfPresent(5L));
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    void testFailedLoadNotRetained() throws EDISchemaException {
+        AtomicInteger attempts = new AtomicInteger();
+        SchemaRegistry<String> registry = SchemaRegistry.newRegistry(10, key -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new EDISchemaException("Not yet available");
+            }
+            return load(key);
+        });
+
+        EDISchemaException thrown = assertThrows(EDISchemaException.class, () -> registry.getSchema("810"));
+        assertEquals("Not yet available", thrown.getOriginalMessage());
+        assertEquals(0, registry.size());
+        registry.getSchema("810");
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void testNullSchemaFromLoader() {
+        SchemaRegistry<String> registry = SchemaRegistry.newRegistry(10, key -> null);
+        EDISchemaException thrown = assertThrows(EDISchemaException.class, () -> registry.getSchema("997"));
+        assertEquals("Loader returned no schema for key 997", thrown.getOriginalMessage());
+    }
+
+    @Test
+    void testPutAndInvalidate() throws EDISchemaException {
+        SchemaRegistry<String> registry = SchemaRegistry.newRegistry(10, this::load);
+        Schema put = new StaEDISchema(StaEDISchema.INTERCHANGE_ID, StaEDISchema.TRANSACTION_ID);
+        registry.putSchema("A", put);
+        assertSame(put, registry.getSchema("A"));
+        assertEquals(0, loadCount("A"));
+
+        registry.invalidate("A");
+        assertNull(registry.getSchemaIfPresent("A"));
+        assertNotSame(put, registry.getSchema("A"));
+
+        registry.getSchema("B");
+        registry.invalidateAll();
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> SchemaRegistry.newRegistry(-1, this::load));
+        assertThrows(NullPointerException.class, () -> SchemaRegistry.newRegistry(1, null));
+    }
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class CharacterEncoderTest {
+
+    static byte[] encode(String text, Charset charset) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CharacterEncoder encoder = new CharacterEncoder(stream, charset);
+
+        for (int i = 0; i < text.length(); i++) {
+            encoder.write(text.charAt(i));
+        }
+
+        encoder.flush();
+        return stream.toByteArray();
+    }
+
+    static byte[] expected(String text, Charset charset) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+
+        try (Writer writer = new OutputStreamWriter(stream, charset)) {
+            writer.write(text);
+        }
+
+        return stream.toByteArray();
+    }
+
+    @Test
+    void testEncodingMatchesOutputStreamWriter() throws IOException {
+        StringBuilder text = new StringBuilder();
+
+        // Surrogate pairs fall across the boundaries of the encoder's buffer
+        for (int i = 0; i < 5000; i++) {
+            text.append("UNH+").append(i).append("+é😀'");
+        }
+
+        for (Charset charset : new Charset[] { StandardCharsets.UTF_8,
+                                               StandardCharsets.ISO_8859_1,
+                                               StandardCharsets.US_ASCII,
+                                               StandardCharsets.UTF_16BE }) {
+            assertArrayEquals(expected(text.toString(), charset), encode(text.toString(), charset), charset.name());
+        }
+    }
+
+    @Test
+    void testIncompleteSurrogateRetained() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        CharacterEncoder encoder = new CharacterEncoder(stream, StandardCharsets.UTF_8);
+
+        encoder.write('A');
+        encoder.write('\uD83D');
+        encoder.flush();
+        assertArrayEquals(new byte[] { 'A' }, stream.toByteArray());
+
+        encoder.write('\uDE00');
+        encoder.flush();
+        assertArrayEquals("A😀".getBytes(StandardCharsets.UTF_8), stream.toByteArray());
+    }
+}
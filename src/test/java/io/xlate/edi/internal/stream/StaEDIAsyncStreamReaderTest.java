@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.stream.EDIAsyncStreamReader;
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.SegmentView;
+
+class StaEDIAsyncStreamReaderTest {
+
+    static byte[] readResource(String name) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        try (InputStream stream = StaEDIAsyncStreamReaderTest.class.getResourceAsStream(name)) {
+            byte[] chunk = new byte[1024];
+            int count;
+            while ((count = stream.read(chunk)) > -1) {
+                buffer.write(chunk, 0, count);
+            }
+        }
+
+        return buffer.toByteArray();
+    }
+
+    static String describe(EDIStreamReader reader, EDIStreamEvent event) {
+        switch (event) {
+        case ELEMENT_DATA:
+        case START_SEGMENT:
+        case END_SEGMENT:
+        case START_LOOP:
+        case END_LOOP:
+            return event + ":" + reader.getText();
+        default:
+            return event.toString();
+        }
+    }
+
+    static List<String> readBlocking(byte[] input) throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<String> events = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(new ByteArrayInputStream(input))) {
+            while (reader.hasNext()) {
+                events.add(describe(reader, reader.next()));
+            }
+        }
+
+        return events;
+    }
+
+    static List<String> readAsync(byte[] input, int chunkSize) throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<String> events = new ArrayList<>();
+        int offset = 0;
+
+        try (EDIAsyncStreamReader reader = factory.createEDIAsyncStreamReader()) {
+            while (reader.hasNext()) {
+                EDIStreamEvent event = reader.next();
+
+                if (event == EDIStreamEvent.INCOMPLETE) {
+                    assertTrue(reader.needMoreInput());
+                    assertEquals(EDIStreamEvent.INCOMPLETE, reader.getEventType());
+
+                    if (offset < input.length) {
+                        int length = Math.min(chunkSize, input.length - offset);
+                        reader.feedInput(ByteBuffer.wrap(input, offset, length));
+                        offset += length;
+                    } else {
+                        reader.endOfInput();
+                    }
+                } else {
+                    assertFalse(reader.needMoreInput());
+                    events.add(describe(reader, event));
+                }
+            }
+        }
+
+        return events;
+    }
+
+    void assertEventsMatchBlocking(byte[] input) throws Exception {
+        List<String> expected = readBlocking(input);
+
+        for (int chunkSize : new int[] { 1, 2, 3, 7, 64, input.length }) {
+            assertEquals(expected, readAsync(input, chunkSize), "Unexpected events with chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void testX12EventsMatchBlockingReader() throws Exception {
+        assertEventsMatchBlocking(readResource("/x12/simple997.edi"));
+    }
+
+    @Test
+    void testEdifactEventsMatchBlockingReader() throws Exception {
+        assertEventsMatchBlocking(readResource("/EDIFACT/invoic_d93a_una.edi"));
+    }
+
+    @Test
+    void testMultiByteCharacterSplitAcrossFeeds() throws Exception {
+        byte[] input = ("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~"
+                + "S01*Ünïcödé*€uro~"
+                + "IEA*1*508121953~").getBytes(StandardCharsets.UTF_8);
+
+        List<String> events = readAsync(input, 1);
+        assertEquals(readBlocking(input), events);
+        assertTrue(events.contains("ELEMENT_DATA:Ünïcödé"));
+        assertTrue(events.contains("ELEMENT_DATA:€uro"));
+    }
+
+    @Test
+    void testIncompleteInterchangeAtEndOfInput() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIAsyncStreamReader reader = factory.createEDIAsyncStreamReader();
+        byte[] input = readResource("/x12/simple997.edi");
+
+        reader.feedInput(ByteBuffer.wrap(input, 0, input.length / 2));
+
+        while (reader.next() != EDIStreamEvent.INCOMPLETE) {
+            assertFalse(reader.needMoreInput());
+        }
+
+        reader.endOfInput();
+        assertThrows(EDIStreamException.class, () -> {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+        });
+        reader.close();
+    }
+
+    @Test
+    void testResetReadsNextInput() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        byte[][] inputs = { readResource("/x12/simple997.edi"), readResource("/EDIFACT/invoic_d93a_una.edi") };
+
+        try (EDIAsyncStreamReader reader = factory.createEDIAsyncStreamReader()) {
+            // Abandon the first interchange part-way through
+            reader.feedInput(ByteBuffer.wrap(inputs[0], 0, inputs[0].length / 2));
+            while (reader.next() != EDIStreamEvent.INCOMPLETE) {
+                assertFalse(reader.needMoreInput());
+            }
+
+            for (byte[] input : inputs) {
+                reader.reset();
+                List<String> events = new ArrayList<>();
+                reader.feedInput(ByteBuffer.wrap(input));
+                reader.endOfInput();
+
+                while (reader.hasNext()) {
+                    EDIStreamEvent event = reader.next();
+                    if (event != EDIStreamEvent.INCOMPLETE) {
+                        events.add(describe(reader, event));
+                    }
+                }
+
+                assertEquals(readBlocking(input), events);
+            }
+
+            assertThrows(UnsupportedOperationException.class, () -> reader.reset(new ByteArrayInputStream(inputs[0])));
+        }
+    }
+
+    @Test
+    void testNextSegmentResumedAfterMoreInput() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        byte[] input = readResource("/x12/simple997.edi");
+        List<String> expected = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(new ByteArrayInputStream(input))) {
+            while (reader.nextSegment() == EDIStreamEvent.END_SEGMENT) {
+                SegmentView view = reader.getSegment();
+                expected.add(view.getTag() + view.getElementCount() + ':' + view.getElement(view.getElementCount()));
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+        int offset = 0;
+
+        try (EDIAsyncStreamReader reader = factory.createEDIAsyncStreamReader()) {
+            while (reader.hasNext()) {
+                EDIStreamEvent event = reader.nextSegment();
+
+                if (event == EDIStreamEvent.END_SEGMENT) {
+                    SegmentView view = reader.getSegment();
+                    actual.add(view.getTag() + view.getElementCount() + ':' + view.getElement(view.getElementCount()));
+                } else if (event == EDIStreamEvent.INCOMPLETE) {
+                    assertTrue(reader.needMoreInput());
+
+                    if (offset < input.length) {
+                        int length = Math.min(5, input.length - offset);
+                        reader.feedInput(ByteBuffer.wrap(input, offset, length));
+                        offset += length;
+                    } else {
+                        reader.endOfInput();
+                    }
+                }
+            }
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    static byte[] readBinaryElement(EDIStreamReader reader) throws Exception {
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+        try (InputStream data = reader.getBinaryData()) {
+            int next;
+            while ((next = data.read()) > -1) {
+                binary.write(next);
+            }
+        }
+
+        return binary.toByteArray();
+    }
+
+    @Test
+    void testBinaryElementFedInChunks() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        byte[] input = readResource("/x12/sample275_with_HL7_valid_BIN01.edi");
+        byte[] expected = null;
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(new ByteArrayInputStream(input))) {
+            while (reader.hasNext()) {
+                EDIStreamEvent event = reader.next();
+
+                if (event == EDIStreamEvent.START_SEGMENT && "BIN".equals(reader.getText())) {
+                    reader.next();
+                    reader.setBinaryDataLength(Long.parseLong(reader.getText()));
+                    assertEquals(EDIStreamEvent.ELEMENT_DATA_BINARY, reader.next());
+                    expected = readBinaryElement(reader);
+                }
+            }
+        }
+
+        assertEquals(2768, expected.length);
+
+        for (int chunkSize : new int[] { 1, 100, 1000 }) {
+            List<String> events = new ArrayList<>();
+            byte[] actual = null;
+            int offset = 0;
+            boolean binaryLength = false;
+
+            try (EDIAsyncStreamReader reader = factory.createEDIAsyncStreamReader()) {
+                while (reader.hasNext()) {
+                    EDIStreamEvent event = reader.next();
+
+                    if (event == EDIStreamEvent.INCOMPLETE) {
+                        if (offset < input.length) {
+                            int length = Math.min(chunkSize, input.length - offset);
+                            reader.feedInput(ByteBuffer.wrap(input, offset, length));
+                            offset += length;
+                        } else {
+                            reader.endOfInput();
+                        }
+                        continue;
+                    }
+
+                    events.add(describe(reader, event));
+
+                    if (binaryLength) {
+                        reader.setBinaryDataLength(Long.parseLong(reader.getText()));
+                        binaryLength = false;
+                    } else if (event == EDIStreamEvent.START_SEGMENT && "BIN".equals(reader.getText())) {
+                        binaryLength = true;
+                    } else if (event == EDIStreamEvent.ELEMENT_DATA_BINARY) {
+                        actual = readBinaryElement(reader);
+                    }
+                }
+            }
+
+            assertArrayEquals(expected, actual, "Unexpected binary data with chunk size " + chunkSize);
+            assertTrue(events.contains("ELEMENT_DATA_BINARY"));
+            assertEquals("END_SEGMENT:BIN", events.get(events.indexOf("ELEMENT_DATA_BINARY") + 1));
+            assertEquals(EDIStreamEvent.END_INTERCHANGE.toString(), events.get(events.size() - 1));
+        }
+    }
+
+    @Test
+    void testFeedInputAfterEndOfInput() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+
+        try (EDIAsyncStreamReader reader = factory.createEDIAsyncStreamReader()) {
+            reader.endOfInput();
+            ByteBuffer input = ByteBuffer.wrap(new byte[] { 'I', 'S', 'A' });
+            assertThrows(IllegalStateException.class, () -> reader.feedInput(input));
+        }
+    }
+
+    @Test
+    void testCreateEDIAsyncStreamReaderInvalidEncoding() {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamException e = assertThrows(EDIStreamException.class,
+                                            () -> factory.createEDIAsyncStreamReader("EBCDIC", null));
+        assertEquals("Unsupported encoding: EBCDIC", e.getMessage());
+    }
+}
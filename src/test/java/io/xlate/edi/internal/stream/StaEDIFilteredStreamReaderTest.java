@@ -24,8 +24,13 @@ import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
@@ -35,8 +40,10 @@ import io.xlate.edi.schema.SchemaFactory;
 import io.xlate.edi.stream.EDIInputFactory;
 import io.xlate.edi.stream.EDIStreamEvent;
 import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamFilter;
 import io.xlate.edi.stream.EDIStreamReader;
 import io.xlate.edi.stream.Location;
+import io.xlate.edi.stream.SegmentView;
 
 @SuppressWarnings("resource")
 class StaEDIFilteredStreamReaderTest implements ConstantsTest {
@@ -233,6 +240,199 @@ class StaEDIFilteredStreamReaderTest implements ConstantsTest {
         assertStatusEquals(unfiltered, filtered);
     }
 
+    static EDIStreamFilter segmentFilter(Set<String> segmentTags, boolean declareTags) {
+        EDIStreamFilter filter = r -> {
+            switch (r.getEventType()) {
+            case START_TRANSACTION:
+            case END_TRANSACTION:
+            case START_LOOP:
+            case END_LOOP:
+            case SEGMENT_ERROR:
+                return true;
+            case START_SEGMENT:
+            case END_SEGMENT:
+            case START_COMPOSITE:
+            case END_COMPOSITE:
+            case ELEMENT_DATA:
+            case ELEMENT_DATA_BINARY:
+            case ELEMENT_DATA_ERROR:
+            case ELEMENT_OCCURRENCE_ERROR:
+                return segmentTags.contains(r.getLocation().getSegmentTag());
+            default:
+                return false;
+            }
+        };
+
+        if (!declareTags) {
+            return filter;
+        }
+
+        return new EDIStreamFilter() {
+            @Override
+            public boolean accept(EDIStreamReader reader) {
+                return filter.accept(reader);
+            }
+
+            @Override
+            public Set<String> getSegmentTags() {
+                return segmentTags;
+            }
+        };
+    }
+
+    List<String> readFiltered(String resource, EDIStreamFilter filter) throws EDIStreamException {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_VALIDATE_CONTROL_STRUCTURE, Boolean.TRUE);
+        InputStream stream = getClass().getResourceAsStream(resource);
+        EDIStreamReader reader = factory.createFilteredReader(factory.createEDIStreamReader(stream), filter);
+        List<String> events = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            EDIStreamEvent event = reader.next();
+            String text = event == EDIStreamEvent.ELEMENT_DATA_BINARY ? "" : reader.getText();
+            events.add(event + ":" + text + "@" + reader.getLocation());
+        }
+
+        return events;
+    }
+
+    @Test
+    void testSegmentTagsMatchUndeclaredFilter() throws EDIStreamException {
+        Set<String> tags = new HashSet<>(Arrays.asList("N1", "IT1", "PO1"));
+        List<String> expected = readFiltered("/x12/invoice810_po850_dual.edi", segmentFilter(tags, false));
+        List<String> actual = readFiltered("/x12/invoice810_po850_dual.edi", segmentFilter(tags, true));
+
+        assertTrue(expected.stream().anyMatch(e -> e.startsWith("START_SEGMENT:N1")));
+        assertTrue(expected.stream().anyMatch(e -> e.startsWith("START_TRANSACTION")));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testSegmentTagsWithBinaryElements() throws EDIStreamException, EDISchemaException {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        InputStream stream = getClass().getResourceAsStream("/x12/simple_with_binary_segment.edi");
+        EDIStreamReader unfiltered = factory.createEDIStreamReader(stream);
+        EDIStreamReader reader = factory.createFilteredReader(unfiltered,
+                                                              segmentFilter(Collections.singleton("SE"), true));
+        Schema schema = SchemaFactory.newFactory()
+                                     .createSchema(getClass().getResource("/x12/EDISchemaBinarySegment.xml"));
+        List<String> tags = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case START_TRANSACTION:
+                reader.setTransactionSchema(schema);
+                break;
+            case START_SEGMENT:
+                tags.add(reader.getText());
+                break;
+            default:
+                break;
+            }
+        }
+
+        assertEquals(Arrays.asList("SE"), tags);
+    }
+
+    List<String> readSegments(EDIStreamReader reader) throws EDIStreamException {
+        List<String> tags = new ArrayList<>();
+
+        while (reader.nextSegment() == EDIStreamEvent.END_SEGMENT) {
+            SegmentView segment = reader.getSegment();
+            tags.add(segment.getTag() + "@" + segment.getLocation().getSegmentPosition());
+        }
+
+        return tags;
+    }
+
+    @Test
+    void testNextSegmentWithSegmentTags() throws EDIStreamException {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Set<String> tags = new HashSet<>(Arrays.asList("N1", "IT1", "PO1"));
+        List<String> expected = new ArrayList<>();
+
+        for (String segment : readSegments(factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/invoice810_po850_dual.edi")))) {
+            if (tags.contains(segment.substring(0, segment.indexOf('@')))) {
+                expected.add(segment);
+            }
+        }
+
+        InputStream stream = getClass().getResourceAsStream("/x12/invoice810_po850_dual.edi");
+        EDIStreamReader reader = factory.createFilteredReader(factory.createEDIStreamReader(stream),
+                                                              segmentFilter(tags, true));
+
+        assertTrue(expected.stream().anyMatch(e -> e.startsWith("PO1@")));
+        assertEquals(expected, readSegments(reader));
+        assertEquals(EDIStreamEvent.END_INTERCHANGE, reader.getEventType());
+    }
+
+    @Test
+    void testNextSegmentWithoutSegmentTags() throws EDIStreamException {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<String> expected = readSegments(factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/simple997.edi")));
+        InputStream stream = getClass().getResourceAsStream("/x12/simple997.edi");
+        EDIStreamReader reader = factory.createFilteredReader(factory.createEDIStreamReader(stream),
+                                                              r -> r.getEventType() == EDIStreamEvent.START_SEGMENT);
+
+        // A segment already peeked by hasNext is skipped, the same as one partially read
+        assertTrue(reader.hasNext());
+        assertEquals(expected.subList(1, expected.size()), readSegments(reader));
+    }
+
+    List<String> readSkipping(EDIStreamEvent skippedAt) throws EDIStreamException {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        InputStream stream = getClass().getResourceAsStream("/x12/invoice810_po850_dual.edi");
+        EDIStreamReader reader = factory.createFilteredReader(factory.createEDIStreamReader(stream), r -> {
+            switch (r.getEventType()) {
+            case START_GROUP:
+            case START_TRANSACTION:
+            case START_SEGMENT:
+                return true;
+            default:
+                return false;
+            }
+        });
+        List<String> events = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            EDIStreamEvent event = reader.next();
+            events.add(event == EDIStreamEvent.START_SEGMENT ? reader.getText() : event.toString());
+
+            if (event == skippedAt) {
+                EDIStreamEvent end = skippedAt == EDIStreamEvent.START_GROUP ? reader.skipGroup() : reader.skipTransaction();
+                events.add(end.toString());
+                assertEquals(end, reader.getEventType());
+            }
+        }
+
+        return events;
+    }
+
+    @Test
+    void testSkipTransaction() throws EDIStreamException {
+        List<String> events = readSkipping(EDIStreamEvent.START_TRANSACTION);
+
+        assertEquals(Arrays.asList("ISA", "START_GROUP", "GS",
+                                   "START_TRANSACTION", "END_TRANSACTION",
+                                   "START_TRANSACTION", "END_TRANSACTION",
+                                   "GE",
+                                   "START_GROUP", "GS",
+                                   "START_TRANSACTION", "END_TRANSACTION",
+                                   "GE", "IEA"),
+                     events);
+    }
+
+    @Test
+    void testSkipGroup() throws EDIStreamException {
+        List<String> events = readSkipping(EDIStreamEvent.START_GROUP);
+
+        assertEquals(Arrays.asList("ISA",
+                                   "START_GROUP", "END_GROUP",
+                                   "START_GROUP", "END_GROUP",
+                                   "IEA"),
+                     events);
+    }
+
     void assertStatusEquals(EDIStreamReader unfiltered, EDIStreamReader filtered) {
         assertEquals(unfiltered.getEventType(), filtered.getEventType());
         assertEquals(unfiltered.getText(), filtered.getText());
@@ -18,11 +18,23 @@ package io.xlate.edi.internal.stream;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -32,6 +44,10 @@ import io.xlate.edi.schema.Schema;
 import io.xlate.edi.schema.SchemaFactory;
 import io.xlate.edi.stream.EDIInputErrorReporter;
 import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.ValidationLevel;
+import io.xlate.edi.stream.EDIStreamEvent;
 import io.xlate.edi.stream.EDIStreamException;
 import io.xlate.edi.stream.EDIStreamReader;
 
@@ -91,6 +107,99 @@ class StaEDIInputFactoryTest {
         assertNotNull(reader, "Reader was null");
     }
 
+    static int countSegments(EDIStreamReader reader) throws EDIStreamException {
+        int segments = 0;
+
+        while (reader.hasNext()) {
+            if (reader.next() == EDIStreamEvent.START_SEGMENT) {
+                segments++;
+            }
+        }
+
+        return segments;
+    }
+
+    @Test
+    void testCreateEDIStreamReaderFromPath() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Path path = Paths.get(getClass().getResource("/x12/simple997.edi").toURI());
+        int expected = countSegments(factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/simple997.edi")));
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(path)) {
+            assertEquals(expected, countSegments(reader));
+        }
+    }
+
+    @Test
+    void testCreateEDIStreamReaderFromPathFailureClosesFile() throws Exception {
+        Path descriptors = Paths.get("/proc/self/fd");
+        assumeTrue(Files.isDirectory(descriptors), "Open files can not be counted on this platform");
+
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        // Not a TransactionSchemaResolver, the reader fails once the file has been opened
+        factory.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER, "INVALID");
+        Path path = Paths.get(getClass().getResource("/x12/simple997.edi").toURI());
+        long open = countFiles(descriptors);
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(ClassCastException.class, () -> factory.createEDIStreamReader(path));
+        }
+
+        // Allow for a descriptor opened by the JVM in the meantime
+        assertTrue(countFiles(descriptors) < open + 10);
+    }
+
+    static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testCreateEDIStreamReaderFromChannelEncodedValidated() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Path path = Paths.get(getClass().getResource("/x12/simple997.edi").toURI());
+        SchemaFactory schemaFactory = SchemaFactory.newFactory();
+        Schema schema = schemaFactory.createSchema(getClass().getResourceAsStream("/x12/EDISchema997.xml"));
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            EDIStreamReader reader = factory.createEDIStreamReader(channel, "US-ASCII", schema);
+            assertTrue(countSegments(reader) > 0);
+            reader.close();
+            assertTrue(channel.isOpen(), "Channel closed by reader");
+        }
+    }
+
+    @Test
+    void testCreateEDIStreamReaderFromChannelInvalidEncoding() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Path path = Paths.get(getClass().getResource("/x12/simple997.edi").toURI());
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            EDIStreamException e = assertThrows(EDIStreamException.class, () -> factory.createEDIStreamReader(channel, "EBCDIC", null));
+            assertEquals("Unsupported encoding: EBCDIC", e.getMessage());
+        }
+    }
+
+    @Test
+    void testMappedFileReadAcrossWindows() throws Exception {
+        Path path = Paths.get(getClass().getResource("/x12/simple997.edi").toURI());
+        byte[] expected = Files.readAllBytes(path);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        byte[] buffer = new byte[10];
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                InputStream stream = new MappedFileInputStream(channel, 7, true)) {
+            int count;
+            while ((count = stream.read(buffer, 0, buffer.length)) > -1) {
+                actual.write(buffer, 0, count);
+            }
+            assertEquals(-1, stream.read());
+        }
+
+        assertEquals(new String(expected), new String(actual.toByteArray()));
+    }
+
     @Test
     void testCreateFilteredReader() {
         EDIInputFactory factory = EDIInputFactory.newFactory();
@@ -118,6 +227,21 @@ class StaEDIInputFactoryTest {
         assertThrows(IllegalArgumentException.class, () -> factory.setProperty("FOO", null));
     }
 
+    @Test
+    void testSetPropertyValidationLevel() {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_VALIDATION_LEVEL, "structure");
+        assertEquals(ValidationLevel.STRUCTURE, factory.getProperty(EDIInputFactory.EDI_VALIDATION_LEVEL));
+        factory.setProperty(EDIInputFactory.EDI_VALIDATION_LEVEL, ValidationLevel.NONE);
+        assertEquals(ValidationLevel.NONE, factory.getProperty(EDIInputFactory.EDI_VALIDATION_LEVEL));
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                                                       () -> factory.setProperty(EDIInputFactory.EDI_VALIDATION_LEVEL, "INVALID"));
+        assertEquals("Invalid value for property " + EDIInputFactory.EDI_VALIDATION_LEVEL
+                + ": 'INVALID', expected one of [NONE, STRUCTURE, FULL]", thrown.getMessage());
+        assertEquals(ValidationLevel.NONE, factory.getProperty(EDIInputFactory.EDI_VALIDATION_LEVEL));
+    }
+
     @SuppressWarnings("deprecation")
     @Test
     void testDeprecatedReporterMethodUsesDeprecatedType() {
@@ -137,4 +261,42 @@ class StaEDIInputFactoryTest {
         assertSame(reporter, factory.getErrorReporter());
         assertThrows(ClassCastException.class, () -> factory.getEDIReporter());
     }
+
+    @Test
+    void testValidatorPoolEnabledByProperty() {
+        StaEDIInputFactory factory = new StaEDIInputFactory();
+        assertNull(factory.getValidatorPool());
+        factory.setProperty(EDIInputFactory.EDI_REUSE_VALIDATORS, "true");
+        assertNotNull(factory.getValidatorPool());
+        assertSame(factory.getValidatorPool(), factory.getValidatorPool());
+    }
+
+    @Test
+    void testValidatorsReusedAcrossReaders() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_REUSE_VALIDATORS, true);
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        List<EDIStreamEvent> first = readEvents(factory, transaction);
+        List<EDIStreamEvent> second = readEvents(factory, transaction);
+
+        assertTrue(first.contains(EDIStreamEvent.ELEMENT_DATA_ERROR));
+        assertEquals(first, second);
+    }
+
+    List<EDIStreamEvent> readEvents(EDIInputFactory factory, Schema transaction) throws Exception {
+        List<EDIStreamEvent> events = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/extraDelimiter997.edi"))) {
+            while (reader.hasNext()) {
+                EDIStreamEvent event = reader.next();
+                events.add(event);
+
+                if (event == EDIStreamEvent.START_TRANSACTION) {
+                    reader.setTransactionSchema(transaction);
+                }
+            }
+        }
+
+        return events;
+    }
 }
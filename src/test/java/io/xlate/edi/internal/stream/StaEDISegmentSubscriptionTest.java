@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.SegmentView;
+
+class StaEDISegmentSubscriptionTest {
+
+    static final String[] TAGS = { "ISA", "GS", "ST", "AK1", "AK2", "AK3", "AK4", "AK5", "AK9", "SE", "GE", "IEA" };
+
+    final List<SegmentView> received = new ArrayList<>();
+    final List<Throwable> errors = new ArrayList<>();
+    int completions = 0;
+
+    EDIStreamReader reader(InputStream stream) throws EDIStreamException {
+        return EDIInputFactory.newFactory().createEDIStreamReader(stream);
+    }
+
+    StaEDISegmentSubscription subscribe(EDIStreamReader reader, Deque<Runnable> tasks) {
+        StaEDISegmentSubscription subscription = new StaEDISegmentSubscription(reader,
+                                                                               tasks::add,
+                                                                               received::add,
+                                                                               errors::add,
+                                                                               () -> completions++);
+        subscription.start();
+        return subscription;
+    }
+
+    static void runAll(Deque<Runnable> tasks) {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+
+    String[] receivedTags() {
+        return received.stream().map(SegmentView::getTag).toArray(String[]::new);
+    }
+
+    @Test
+    void testSegmentsDeliveredOnDemand() throws Exception {
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        EDIStreamReader reader = reader(getClass().getResourceAsStream("/x12/simple997.edi"));
+        StaEDISegmentSubscription subscription = subscribe(reader, tasks);
+
+        subscription.request(2);
+        assertEquals(0, received.size(), "Nothing delivered until the task runs");
+        assertEquals(1, tasks.size());
+        runAll(tasks);
+        assertArrayEquals(new String[] { "ISA", "GS" }, receivedTags());
+
+        // Demand accumulates while a delivery is pending
+        subscription.request(1);
+        subscription.request(2);
+        assertEquals(1, tasks.size());
+        runAll(tasks);
+        assertEquals(5, received.size());
+        assertEquals(0, completions);
+
+        subscription.request(Long.MAX_VALUE);
+        subscription.request(Long.MAX_VALUE);
+        runAll(tasks);
+        assertArrayEquals(TAGS, receivedTags());
+        assertEquals(1, completions);
+        assertTrue(errors.isEmpty());
+        assertThrows(IllegalStateException.class, reader::next, "Reader closed on completion");
+
+        // No further signals once complete
+        subscription.request(1);
+        runAll(tasks);
+        assertEquals(1, completions);
+    }
+
+    @Test
+    void testDeliveredSegmentsAreIndependent() throws Exception {
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        StaEDISegmentSubscription subscription = subscribe(reader(getClass().getResourceAsStream("/x12/simple997.edi")), tasks);
+
+        subscription.request(Long.MAX_VALUE);
+        runAll(tasks);
+
+        SegmentView ak3 = received.get(5);
+        assertEquals("AK3", ak3.getTag());
+        assertEquals(6, ak3.getLocation().getSegmentPosition());
+        assertEquals(4, ak3.getElementCount());
+        assertEquals("NM1", ak3.getElement(1).toString());
+        assertEquals("8", ak3.getElement(2).toString());
+        assertEquals("", ak3.getElement(3).toString());
+        assertEquals("8", ak3.getElement(4).toString());
+
+        SegmentView ak4 = received.get(6);
+        assertEquals("MI", ak4.getElement(4).toString());
+        assertNull(ak4.getElement(5));
+    }
+
+    @Test
+    void testDeliveryContinuesInNewTaskAfterBatch() throws Exception {
+        StringBuilder input = new StringBuilder("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~");
+
+        for (int i = 0; i < StaEDISegmentSubscription.BATCH_SIZE * 2; i++) {
+            input.append("XYZ*").append(i).append('~');
+        }
+
+        input.append("IEA*0*508121953~");
+
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        StaEDISegmentSubscription subscription = subscribe(reader(new ByteArrayInputStream(input.toString().getBytes())), tasks);
+
+        subscription.request(Long.MAX_VALUE);
+        tasks.poll().run();
+        assertEquals(StaEDISegmentSubscription.BATCH_SIZE, received.size());
+        assertEquals(1, tasks.size(), "Task submitted again while demand remains");
+
+        tasks.poll().run();
+        assertEquals(StaEDISegmentSubscription.BATCH_SIZE * 2, received.size());
+        assertEquals(1, tasks.size());
+
+        runAll(tasks);
+        assertEquals(StaEDISegmentSubscription.BATCH_SIZE * 2 + 2, received.size());
+        assertEquals(1, completions);
+    }
+
+    @Test
+    void testRequestsBeforeStartHeld() throws Exception {
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        StaEDISegmentSubscription subscription = new StaEDISegmentSubscription(reader(getClass().getResourceAsStream("/x12/simple997.edi")),
+                                                                               tasks::add,
+                                                                               received::add,
+                                                                               errors::add,
+                                                                               () -> completions++);
+        subscription.request(1);
+        subscription.request(1);
+        assertEquals(0, tasks.size(), "Nothing submitted before start");
+
+        subscription.start();
+        assertEquals(1, tasks.size());
+        runAll(tasks);
+        assertArrayEquals(new String[] { "ISA", "GS" }, receivedTags());
+
+        subscription.request(1);
+        assertEquals(1, tasks.size(), "Requests after start submit the task");
+    }
+
+    @Test
+    void testStartWithoutRequests() throws Exception {
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        StaEDISegmentSubscription subscription = subscribe(reader(getClass().getResourceAsStream("/x12/simple997.edi")), tasks);
+
+        assertEquals(0, tasks.size());
+        subscription.request(1);
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    void testSegmentsCopiedThroughInterface() throws Exception {
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        EDIStreamReader delegate = reader(getClass().getResourceAsStream("/x12/simple997.edi"));
+        // Views of this reader are not implemented by the library
+        EDIStreamReader reader = (EDIStreamReader) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                                            new Class<?>[] { EDIStreamReader.class },
+                                                                            (proxy, method, args) -> {
+            Object result = invoke(delegate, method, args);
+
+            if (result instanceof SegmentView) {
+                SegmentView segment = (SegmentView) result;
+                return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                              new Class<?>[] { SegmentView.class },
+                                              (p, m, a) -> invoke(segment, m, a));
+            }
+
+            return result;
+        });
+
+        subscribe(reader, tasks).request(Long.MAX_VALUE);
+        runAll(tasks);
+
+        assertTrue(errors.isEmpty(), () -> errors.toString());
+        assertArrayEquals(TAGS, receivedTags());
+        SegmentView ak3 = received.get(5);
+        assertEquals(6, ak3.getLocation().getSegmentPosition());
+        assertEquals(4, ak3.getElementCount());
+        assertEquals("NM1", ak3.getElement(1).toString());
+        assertEquals("", ak3.getElement(3).toString());
+        assertEquals("8", ak3.getElement(4).toString());
+        assertNull(ak3.getElement(5));
+        assertEquals("MI", received.get(6).getElement(4).toString());
+    }
+
+    static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    void testAsyncReaderRejected() throws Exception {
+        EDIStreamReader reader = EDIInputFactory.newFactory().createEDIAsyncStreamReader();
+        Deque<Runnable> tasks = new ArrayDeque<>();
+
+        assertThrows(IllegalArgumentException.class, () -> subscribe(reader, tasks));
+    }
+
+    @Test
+    void testCancelClosesReader() throws Exception {
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        EDIStreamReader reader = reader(getClass().getResourceAsStream("/x12/simple997.edi"));
+        StaEDISegmentSubscription subscription = subscribe(reader, tasks);
+
+        subscription.request(3);
+        subscription.cancel();
+        runAll(tasks);
+
+        assertEquals(0, received.size());
+        assertEquals(0, completions);
+        assertTrue(errors.isEmpty());
+        assertThrows(IllegalStateException.class, reader::next);
+
+        subscription.request(3);
+        runAll(tasks);
+        assertEquals(0, received.size());
+    }
+
+    @Test
+    void testNonPositiveRequestSignalsError() throws Exception {
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        StaEDISegmentSubscription subscription = subscribe(reader(getClass().getResourceAsStream("/x12/simple997.edi")), tasks);
+
+        subscription.request(0);
+        runAll(tasks);
+
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof IllegalArgumentException);
+        assertEquals(0, completions);
+    }
+
+    @Test
+    void testReaderErrorSignaled() throws Exception {
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        InputStream stream = new ByteArrayInputStream(("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~"
+                + "GS*FA*ReceiverDept*SenderDept*20050812*195335*000005*X*005010X230~").getBytes());
+        StaEDISegmentSubscription subscription = subscribe(reader(stream), tasks);
+
+        subscription.request(10);
+        runAll(tasks);
+
+        assertArrayEquals(new String[] { "ISA", "GS" }, receivedTags());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof EDIStreamException);
+        assertEquals(0, completions);
+    }
+
+    @Test
+    void testRejectedExecutionSignaled() throws Exception {
+        StaEDISegmentSubscription subscription = new StaEDISegmentSubscription(reader(getClass().getResourceAsStream("/x12/simple997.edi")),
+                                                                               task -> {
+                                                                                   throw new RejectedExecutionException();
+                                                                               },
+                                                                               received::add,
+                                                                               errors::add,
+                                                                               () -> completions++);
+        subscription.start();
+        subscription.request(1);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof RejectedExecutionException);
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testConcurrentRequestsDeliverSerially() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(1);
+        List<SegmentView> segments = new ArrayList<>();
+
+        try {
+            StaEDISegmentSubscription subscription = new StaEDISegmentSubscription(reader(getClass().getResourceAsStream("/x12/sample837-original.edi")),
+                                                                                   executor,
+                                                                                   segments::add,
+                                                                                   e -> done.countDown(),
+                                                                                   done::countDown);
+            subscription.start();
+            ExecutorService requesters = Executors.newFixedThreadPool(4);
+
+            for (int i = 0; i < 4; i++) {
+                requesters.execute(() -> {
+                    for (int r = 0; r < 1000; r++) {
+                        subscription.request(1);
+                    }
+                });
+            }
+
+            requesters.shutdown();
+            assertTrue(requesters.awaitTermination(10, TimeUnit.SECONDS));
+            subscription.request(Long.MAX_VALUE);
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals("ISA", segments.get(0).getTag());
+        assertEquals("IEA", segments.get(segments.size() - 1).getTag());
+
+        for (int i = 0; i < segments.size(); i++) {
+            assertEquals(i + 1, segments.get(i).getLocation().getSegmentPosition());
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamConstants.Standards;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamIndex;
+import io.xlate.edi.stream.EDIStreamReader;
+
+class StaEDIStreamIndexTest {
+
+    static final Path X12_DUAL = Paths.get("src/test/resources/x12/invoice810_po850_dual.edi");
+    static final Path EDIFACT_UNA = Paths.get("src/test/resources/EDIFACT/invoic_d97b_una.edi");
+
+    EDIStreamIndex index(EDIInputFactory factory, Path path) throws IOException, EDIStreamException {
+        try (InputStream stream = Files.newInputStream(path)) {
+            return factory.createEDIStreamIndex(stream);
+        }
+    }
+
+    String slice(Path path, long start, long end) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+        return new String(data, (int) start, (int) (end - start), StandardCharsets.UTF_8);
+    }
+
+    List<String> describe(EDIStreamIndex index) {
+        return index.getEntries()
+                    .stream()
+                    .map(e -> e.getType() + ":" + e.getSegmentTag() + ":" + e.getControlNumber() + ":" + e.getSegmentPosition())
+                    .collect(Collectors.toList());
+    }
+
+    @Test
+    void testIndexX12Boundaries() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamIndex index = index(factory, X12_DUAL);
+
+        assertEquals(Standards.X12, index.getStandard());
+        assertEquals(6, index.getEntries().size());
+        assertEquals("START_INTERCHANGE:ISA:000000020:1", describe(index).get(0));
+        assertEquals("START_GROUP:GS:1:2", describe(index).get(1));
+        assertEquals("START_TRANSACTION:ST:000000001:3", describe(index).get(2));
+        assertEquals("START_TRANSACTION:ST:000000002:35", describe(index).get(3));
+        assertEquals("START_GROUP:GS:165:58", describe(index).get(4));
+        assertEquals("START_TRANSACTION:ST:000191240:59", describe(index).get(5));
+
+        List<EDIStreamIndex.Entry> transactions = index.getTransactions();
+        assertEquals(3, transactions.size());
+
+        EDIStreamIndex.Entry second = transactions.get(1);
+        assertSame(index.getEntries().get(1), second.getParent());
+        assertSame(index.getEntries().get(0), second.getParent().getParent());
+        assertNull(second.getParent().getParent().getParent());
+
+        String text = slice(X12_DUAL, second.getStartOffset(), second.getEndOffset()).trim();
+        assertTrue(text.startsWith("ST*810*000000002~"));
+        assertTrue(text.endsWith("SE*22*000000002~"));
+        assertEquals("ST*810*000000002~",
+                     slice(X12_DUAL, second.getStartOffset(), second.getHeaderEndOffset()).trim());
+        assertEquals("SE*22*000000002~",
+                     slice(X12_DUAL, second.getTrailerStartOffset(), second.getEndOffset()).trim());
+
+        EDIStreamIndex.Entry interchange = index.getEntries().get(0);
+        assertEquals(0, interchange.getStartOffset());
+        assertEquals(0, interchange.getCharacterOffset());
+        assertEquals("IEA*2*000000020~",
+                     slice(X12_DUAL, interchange.getTrailerStartOffset(), interchange.getEndOffset()).trim());
+        assertEquals(second.getStartOffset(), second.getCharacterOffset());
+    }
+
+    @Test
+    void testIndexEdifactWithServiceStringAdvice() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamIndex index = index(factory, EDIFACT_UNA);
+
+        assertEquals(Standards.EDIFACT, index.getStandard());
+        assertEquals(2, index.getEntries().size());
+
+        EDIStreamIndex.Entry interchange = index.getEntries().get(0);
+        assertEquals("00000000000778", interchange.getControlNumber());
+        assertTrue(slice(EDIFACT_UNA, interchange.getStartOffset(), interchange.getHeaderEndOffset()).startsWith("UNA=*.? ~"));
+        assertTrue(slice(EDIFACT_UNA, interchange.getStartOffset(), interchange.getHeaderEndOffset()).trim().endsWith("00000000000778~"));
+
+        EDIStreamIndex.Entry message = index.getTransactions().get(0);
+        assertEquals("UNH", message.getSegmentTag());
+        assertEquals("00000000000117", message.getControlNumber());
+        assertSame(interchange, message.getParent());
+        assertTrue(slice(EDIFACT_UNA, message.getTrailerStartOffset(), message.getEndOffset()).trim().startsWith("UNT*"));
+    }
+
+    @Test
+    void testIndexMultipleInterchanges() throws Exception {
+        byte[] data = Files.readAllBytes(X12_DUAL);
+        ByteArrayOutputStream twice = new ByteArrayOutputStream();
+        twice.write(data);
+        twice.write('\n');
+        twice.write(data);
+
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamIndex index = factory.createEDIStreamIndex(new ByteArrayInputStream(twice.toByteArray()));
+
+        assertEquals(12, index.getEntries().size());
+        assertEquals(6, index.getTransactions().size());
+        EDIStreamIndex.Entry second = index.getEntries().get(6);
+        assertEquals(EDIStreamEvent.START_INTERCHANGE, second.getType());
+        assertEquals(data.length, second.getStartOffset());
+        assertEquals(twice.size(), second.getEndOffset());
+    }
+
+    @Test
+    void testIndexMultibyteOffsets() throws Exception {
+        String text = new String(Files.readAllBytes(X12_DUAL), StandardCharsets.UTF_8)
+                .replace("BUYSNACKS PORT", "B\u00dcYSNACKS PORT \u20ac \ud83d\ude00");
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamIndex index = factory.createEDIStreamIndex(new ByteArrayInputStream(data));
+        EDIStreamIndex.Entry second = index.getTransactions().get(1);
+
+        // The entry begins with the line feed following the previous segment
+        assertEquals(text.indexOf("ST*810*000000002"), second.getCharacterOffset() + 1);
+        assertEquals("ST*810*000000002~",
+                     new String(data,
+                                (int) second.getStartOffset(),
+                                (int) (second.getHeaderEndOffset() - second.getStartOffset()),
+                                StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    void testIndexIncompleteInputThrows() throws Exception {
+        byte[] data = Files.readAllBytes(X12_DUAL);
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        InputStream stream = new ByteArrayInputStream(data, 0, data.length / 2);
+        assertThrows(EDIStreamException.class, () -> factory.createEDIStreamIndex(stream));
+    }
+
+    @Test
+    void testIndexTruncatedHeaderThrows() {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        InputStream stream = new ByteArrayInputStream("ISA*00*".getBytes());
+        assertThrows(EDIStreamException.class, () -> factory.createEDIStreamIndex(stream));
+    }
+
+    @Test
+    void testIndexWriteAndRead() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamIndex index = index(factory, X12_DUAL);
+        ByteArrayOutputStream sidecar = new ByteArrayOutputStream();
+        index.write(sidecar);
+
+        EDIStreamIndex copy = factory.readEDIStreamIndex(new ByteArrayInputStream(sidecar.toByteArray()));
+
+        assertEquals(index.getStandard(), copy.getStandard());
+        assertEquals(describe(index), describe(copy));
+
+        for (int i = 0; i < index.getEntries().size(); i++) {
+            EDIStreamIndex.Entry expected = index.getEntries().get(i);
+            EDIStreamIndex.Entry actual = copy.getEntries().get(i);
+            assertArrayEquals(new long[] { expected.getCharacterOffset(),
+                                           expected.getStartOffset(),
+                                           expected.getHeaderEndOffset(),
+                                           expected.getTrailerStartOffset(),
+                                           expected.getEndOffset() },
+                              new long[] { actual.getCharacterOffset(),
+                                           actual.getStartOffset(),
+                                           actual.getHeaderEndOffset(),
+                                           actual.getTrailerStartOffset(),
+                                           actual.getEndOffset() });
+            assertEquals(index.getEntries().indexOf(expected.getParent()),
+                         copy.getEntries().indexOf(actual.getParent()));
+        }
+    }
+
+    @Test
+    void testReadIndexInvalid() {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        InputStream stream = new ByteArrayInputStream("ISA*00*".getBytes());
+        IOException thrown = assertThrows(IOException.class, () -> factory.readEDIStreamIndex(stream));
+        assertEquals("Input is not an EDI stream index", thrown.getMessage());
+    }
+
+    List<String> readTags(EDIStreamReader reader) throws EDIStreamException {
+        List<String> tags = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case START_SEGMENT:
+                tags.add(reader.getText());
+                break;
+            case START_TRANSACTION:
+            case END_TRANSACTION:
+                tags.add(reader.getEventType().toString());
+                break;
+            default:
+                break;
+            }
+        }
+
+        return tags;
+    }
+
+    @Test
+    void testReaderAtTransaction() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_VALIDATE_CONTROL_STRUCTURE, Boolean.TRUE);
+        EDIStreamIndex index = index(factory, X12_DUAL);
+        EDIStreamIndex.Entry last = index.getTransactions().get(2);
+
+        try (FileChannel channel = FileChannel.open(X12_DUAL, StandardOpenOption.READ)) {
+            EDIStreamReader reader = factory.createEDIStreamReader(channel, last);
+            assertEquals(EDIStreamEvent.START_INTERCHANGE, reader.next());
+            assertEquals(Standards.X12, reader.getStandard());
+            assertArrayEquals(new String[] { "00401" }, reader.getVersion());
+            assertEquals('>', reader.getDelimiters().get(io.xlate.edi.stream.EDIStreamConstants.Delimiters.COMPONENT_ELEMENT).charValue());
+
+            List<String> tags = readTags(reader);
+            assertEquals("ISA", tags.get(0));
+            assertEquals("GS", tags.get(1));
+            assertEquals("START_TRANSACTION", tags.get(2));
+            assertEquals("ST", tags.get(3));
+            assertEquals("SE", tags.get(tags.size() - 4));
+            assertEquals("END_TRANSACTION", tags.get(tags.size() - 3));
+            assertEquals("GE", tags.get(tags.size() - 2));
+            assertEquals("IEA", tags.get(tags.size() - 1));
+            assertEquals(1, tags.stream().filter("START_TRANSACTION"::equals).count());
+            assertEquals(0, channel.position());
+            reader.close();
+        }
+    }
+
+    @Test
+    void testReaderAtEdifactMessage() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamIndex index = index(factory, EDIFACT_UNA);
+
+        try (FileChannel channel = FileChannel.open(EDIFACT_UNA, StandardOpenOption.READ);
+             InputStream stream = Files.newInputStream(EDIFACT_UNA)) {
+            List<String> expected = readTags(factory.createEDIStreamReader(stream));
+            List<String> actual = readTags(factory.createEDIStreamReader(channel, index.getTransactions().get(0)));
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package io.xlate.edi.internal.stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -27,8 +28,10 @@ import static org.junit.jupiter.api.Assertions.fail;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -59,6 +62,9 @@ import io.xlate.edi.stream.EDIStreamException;
 import io.xlate.edi.stream.EDIStreamReader;
 import io.xlate.edi.stream.EDIStreamValidationError;
 import io.xlate.edi.stream.Location;
+import io.xlate.edi.stream.SegmentView;
+import io.xlate.edi.stream.TransactionSchemaResolver;
+import io.xlate.edi.stream.ValidationLevel;
 
 @SuppressWarnings({ "resource", "unused" })
 class StaEDIStreamReaderTest implements ConstantsTest {
@@ -1575,4 +1581,645 @@ class StaEDIStreamReaderTest implements ConstantsTest {
             reader.close();
         }
     }
+
+    @Test
+    void testTransactionSchemaResolvedByProperty() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        List<String> resolved = new ArrayList<>();
+        factory.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER,
+                            (TransactionSchemaResolver) (standard, version, type, reference) -> {
+                                resolved.add(standard + '/' + String.join(".", version) + '/' + type + '/' + reference);
+                                return transaction;
+                            });
+
+        EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/extraDelimiter997.edi"));
+        int errors = 0;
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case END_SEGMENT:
+                if ("ST".equals(reader.getReferenceCode())) {
+                    assertEquals(transaction, reader.getTransactionSchema());
+                }
+                break;
+            case ELEMENT_DATA_ERROR:
+            case ELEMENT_OCCURRENCE_ERROR:
+                errors++;
+                break;
+            default:
+                break;
+            }
+        }
+
+        assertEquals(Arrays.asList("X12/X.005010X230/997/null"), resolved);
+        assertTrue(errors > 0, "Expected transaction validation errors");
+    }
+
+    @Test
+    void testTransactionSchemaResolvedWithImplementationReference() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<String> resolved = new ArrayList<>();
+        factory.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER,
+                            (TransactionSchemaResolver) (standard, version, type, reference) -> {
+                                resolved.add(standard + '/' + String.join(".", version) + '/' + type + '/' + reference);
+                                return null;
+                            });
+
+        InputStream stream = new ByteArrayInputStream((""
+                + "ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~"
+                + "GS*FA*ReceiverDept*SenderDept*20050812*195335*000005*X*005010~"
+                + "ST*999*0001*005010X231~"
+                + "SE*2*0001~"
+                + "ST*999*0002~"
+                + "SE*2*0002~"
+                + "GE*2*000005~"
+                + "IEA*1*508121953~").getBytes());
+        List<String> versions = new ArrayList<>();
+        EDIStreamReader reader = factory.createEDIStreamReader(stream);
+
+        while (reader.hasNext()) {
+            if (reader.next() == EDIStreamEvent.END_SEGMENT && "ST".equals(reader.getText())) {
+                versions.add(String.join(".", reader.getTransactionVersion()));
+            }
+        }
+
+        assertEquals(Arrays.asList("X12/X.005010/999/005010X231", "X12/X.005010/999/null"), resolved);
+        // The version used for validation still reflects the implementation convention
+        assertEquals(Arrays.asList("X.005010X231", "X.005010"), versions);
+    }
+
+    @Test
+    void testTransactionSchemaResolvedForEdifactMessage() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<String> resolved = new ArrayList<>();
+        factory.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER,
+                            (TransactionSchemaResolver) (standard, version, type, reference) -> {
+                                resolved.add(standard + '/' + String.join(".", version) + '/' + type + '/' + reference);
+                                return null;
+                            });
+
+        EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/EDIFACT/invoic_d97b.edi"));
+
+        while (reader.hasNext()) {
+            reader.next();
+        }
+
+        assertEquals(Arrays.asList("EDIFACT/UN.D.97B./INVOIC/null"), resolved);
+    }
+
+    @Test
+    void testTransactionSchemaSetByApplicationNotResolved() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        factory.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER,
+                            (TransactionSchemaResolver) (standard, version, type, reference) -> {
+                                throw new EDISchemaException("Resolver must not be called");
+                            });
+
+        EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/simple997.edi"));
+
+        while (reader.hasNext()) {
+            if (reader.next() == EDIStreamEvent.START_TRANSACTION) {
+                reader.setTransactionSchema(transaction);
+            }
+        }
+
+        assertEquals(EDIStreamEvent.END_INTERCHANGE, reader.getEventType());
+    }
+
+    @Test
+    void testTransactionSchemaResolverException() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER,
+                            (TransactionSchemaResolver) (standard, version, type, reference) -> {
+                                throw new EDISchemaException("No schema for " + type);
+                            });
+
+        EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/simple997.edi"));
+        EDIStreamException thrown = assertThrows(EDIStreamException.class, () -> {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+        });
+
+        assertTrue(thrown.getMessage().startsWith("Exception resolving transaction schema"));
+        assertEquals("No schema for 997", thrown.getCause().getMessage());
+    }
+
+    static List<String> readEvents(EDIStreamReader reader) throws EDIStreamException {
+        List<String> events = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            EDIStreamEvent event = reader.next();
+
+            switch (event) {
+            case ELEMENT_DATA:
+            case START_SEGMENT:
+            case END_SEGMENT:
+                events.add(event + ":" + reader.getText() + '@' + reader.getLocation().getSegmentPosition());
+                break;
+            case SEGMENT_ERROR:
+            case ELEMENT_DATA_ERROR:
+            case ELEMENT_OCCURRENCE_ERROR:
+                events.add(event + ":" + reader.getErrorType());
+                break;
+            default:
+                events.add(event.toString());
+                break;
+            }
+        }
+
+        return events;
+    }
+
+    List<String> readEventsFresh(EDIInputFactory factory, String resource) throws Exception {
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream(resource))) {
+            return readEvents(reader);
+        }
+    }
+
+    @Test
+    void testResetReadsNextInputLikeNewReader() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        String[] resources = { "/x12/simple997.edi", "/EDIFACT/invoic_d97b.edi", "/x12/extraDelimiter997.edi", "/x12/simple997.edi" };
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream(resources[0]))) {
+            assertEquals(readEventsFresh(factory, resources[0]), readEvents(reader));
+
+            for (int i = 1; i < resources.length; i++) {
+                reader.reset(getClass().getResourceAsStream(resources[i]));
+                assertThrows(IllegalStateException.class, reader::getStandard);
+                assertEquals(readEventsFresh(factory, resources[i]), readEvents(reader), "Unexpected events for " + resources[i]);
+            }
+        }
+    }
+
+    @Test
+    void testResetAfterPartialRead() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/EDIFACT/invoic_d97b.edi"))) {
+            for (int i = 0; i < 20; i++) {
+                reader.next();
+            }
+
+            reader.reset(getClass().getResourceAsStream("/x12/simple997.edi"));
+            assertEquals(readEventsFresh(factory, "/x12/simple997.edi"), readEvents(reader));
+        }
+    }
+
+    @Test
+    void testResetRetainsTransactionSchemaResolution() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        factory.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER,
+                            (TransactionSchemaResolver) (standard, version, type, reference) -> transaction);
+        factory.setProperty(EDIInputFactory.EDI_REUSE_VALIDATORS, true);
+        List<String> expected = readEventsFresh(factory, "/x12/extraDelimiter997.edi");
+        assertTrue(expected.stream().anyMatch(e -> e.startsWith("ELEMENT_")), "Expected transaction validation errors");
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/extraDelimiter997.edi"))) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected, readEvents(reader));
+                reader.reset(getClass().getResourceAsStream("/x12/extraDelimiter997.edi"));
+            }
+        }
+    }
+
+    @Test
+    void testResetClosedReaderThrows() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/simple997.edi"));
+        reader.close();
+        InputStream stream = new ByteArrayInputStream(new byte[0]);
+        assertThrows(IllegalStateException.class, () -> reader.reset(stream));
+        assertThrows(NullPointerException.class, () -> factory.createEDIStreamReader(stream).reset(null));
+    }
+
+    @Test
+    void testFilteredReaderResetDelegates() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamReader reader = factory.createFilteredReader(factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/simple997.edi")),
+                                                              r -> r.getEventType() == EDIStreamEvent.START_SEGMENT);
+        int first = 0;
+        while (reader.hasNext()) {
+            reader.next();
+            first++;
+        }
+
+        reader.reset(getClass().getResourceAsStream("/x12/simple997.edi"));
+        int second = 0;
+        while (reader.hasNext()) {
+            assertEquals(EDIStreamEvent.START_SEGMENT, reader.next());
+            second++;
+        }
+
+        assertTrue(first > 0);
+        assertEquals(first, second);
+        reader.close();
+    }
+
+    List<String> readWithValidationLevel(Object level, Schema transactionSchema, String input) throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_VALIDATION_LEVEL, level);
+        List<String> events = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(new ByteArrayInputStream(input.getBytes()))) {
+            while (reader.hasNext()) {
+                EDIStreamEvent event = reader.next();
+
+                switch (event) {
+                case START_TRANSACTION:
+                    reader.setTransactionSchema(transactionSchema);
+                    //$FALL-THROUGH$
+                case START_GROUP:
+                case START_LOOP:
+                    events.add(event.toString());
+                    break;
+                case SEGMENT_ERROR:
+                case ELEMENT_DATA_ERROR:
+                case ELEMENT_OCCURRENCE_ERROR:
+                    events.add(reader.getErrorType() + ":" + reader.getText());
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+        return events;
+    }
+
+    static final String VALIDATION_LEVEL_INPUT = ""
+            + "ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~"
+            + "GS*FA*ReceiverDept*SenderDept*2005081X*195335*000005*X*005010X230~"
+            + "ST*997*0001~"
+            + "AK1*HC*000001~"
+            + "AK9*R*X*1*0~"
+            + "AK2*837*0021~"
+            + "SE*5*0001~"
+            + "GE*1*000005~"
+            + "IEA*1*508121953~";
+
+    @Test
+    void testValidationLevelFull() throws Exception {
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        List<String> events = readWithValidationLevel(ValidationLevel.FULL, transaction, VALIDATION_LEVEL_INPUT);
+        assertEquals(Arrays.asList("START_GROUP",
+                                   "INVALID_DATE:2005081X",
+                                   "START_TRANSACTION",
+                                   "INVALID_CHARACTER_DATA:X",
+                                   "UNEXPECTED_SEGMENT:AK2"),
+                     events);
+    }
+
+    @Test
+    void testValidationLevelStructure() throws Exception {
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        List<String> events = readWithValidationLevel("STRUCTURE", transaction, VALIDATION_LEVEL_INPUT);
+        assertEquals(Arrays.asList("START_GROUP", "START_TRANSACTION", "UNEXPECTED_SEGMENT:AK2"), events);
+    }
+
+    @Test
+    void testValidationLevelNone() throws Exception {
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        List<String> events = readWithValidationLevel(ValidationLevel.NONE, transaction, VALIDATION_LEVEL_INPUT);
+        assertEquals(Collections.emptyList(), events);
+    }
+
+    @Test
+    void testValidationLevelInvalid() {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        assertThrows(IllegalArgumentException.class, () -> factory.setProperty(EDIInputFactory.EDI_VALIDATION_LEVEL, "PARTIAL"));
+
+        Map<String, Object> properties = Collections.singletonMap(EDIInputFactory.EDI_VALIDATION_LEVEL, "PARTIAL");
+        InputStream stream = new ByteArrayInputStream(VALIDATION_LEVEL_INPUT.getBytes());
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class,
+                                                       () -> new StaEDIStreamReader(stream, StandardCharsets.UTF_8, null, properties, null));
+        assertTrue(thrown.getMessage().startsWith("Invalid value for property " + EDIInputFactory.EDI_VALIDATION_LEVEL));
+    }
+
+    @Test
+    void testValidationLevelNameIgnoresCase() throws Exception {
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        assertEquals(readWithValidationLevel(ValidationLevel.STRUCTURE, transaction, VALIDATION_LEVEL_INPUT),
+                     readWithValidationLevel("Structure", transaction, VALIDATION_LEVEL_INPUT));
+    }
+
+    @Test
+    void testNextSegmentMatchesEvents() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<String> expected = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/sample837-original.edi"))) {
+            StringBuilder segment = null;
+
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                case START_SEGMENT:
+                    segment = new StringBuilder(reader.getText());
+                    break;
+                case ELEMENT_DATA:
+                    Location location = reader.getLocation();
+                    segment.append('|')
+                           .append(location.getElementPosition())
+                           .append('.')
+                           .append(Math.max(location.getElementOccurrence(), 1))
+                           .append('.')
+                           .append(Math.max(location.getComponentPosition(), 1))
+                           .append('=')
+                           .append(reader.getText());
+                    break;
+                case END_SEGMENT:
+                    expected.add(segment.toString());
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/sample837-original.edi"))) {
+            SegmentView previous = null;
+
+            while (reader.nextSegment() == EDIStreamEvent.END_SEGMENT) {
+                assertEquals(EDIStreamEvent.END_SEGMENT, reader.getEventType());
+                SegmentView view = reader.getSegment();
+                assertTrue(previous == null || previous == view, "Segment view not reused");
+                StringBuilder segment = new StringBuilder(view.getTag());
+
+                for (int e = 1, m = view.getElementCount(); e <= m; e++) {
+                    for (int r = 1, rm = view.getRepetitionCount(e); r <= rm; r++) {
+                        for (int c = 1, cm = view.getComponentCount(e, r); c <= cm; c++) {
+                            segment.append('|').append(e).append('.').append(r).append('.').append(c)
+                                   .append('=').append(view.getComponent(e, r, c));
+                        }
+                    }
+                }
+
+                actual.add(segment.toString());
+                previous = view;
+            }
+
+            assertEquals(EDIStreamEvent.END_INTERCHANGE, reader.getEventType());
+            assertFalse(reader.hasNext());
+            assertThrows(NoSuchElementException.class, () -> reader.nextSegment());
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testNextSegmentRepetitionsAndComponents() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_VALIDATION_LEVEL, ValidationLevel.NONE);
+        InputStream stream = new ByteArrayInputStream((""
+                + "ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *200711*0100*^*00501*000000001*0*T*:~"
+                + "S01*A^B*C:D::F**G~"
+                + "IEA*1*000000001~").getBytes());
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(stream)) {
+            assertEquals(EDIStreamEvent.END_SEGMENT, reader.nextSegment());
+            assertEquals("ISA", reader.getSegment().getTag());
+            assertEquals(EDIStreamEvent.END_SEGMENT, reader.nextSegment());
+            SegmentView view = reader.getSegment();
+
+            assertEquals("S01", view.getTag());
+            assertEquals(2, view.getLocation().getSegmentPosition());
+            assertEquals(4, view.getElementCount());
+            assertEquals(2, view.getRepetitionCount(1));
+            assertEquals("A", view.getElement(1).toString());
+            assertEquals("B", view.getElement(1, 2).toString());
+            assertNull(view.getElement(1, 3));
+            assertEquals(4, view.getComponentCount(2, 1));
+            assertEquals("C", view.getElement(2).toString());
+            assertEquals("D", view.getComponent(2, 1, 2).toString());
+            assertEquals(0, view.getComponent(2, 1, 3).length());
+            assertEquals("F", view.getComponent(2, 1, 4).toString());
+            assertEquals(0, view.getElement(3).length());
+            assertEquals("G", view.getElement(4).toString());
+            assertNull(view.getElement(5));
+            assertEquals(0, view.getRepetitionCount(5));
+            assertEquals(0, view.getComponentCount(5, 1));
+
+            assertEquals(EDIStreamEvent.END_SEGMENT, reader.nextSegment());
+            assertEquals("IEA", reader.getSegment().getTag());
+            assertEquals(EDIStreamEvent.END_INTERCHANGE, reader.nextSegment());
+            assertThrows(IllegalStateException.class, () -> reader.getSegment());
+        }
+    }
+
+    @Test
+    void testNextSegmentWithTransactionSchema() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        List<EDIStreamValidationError> errors = new ArrayList<>();
+        factory.setErrorReporter((errorType, reader) -> errors.add(errorType));
+        List<String> references = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/invalid997.edi"))) {
+            while (reader.nextSegment() == EDIStreamEvent.END_SEGMENT) {
+                SegmentView view = reader.getSegment();
+
+                if ("ST".equals(view.getTag())) {
+                    reader.setTransactionSchema(transaction);
+                } else if (view.getSchemaTypeReference() != null) {
+                    references.add(view.getSchemaTypeReference().getReferencedType().getId());
+                }
+            }
+        }
+
+        assertTrue(references.contains("AK9"));
+        assertTrue(!errors.isEmpty(), "Expected validation errors to be reported");
+    }
+
+    @Test
+    void testNextSegmentReportsSameErrorsAsNext() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        List<String> expected = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+
+        factory.setErrorReporter((errorType, reader) -> expected.add(errorType + "@" + reader.getLocation()));
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/invalid997.edi"))) {
+            while (reader.hasNext()) {
+                if (reader.next() == EDIStreamEvent.END_SEGMENT && reader.getText().equals("ST")) {
+                    reader.setTransactionSchema(transaction);
+                }
+            }
+        }
+
+        factory.setErrorReporter((errorType, reader) -> actual.add(errorType + "@" + reader.getLocation()));
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/invalid997.edi"))) {
+            while (reader.nextSegment() == EDIStreamEvent.END_SEGMENT) {
+                if ("ST".equals(reader.getSegment().getTag())) {
+                    reader.setTransactionSchema(transaction);
+                }
+            }
+        }
+
+        assertTrue(expected.stream().anyMatch(e -> e.startsWith(EDIStreamValidationError.INVALID_CHARACTER_DATA.name())));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testNextSegmentWithBinaryElements() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchemaBinarySegment.xml"));
+        List<String> segments = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/simple_with_binary_segment.edi"))) {
+            while (reader.nextSegment() == EDIStreamEvent.END_SEGMENT) {
+                SegmentView view = reader.getSegment();
+
+                if ("ST".equals(view.getTag())) {
+                    reader.setTransactionSchema(transaction);
+                }
+
+                segments.add(view.getTag() + view.getElementCount() + ':' + view.getElement(1));
+            }
+        }
+
+        assertEquals(Arrays.asList("ISA16:00", "GS8:FA", "ST2:000", "BIN2:25", "BIN2:25", "BIN2:25", "SE2:5", "GE2:1", "IEA2:1"),
+                     segments);
+    }
+
+    @Test
+    void testNextSegmentAfterNext() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/simple997.edi"))) {
+            assertEquals(EDIStreamEvent.END_SEGMENT, reader.nextSegment());
+            assertEquals("ISA", reader.getSegment().getTag());
+            assertEquals(EDIStreamEvent.START_GROUP, reader.next());
+            assertThrows(IllegalStateException.class, () -> reader.getSegment());
+            assertEquals(EDIStreamEvent.START_SEGMENT, reader.next());
+            assertEquals("GS", reader.getText());
+            // The remainder of the GS segment is skipped
+            assertEquals(EDIStreamEvent.END_SEGMENT, reader.nextSegment());
+            assertEquals("ST", reader.getSegment().getTag());
+            assertEquals(EDIStreamEvent.END_SEGMENT, reader.getEventType());
+            assertEquals("ST", reader.getText());
+            assertEquals(EDIStreamEvent.START_SEGMENT, reader.next());
+            assertEquals("AK1", reader.getText());
+            assertEquals(EDIStreamEvent.ELEMENT_DATA, reader.next());
+            assertEquals("HC", reader.getText());
+        }
+    }
+
+    List<String> readSkipping(EDIStreamReader reader, String skippedType, boolean skipGroup) throws Exception {
+        List<String> segments = new ArrayList<>();
+
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+            case START_GROUP:
+            case START_TRANSACTION:
+            case END_TRANSACTION:
+            case END_GROUP:
+                segments.add(reader.getEventType().toString());
+                break;
+            case START_SEGMENT:
+                segments.add(reader.getText() + '@' + reader.getLocation().getSegmentPosition());
+                break;
+            case ELEMENT_DATA:
+                Location location = reader.getLocation();
+
+                if (skippedType.equals(reader.getText())) {
+                    if ("ST".equals(location.getSegmentTag()) || "UNH".equals(location.getSegmentTag())) {
+                        assertEquals(EDIStreamEvent.END_TRANSACTION, reader.skipTransaction());
+                        segments.add("SKIPPED_TRANSACTION");
+                    } else if (skipGroup && "GS".equals(location.getSegmentTag())) {
+                        assertEquals(EDIStreamEvent.END_GROUP, reader.skipGroup());
+                        segments.add("SKIPPED_GROUP");
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+        }
+
+        return segments;
+    }
+
+    @Test
+    void testSkipTransaction() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/invoice810_po850_dual.edi"));
+        List<String> segments = readSkipping(reader, "810", false);
+
+        assertEquals(Arrays.asList("ISA@1", "START_GROUP", "GS@2",
+                                   "START_TRANSACTION", "ST@3", "SKIPPED_TRANSACTION",
+                                   "START_TRANSACTION", "ST@35", "SKIPPED_TRANSACTION",
+                                   "GE@57", "END_GROUP",
+                                   "START_GROUP", "GS@58",
+                                   "START_TRANSACTION", "ST@59", "BEG@60"),
+                     segments.subList(0, 16));
+        assertEquals(Arrays.asList("SE@75", "END_TRANSACTION", "GE@76", "END_GROUP", "IEA@77"),
+                     segments.subList(segments.size() - 5, segments.size()));
+    }
+
+    @Test
+    void testSkipGroup() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<EDIStreamValidationError> errors = new ArrayList<>();
+        factory.setErrorReporter((errorType, reader) -> errors.add(errorType));
+        EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/invoice810_po850_dual.edi"));
+        List<String> segments = readSkipping(reader, "IN", true);
+
+        assertEquals(Arrays.asList("ISA@1", "START_GROUP", "GS@2", "SKIPPED_GROUP",
+                                   "START_GROUP", "GS@58",
+                                   "START_TRANSACTION", "ST@59", "BEG@60"),
+                     segments.subList(0, 9));
+        assertEquals("IEA@77", segments.get(segments.size() - 1));
+        assertEquals(Collections.emptyList(), errors);
+    }
+
+    @Test
+    void testSkipTransactionNotValidated() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Schema transaction = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        List<String> resolved = new ArrayList<>();
+        factory.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER,
+                            (TransactionSchemaResolver) (standard, version, type, reference) -> {
+                                resolved.add(type);
+                                return transaction;
+                            });
+        List<EDIStreamValidationError> errors = new ArrayList<>();
+        factory.setErrorReporter((errorType, reader) -> errors.add(errorType));
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/x12/invalid997.edi"))) {
+            while (reader.nextTag() != EDIStreamEvent.START_TRANSACTION) {
+                assertThrows(IllegalStateException.class, reader::skipTransaction);
+            }
+
+            assertEquals(EDIStreamEvent.END_TRANSACTION, reader.skipTransaction());
+            // The end of the transaction is detected at the start of the GE segment
+            assertEquals("GE", reader.getLocation().getSegmentTag());
+            assertEquals(11, reader.getLocation().getSegmentPosition());
+            assertThrows(IllegalStateException.class, reader::skipTransaction);
+
+            while (reader.hasNext()) {
+                reader.next();
+            }
+        }
+
+        assertEquals(Collections.emptyList(), resolved);
+        assertEquals(Collections.emptyList(), errors);
+    }
+
+    @Test
+    void testSkipEdifactMessage() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamReader reader = factory.createEDIStreamReader(getClass().getResourceAsStream("/EDIFACT/invoic_d97b.edi"));
+        List<String> segments = readSkipping(reader, "INVOIC", false);
+
+        assertEquals(Arrays.asList("UNB@1", "START_TRANSACTION", "UNH@2", "SKIPPED_TRANSACTION", "UNZ@26"), segments);
+        assertThrows(IllegalStateException.class, reader::skipGroup);
+    }
 }
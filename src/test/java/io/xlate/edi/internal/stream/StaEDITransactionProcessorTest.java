@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.EDITransactionHandler;
+
+class StaEDITransactionProcessorTest {
+
+    static final int TRANSACTIONS = 500;
+
+    @TempDir
+    Path tempDir;
+
+    ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    Path writeLargeInterchange() throws IOException {
+        StringBuilder edi = new StringBuilder();
+        edi.append("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *200711*0100*^*00501*000000001*0*P*:~\n");
+        edi.append("GS*FA*ReceiverDept*SenderDept*20200711*010015*1*X*005010~\n");
+
+        for (int i = 1; i <= TRANSACTIONS; i++) {
+            String control = String.format("%04d", i);
+            edi.append("ST*997*").append(control).append("~\n");
+            edi.append("AK1*PO*").append(i).append("~\n");
+            edi.append("AK9*A*1*1*1~\n");
+            edi.append("SE*4*").append(control).append("~\n");
+        }
+
+        edi.append("GE*").append(TRANSACTIONS).append("*1~\n");
+        edi.append("IEA*1*000000001~\n");
+
+        Path path = tempDir.resolve("large997.edi");
+        Files.write(path, edi.toString().getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    static final EDITransactionHandler<String> CONTROL_NUMBER = reader -> {
+        String control = null;
+
+        while (control == null && reader.hasNext()) {
+            if (reader.next() == EDIStreamEvent.ELEMENT_DATA
+                    && "ST".equals(reader.getLocation().getSegmentTag())
+                    && reader.getLocation().getElementPosition() == 2) {
+                control = reader.getText();
+            }
+        }
+
+        return control;
+    };
+
+    List<String> expectedControlNumbers() {
+        return IntStream.rangeClosed(1, TRANSACTIONS)
+                        .mapToObj(i -> String.format("%04d", i))
+                        .collect(Collectors.toList());
+    }
+
+    @Test
+    void testProcessTransactionsOrdered() throws Exception {
+        Path path = writeLargeInterchange();
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<String> results = new ArrayList<>();
+
+        factory.processTransactions(path, CONTROL_NUMBER, results::add, true, pool);
+
+        assertEquals(expectedControlNumbers(), results);
+    }
+
+    @Test
+    void testProcessTransactionsUnordered() throws Exception {
+        Path path = writeLargeInterchange();
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        List<String> results = new ArrayList<>();
+
+        factory.processTransactions(path, CONTROL_NUMBER, results::add, false, pool);
+
+        Collections.sort(results);
+        assertEquals(expectedControlNumbers(), results);
+    }
+
+    @Test
+    void testProcessTransactionsValidated() throws Exception {
+        Path path = Paths.get("src/test/resources/x12/invoice810_po850_dual.edi");
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_VALIDATE_CONTROL_STRUCTURE, Boolean.TRUE);
+        List<String> results = new ArrayList<>();
+
+        factory.processTransactions(path, reader -> {
+            List<EDIStreamEvent> events = new ArrayList<>();
+            while (reader.hasNext()) {
+                EDIStreamEvent event = reader.next();
+                if (event == EDIStreamEvent.START_GROUP || event == EDIStreamEvent.START_TRANSACTION) {
+                    events.add(event);
+                }
+            }
+            return events.toString();
+        }, results::add, true, pool);
+
+        assertEquals(Collections.nCopies(3, Arrays.asList(EDIStreamEvent.START_GROUP,
+                                                          EDIStreamEvent.START_TRANSACTION).toString()),
+                     results);
+    }
+
+    @Test
+    void testProcessTransactionsHandlerException() throws Exception {
+        Path path = writeLargeInterchange();
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamException failure = new EDIStreamException("Handler failed");
+
+        EDIStreamException thrown = assertThrows(EDIStreamException.class, () -> {
+            factory.processTransactions(path, (EDIStreamReader reader) -> {
+                String control = CONTROL_NUMBER.handle(reader);
+                if ("0250".equals(control)) {
+                    throw failure;
+                }
+                return control;
+            }, result -> {}, true, pool);
+        });
+
+        assertSame(failure, thrown);
+    }
+
+    @Test
+    void testProcessTransactionsHandlerUncheckedException() throws Exception {
+        Path path = writeLargeInterchange();
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+
+        for (boolean ordered : new boolean[] { true, false }) {
+            IllegalStateException failure = new IllegalStateException("Handler failed");
+            AtomicInteger handled = new AtomicInteger();
+            List<String> results = Collections.synchronizedList(new ArrayList<>());
+
+            IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> {
+                factory.processTransactions(path, (EDIStreamReader reader) -> {
+                    String control = CONTROL_NUMBER.handle(reader);
+                    handled.incrementAndGet();
+                    if ("0005".equals(control)) {
+                        throw failure;
+                    }
+                    return control;
+                }, results::add, ordered, pool);
+            });
+
+            assertSame(failure, thrown);
+            assertTrue(handled.get() < TRANSACTIONS / 10, () -> "Handled after failure: " + handled);
+            assertFalse(results.contains("0005"));
+
+            if (ordered) {
+                assertTrue(results.size() < 5);
+                assertEquals(expectedControlNumbers().subList(0, results.size()), results);
+            } else {
+                assertTrue(results.size() < TRANSACTIONS / 10, () -> "Consumed after failure: " + results.size());
+            }
+        }
+    }
+
+    @Test
+    void testProcessTransactionsConsumerError() throws Exception {
+        Path path = writeLargeInterchange();
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        AssertionError failure = new AssertionError("Consumer failed");
+        AtomicInteger consumed = new AtomicInteger();
+
+        AssertionError thrown = assertThrows(AssertionError.class, () -> {
+            factory.processTransactions(path, CONTROL_NUMBER, result -> {
+                if (consumed.incrementAndGet() == 10) {
+                    throw failure;
+                }
+            }, false, pool);
+        });
+
+        assertSame(failure, thrown);
+        assertEquals(10, consumed.get());
+    }
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamIndex;
+import io.xlate.edi.stream.EDIStreamReader;
+
+class StaEDITransactionSpliteratorTest {
+
+    static final Path X12_DUAL = Paths.get("src/test/resources/x12/invoice810_po850_dual.edi");
+
+    static String controlNumber(EDIStreamReader reader) {
+        try (EDIStreamReader r = reader) {
+            while (r.hasNext()) {
+                if (r.next() == EDIStreamEvent.ELEMENT_DATA
+                        && "ST".equals(r.getLocation().getSegmentTag())
+                        && r.getLocation().getElementPosition() == 2) {
+                    return r.getText();
+                }
+            }
+            return null;
+        } catch (EDIStreamException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testTransactionStream() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+
+        try (Stream<EDIStreamReader> transactions = factory.createTransactionStream(X12_DUAL)) {
+            List<String> controls = transactions.map(StaEDITransactionSpliteratorTest::controlNumber)
+                                                .collect(Collectors.toList());
+            assertEquals(Arrays.asList("000000001", "000000002", "000191240"), controls);
+        }
+    }
+
+    @Test
+    void testTransactionStreamParallel() throws Exception {
+        StringBuilder edi = new StringBuilder();
+        edi.append("UNA:+.? '\n");
+        edi.append("UNB+UNOA:3+SENDER+RECEIVER+200711:0100+1'\n");
+
+        for (int i = 1; i <= 200; i++) {
+            edi.append("UNH+").append(i).append("+INVOIC:D:97B:UN'\n");
+            edi.append("BGM+380+").append(i).append("+9'\n");
+            edi.append("UNT+3+").append(i).append("'\n");
+        }
+
+        edi.append("UNZ+200+1'\n");
+        Path path = Files.createTempFile("edifact", ".edi");
+
+        try {
+            Files.write(path, edi.toString().getBytes());
+            EDIInputFactory factory = EDIInputFactory.newFactory();
+
+            try (Stream<EDIStreamReader> transactions = factory.createTransactionStream(path)) {
+                List<String> messages = transactions.parallel()
+                                                    .map(reader -> {
+                                                        try (EDIStreamReader r = reader) {
+                                                            while (r.next() != EDIStreamEvent.ELEMENT_DATA
+                                                                    || !"UNH".equals(r.getLocation().getSegmentTag())) {
+                                                                // Advance to the message reference
+                                                            }
+                                                            return r.getText();
+                                                        } catch (EDIStreamException | IOException e) {
+                                                            throw new IllegalStateException(e);
+                                                        }
+                                                    })
+                                                    .collect(Collectors.toList());
+                assertEquals(200, messages.size());
+
+                for (int i = 0; i < messages.size(); i++) {
+                    assertEquals(String.valueOf(i + 1), messages.get(i));
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testSpliteratorSplitsOnTransactions() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamIndex index;
+
+        try (FileChannel channel = FileChannel.open(X12_DUAL, StandardOpenOption.READ)) {
+            index = factory.createEDIStreamIndex(new MappedFileInputStream(channel, false));
+            Spliterator<EDIStreamReader> suffix = new StaEDITransactionSpliterator(factory, channel, index.getTransactions());
+
+            assertEquals(3, suffix.estimateSize());
+            assertTrue(suffix.hasCharacteristics(Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED));
+
+            Spliterator<EDIStreamReader> prefix = suffix.trySplit();
+            assertEquals(1, prefix.estimateSize());
+            assertEquals(2, suffix.estimateSize());
+            assertNull(prefix.trySplit());
+
+            StringBuilder controls = new StringBuilder();
+            prefix.forEachRemaining(r -> controls.append(controlNumber(r)).append(' '));
+            suffix.forEachRemaining(r -> controls.append(controlNumber(r)).append(' '));
+            assertEquals("000000001 000000002 000191240 ", controls.toString());
+        }
+    }
+
+    @Test
+    void testTransactionStreamClosesFile() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        EDIStreamReader reader;
+
+        try (Stream<EDIStreamReader> transactions = factory.createTransactionStream(X12_DUAL)) {
+            reader = transactions.findFirst().get();
+        }
+
+        assertThrows(EDIStreamException.class, reader::next);
+    }
+
+    @Test
+    void testTransactionStreamInvalidInput() throws Exception {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        Path path = Files.createTempFile("invalid", ".edi");
+
+        try {
+            Files.write(path, "ISA*00*".getBytes());
+            assertThrows(EDIStreamException.class, () -> factory.createTransactionStream(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIOutputFactory;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.EDIStreamWriter;
+import io.xlate.edi.stream.SegmentView;
+
+/**
+ * Runs a large number of readers and writers at once, each on its own virtual
+ * thread, when the tests are run on Java 21 or later. Reads of the input sleep
+ * briefly, so the readers only complete in reasonable time when their virtual
+ * threads are not pinned to a carrier thread while blocked.
+ *
+ * The concurrent test is tagged <code>stress</code> and is excluded from the
+ * default build, run it with <code>mvn test -Pstress</code>.
+ */
+class VirtualThreadStressTest {
+
+    static final int READERS = Integer.getInteger("staedi.stress.readers", 100_000);
+    static final long READ_DELAY_MILLIS = 1;
+
+    static final EDIInputFactory INPUT_FACTORY = EDIInputFactory.newFactory();
+    static final EDIOutputFactory OUTPUT_FACTORY = EDIOutputFactory.newFactory();
+
+    /**
+     * Input that returns small chunks of its data, blocking before each.
+     */
+    static class SlowInputStream extends ByteArrayInputStream {
+        final AtomicLong reads;
+
+        SlowInputStream(byte[] data, AtomicLong reads) {
+            super(data);
+            this.reads = reads;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            reads.incrementAndGet();
+
+            try {
+                Thread.sleep(READ_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.read(b, off, Math.min(len, 128));
+        }
+    }
+
+    /**
+     * Read each segment of the input and write it to the output.
+     */
+    static void copy(EDIStreamReader reader, OutputStream output) throws Exception {
+        try {
+            EDIStreamWriter writer = OUTPUT_FACTORY.createEDIStreamWriter(output);
+            writer.startInterchange();
+            while (reader.nextSegment() == EDIStreamEvent.END_SEGMENT) {
+                SegmentView segment = reader.getSegment();
+                writer.writeStartSegment(segment.getTag());
+
+                for (int e = 1, m = segment.getElementCount(); e <= m; e++) {
+                    writer.writeElement(segment.getElement(e));
+                }
+
+                writer.writeEndSegment();
+            }
+
+            writer.endInterchange();
+            writer.close();
+        } finally {
+            reader.close();
+        }
+    }
+
+    static byte[] input() throws IOException {
+        return Files.readAllBytes(Paths.get("src/test/resources/x12/simple997.edi"));
+    }
+
+    static byte[] expected(byte[] input) {
+        return new String(input).replaceAll("[\\r\\n]", "").getBytes();
+    }
+
+    @Test
+    void testCopyMatchesInput() throws Exception {
+        byte[] input = input();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        copy(INPUT_FACTORY.createEDIStreamReader(new SlowInputStream(input, new AtomicLong())), output);
+        assertArrayEquals(expected(input), output.toByteArray());
+    }
+
+    /**
+     * All readers are opened before any of them is read, then each copies its
+     * input. The JVM's trace of pinned virtual threads is captured and must be
+     * empty, and the copies must complete in well under the time taken by the
+     * reads' delays if only one reader could block on each carrier thread.
+     */
+    @Test
+    @Tag("stress")
+    void testConcurrentVirtualThreadReaders() throws Exception {
+        Method factory;
+
+        try {
+            factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            factory = null;
+        }
+
+        assumeTrue(factory != null, "Virtual threads require Java 21");
+
+        if (System.getProperty("jdk.tracePinnedThreads") == null) {
+            // Effective only when no virtual thread was started earlier by the JVM
+            System.setProperty("jdk.tracePinnedThreads", "short");
+        }
+
+        final byte[] input = input();
+        final byte[] expected = expected(input);
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicLong reads = new AtomicLong();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch opened = new CountDownLatch(READERS);
+        final ByteArrayOutputStream pinningTrace = new ByteArrayOutputStream();
+        final PrintStream stdout = System.out;
+        final long elapsed;
+
+        System.setOut(new PrintStream(pinningTrace, true));
+
+        try {
+            final long start = System.nanoTime();
+            final ExecutorService executor = (ExecutorService) factory.invoke(null);
+
+            try {
+                for (int i = 0; i < READERS; i++) {
+                    executor.execute(() -> {
+                        try {
+                            EDIStreamReader reader = INPUT_FACTORY.createEDIStreamReader(new SlowInputStream(input, reads));
+                            ByteArrayOutputStream output = new ByteArrayOutputStream(expected.length);
+
+                            opened.countDown();
+                            opened.await();
+                            copy(reader, output);
+
+                            if (output.size() == expected.length) {
+                                completed.incrementAndGet();
+                            }
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e);
+                            opened.countDown();
+                        }
+                    });
+                }
+            } finally {
+                executor.shutdown();
+            }
+
+            assertTrue(executor.awaitTermination(10, TimeUnit.MINUTES), "Readers did not complete");
+            elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertEquals(null, failure.get());
+        assertEquals(READERS, completed.get());
+        assertEquals("", pinningTrace.toString(), "Virtual threads were pinned");
+
+        // Time taken when each carrier thread is pinned by its virtual thread for every read
+        int carriers = Integer.getInteger("jdk.virtualThreadScheduler.parallelism", Runtime.getRuntime().availableProcessors());
+        long pinnedBaseline = reads.get() * READ_DELAY_MILLIS / carriers;
+        assertTrue(elapsed < pinnedBaseline / 2, "Elapsed " + elapsed + "ms, pinned baseline " + pinnedBaseline + "ms");
+    }
+}
@@ -15,14 +15,18 @@
  ******************************************************************************/
 package io.xlate.edi.internal.stream.tokenization;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.MalformedInputException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -97,6 +101,8 @@ class LexerTest {
 
         @Override
         public boolean binaryData(InputStream binary) {
+            content.put("LAST", "binaryData");
+            content.put("BINARY", binary);
             return true;
         }
 
@@ -371,6 +377,7 @@ class LexerTest {
 
         EDIException thrown = assertThrows(EDIException.class, lexer::parse);
         assertTrue(thrown.getMessage().contains("EDIE005"));
+        assertTrue(thrown.getCause() instanceof MalformedInputException);
     }
 
     @Test
@@ -385,4 +392,138 @@ class LexerTest {
         MalformedInputException thrown = assertThrows(MalformedInputException.class, lexer::parse);
         assertEquals("Input length = 1", thrown.getMessage());
     }
+
+    @Test
+    void testTruncatedMultiByteCharacterAtEndOfInput() throws EDIException, IOException {
+        byte[] header = "ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~".getBytes();
+        byte[] input = new byte[header.length + 5];
+        System.arraycopy(header, 0, input, 0, header.length);
+        // "GS*" followed by the first two of the three bytes encoding U+20AC
+        System.arraycopy(new byte[] { 'G', 'S', '*', (byte) 0xE2, (byte) 0x82 }, 0, input, header.length, 5);
+        InputStream stream = new ByteArrayInputStream(input);
+        TestLexerEventHandler eventHandler = new TestLexerEventHandler();
+        final StaEDIStreamLocation location = new StaEDIStreamLocation();
+        final Lexer lexer = new Lexer(stream, StandardCharsets.UTF_8, eventHandler, location);
+        for (int i = 0; i < 19; i++) {
+            lexer.parse(); // Interchange start through end of ISA
+        }
+        EDIException thrown = assertThrows(EDIException.class, () -> {
+            for (;;) {
+                lexer.parse();
+            }
+        });
+        assertTrue(thrown.getMessage().contains("EDIE005"));
+        assertTrue(thrown.getCause() instanceof MalformedInputException);
+        assertEquals(2, ((MalformedInputException) thrown.getCause()).getInputLength());
+    }
+
+    void assertFedInputBufferBounded(String element) throws Exception {
+        StringBuilder text = new StringBuilder("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~");
+
+        while (text.length() < 3_600_000) {
+            text.append("N1*").append(element).append("*").append(text.length()).append('~');
+        }
+
+        byte[] input = text.toString().getBytes(StandardCharsets.UTF_8);
+        TestLexerEventHandler eventHandler = new TestLexerEventHandler();
+        final Lexer lexer = new Lexer(null, StandardCharsets.UTF_8, eventHandler, new StaEDIStreamLocation());
+        int offset = 0;
+        int maximumCapacity = 0;
+
+        while (offset < input.length) {
+            int length = Math.min(1000, input.length - offset);
+            lexer.feedInput(ByteBuffer.wrap(input, offset, length));
+            offset += length;
+            maximumCapacity = Math.max(maximumCapacity, lexer.getInputBufferCapacity());
+
+            do {
+                lexer.parse();
+            } while (!lexer.isInputRequired());
+        }
+
+        assertEquals("N1", eventHandler.content.get("SEGMENT"));
+        assertTrue(maximumCapacity <= 16384, "Buffer capacity: " + maximumCapacity);
+    }
+
+    @Test
+    void testFedSingleByteInputBufferBounded() throws Exception {
+        assertFedInputBufferBounded("SINGLE BYTE");
+    }
+
+    @Test
+    void testFedMultiByteInputBufferBounded() throws Exception {
+        assertFedInputBufferBounded("MULTI BYTE \u00e9\u20ac");
+    }
+
+    @Test
+    void testBinaryElementFollowingMultiByteCharacters() throws Exception {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~".getBytes(StandardCharsets.UTF_8));
+        data.write("BIN*\u00C4\u00D6*4*".getBytes(StandardCharsets.UTF_8));
+        data.write(new byte[] { 0x00, (byte) 0xC3, 0x01, (byte) 0xFF });
+        data.write("*\u00DC~".getBytes(StandardCharsets.UTF_8));
+        data.write("IEA*1*508121953~".getBytes(StandardCharsets.UTF_8));
+
+        TestLexerEventHandler eventHandler = new TestLexerEventHandler();
+        final StaEDIStreamLocation location = new StaEDIStreamLocation();
+        final Lexer lexer = new Lexer(new ByteArrayInputStream(data.toByteArray()), StandardCharsets.UTF_8, eventHandler, location);
+
+        for (int i = 0; i < 22; i++) {
+            lexer.parse(); // Interchange start through end of ISA, BIN start, BIN01, BIN02
+        }
+
+        assertEquals("BIN", eventHandler.content.get("SEGMENT"));
+        assertEquals("4", eventHandler.content.get("ELEMENT"));
+        lexer.setBinaryLength(4);
+        lexer.parse();
+        assertEquals("binaryData", eventHandler.content.get("LAST"));
+
+        InputStream binary = (InputStream) eventHandler.content.get("BINARY");
+        ByteArrayOutputStream binaryData = new ByteArrayOutputStream();
+        int next;
+        while ((next = binary.read()) > -1) {
+            binaryData.write(next);
+        }
+        assertArrayEquals(new byte[] { 0x00, (byte) 0xC3, 0x01, (byte) 0xFF }, binaryData.toByteArray());
+
+        lexer.parse();
+        assertEquals("elementData", eventHandler.content.get("LAST"));
+        assertEquals("\u00DC", eventHandler.content.get("ELEMENT"));
+    }
+
+    void assertElementDataDecoded(Charset charset, String value) throws Exception {
+        InputStream stream = new ByteArrayInputStream((""
+                + "ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~"
+                + "SEG*" + value + "~").getBytes(charset));
+        TestLexerEventHandler eventHandler = new TestLexerEventHandler();
+        final StaEDIStreamLocation location = new StaEDIStreamLocation();
+        final Lexer lexer = new Lexer(stream, charset, eventHandler, location);
+
+        for (int i = 0; i < 21; i++) {
+            lexer.parse(); // Interchange start through end of ISA, SEG start, SEG01
+        }
+
+        assertEquals("SEG", eventHandler.content.get("SEGMENT"));
+        assertEquals(value, eventHandler.content.get("ELEMENT"));
+    }
+
+    @Test
+    void testSingleByteUTF8FallbackToDecoder() throws Exception {
+        assertElementDataDecoded(StandardCharsets.UTF_8, "\u00C4\u00D6\u00DC");
+    }
+
+    @Test
+    void testSingleByteISO88591() throws Exception {
+        assertElementDataDecoded(StandardCharsets.ISO_8859_1, "\u00C4\u00D6\u00DC");
+    }
+
+    @Test
+    void testSingleByteASCII() throws Exception {
+        assertElementDataDecoded(StandardCharsets.US_ASCII, "ABC");
+    }
+
+    @Test
+    void testMultiByteCharsetDecoded() throws Exception {
+        assertElementDataDecoded(StandardCharsets.UTF_16, "\u00C4\u00D6\u00DC");
+    }
 }
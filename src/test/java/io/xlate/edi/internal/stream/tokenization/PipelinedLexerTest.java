@@ -0,0 +1,386 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.tokenization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.internal.stream.StaEDIStreamLocation;
+import io.xlate.edi.schema.Schema;
+import io.xlate.edi.schema.SchemaFactory;
+import io.xlate.edi.stream.EDIInputFactory;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamException;
+import io.xlate.edi.stream.EDIStreamReader;
+import io.xlate.edi.stream.Location;
+import io.xlate.edi.stream.TransactionSchemaResolver;
+
+class PipelinedLexerTest {
+
+    static String describe(EDIStreamReader reader, EDIStreamEvent event) {
+        StringBuilder result = new StringBuilder(event.toString());
+        Location location = reader.getLocation();
+
+        result.append('@')
+              .append(location.getSegmentPosition()).append(',')
+              .append(location.getSegmentTag()).append(',')
+              .append(location.getElementPosition()).append(',')
+              .append(location.getElementOccurrence()).append(',')
+              .append(location.getComponentPosition()).append(',')
+              .append(location.getLineNumber()).append(',')
+              .append(location.getColumnNumber()).append(',')
+              .append(location.getCharacterOffset());
+
+        switch (event) {
+        case START_SEGMENT:
+        case ELEMENT_DATA:
+            result.append('=').append(reader.getText());
+            break;
+        case START_LOOP:
+        case END_LOOP:
+            result.append('=').append(reader.getReferenceCode());
+            break;
+        case SEGMENT_ERROR:
+        case ELEMENT_DATA_ERROR:
+        case ELEMENT_OCCURRENCE_ERROR:
+            result.append('=').append(reader.getErrorType());
+            break;
+        default:
+            break;
+        }
+
+        return result.toString();
+    }
+
+    static List<String> readAll(EDIInputFactory factory, String resource) throws Exception {
+        List<String> events = new ArrayList<>();
+
+        try (InputStream stream = PipelinedLexerTest.class.getResourceAsStream(resource);
+             EDIStreamReader reader = factory.createEDIStreamReader(stream)) {
+            while (reader.hasNext()) {
+                events.add(describe(reader, reader.next()));
+            }
+        }
+
+        return events;
+    }
+
+    static EDIInputFactory factory(boolean pipelined) {
+        EDIInputFactory factory = EDIInputFactory.newFactory();
+        factory.setProperty(EDIInputFactory.EDI_PIPELINED_PARSING, pipelined);
+        return factory;
+    }
+
+    void assertPipelinedEventsMatch(EDIInputFactory sequential, EDIInputFactory pipelined, String resource) throws Exception {
+        List<String> expected = readAll(sequential, resource);
+        List<String> actual = readAll(pipelined, resource);
+        assertTrue(expected.size() > 10);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testPipelinedEventsMatchSequential() throws Exception {
+        String[] resources = { "/x12/invoice810_po850_dual.edi",
+                               "/x12/simple997.edi",
+                               "/x12/invalid997.edi",
+                               "/x12/sample837-original.edi",
+                               "/EDIFACT/invoic_d93a_una.edi",
+                               "/EDIFACT/invoic_d97b_una.edi",
+                               "/EDIFACT/invoic_d97b.edi" };
+
+        for (String resource : resources) {
+            assertPipelinedEventsMatch(factory(false), factory(true), resource);
+        }
+    }
+
+    @Test
+    void testPipelinedEventsMatchSequentialWithTransactionSchema() throws Exception {
+        Schema schema = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/005010X222/837.xml"));
+        EDIInputFactory sequential = factory(false);
+        EDIInputFactory pipelined = factory(true);
+        TransactionSchemaResolver resolver = (standard, version, type, reference) -> schema;
+        sequential.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER, resolver);
+        pipelined.setProperty(EDIInputFactory.EDI_TRANSACTION_SCHEMA_RESOLVER, resolver);
+
+        assertPipelinedEventsMatch(sequential, pipelined, "/x12/sample837-original.edi");
+        assertPipelinedEventsMatch(sequential, pipelined, "/x12/sample837-small.edi");
+    }
+
+    @Test
+    void testPipelinedSkipTransaction() throws Exception {
+        List<List<String>> results = new ArrayList<>();
+
+        for (boolean pipelined : new boolean[] { false, true }) {
+            List<String> events = new ArrayList<>();
+
+            try (InputStream stream = getClass().getResourceAsStream("/x12/invoice810_po850_dual.edi");
+                 EDIStreamReader reader = factory(pipelined).createEDIStreamReader(stream)) {
+                while (reader.hasNext()) {
+                    EDIStreamEvent event = reader.next();
+
+                    if (event == EDIStreamEvent.START_TRANSACTION) {
+                        event = reader.skipTransaction();
+                    }
+
+                    events.add(describe(reader, event));
+                }
+            }
+
+            results.add(events);
+        }
+
+        assertEquals(results.get(0), results.get(1));
+        assertFalse(results.get(1).stream().anyMatch(e -> e.contains("=BIG") || e.contains("=BEG")));
+    }
+
+    @Test
+    void testPipelinedReaderReset() throws Exception {
+        List<String> expected = readAll(factory(false), "/x12/simple997.edi");
+        List<String> actual = new ArrayList<>();
+
+        try (EDIStreamReader reader = factory(true).createEDIStreamReader(getClass().getResourceAsStream("/x12/invoice810_po850_dual.edi"))) {
+            // Abandon the first input part way through
+            for (int i = 0; i < 20; i++) {
+                reader.next();
+            }
+
+            reader.reset(getClass().getResourceAsStream("/x12/simple997.edi"));
+
+            while (reader.hasNext()) {
+                actual.add(describe(reader, reader.next()));
+            }
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void testPipelinedParsingExecutor() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        EDIInputFactory factory = factory(true);
+        factory.setProperty(EDIInputFactory.EDI_PIPELINED_PARSING_EXECUTOR, (Executor) task -> {
+            Thread thread = new Thread(task);
+            threads.add(thread);
+            thread.start();
+        });
+
+        // More segments than the capacity of the queue, the task blocks until reset
+        StringBuilder input = new StringBuilder("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~");
+
+        for (int i = 0; i < PipelinedLexer.DEFAULT_CAPACITY * 2; i++) {
+            input.append("XYZ*").append(i).append('~');
+        }
+
+        try (EDIStreamReader reader = factory.createEDIStreamReader(new ByteArrayInputStream(input.toString().getBytes()))) {
+            reader.next();
+            assertEquals(1, threads.size());
+            assertTrue(threads.get(0).isAlive());
+
+            // The task tokenizing the abandoned input ends
+            reader.reset(getClass().getResourceAsStream("/x12/simple997.edi"));
+            threads.get(0).join(5000);
+            assertFalse(threads.get(0).isAlive());
+
+            assertEquals(EDIStreamEvent.START_INTERCHANGE, reader.next());
+            assertEquals(2, threads.size());
+        }
+
+        threads.get(1).join(5000);
+        assertFalse(threads.get(1).isAlive());
+    }
+
+    @Test
+    void testPipelinedIncompleteInput() throws Exception {
+        InputStream stream = new ByteArrayInputStream(("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~"
+                + "GS*FA*ReceiverDept*SenderDept*20050812*195335*000005*X*005010X230~").getBytes());
+
+        try (EDIStreamReader reader = factory(true).createEDIStreamReader(stream)) {
+            assertEquals(EDIStreamEvent.START_INTERCHANGE, reader.next());
+
+            EDIStreamException thrown = assertThrows(EDIStreamException.class, () -> {
+                while (reader.hasNext()) {
+                    reader.next();
+                }
+            });
+
+            assertTrue(thrown.getMessage().contains("EDIE005"), thrown.getMessage());
+        }
+    }
+
+    static class SimulatedError extends Error {
+        private static final long serialVersionUID = 1L;
+    }
+
+    @Test
+    void testErrorInTokenizingTaskRethrown() throws Exception {
+        InputStream header = new ByteArrayInputStream(("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~")
+                .getBytes());
+        InputStream stream = new InputStream() {
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int count = header.read(b, off, len);
+
+                if (count < 0) {
+                    throw new SimulatedError();
+                }
+
+                return count;
+            }
+        };
+
+        try (EDIStreamReader reader = factory(true).createEDIStreamReader(stream)) {
+            // Without the failure being published, the reader would wait for tokens indefinitely
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                assertThrows(SimulatedError.class, () -> {
+                    while (reader.hasNext()) {
+                        reader.next();
+                    }
+                });
+            });
+        }
+    }
+
+    @Test
+    void testBinaryDataUnsupported() throws Exception {
+        InputStream stream = getClass().getResourceAsStream("/x12/simple997.edi");
+        EDIStreamReader reader = factory(true).createEDIStreamReader(stream);
+
+        while (reader.next() != EDIStreamEvent.START_SEGMENT) {
+            // Advance to the first segment
+        }
+
+        EDIStreamException thrown = assertThrows(EDIStreamException.class, () -> reader.setBinaryDataLength(1));
+        assertEquals(1, thrown.getLocation().getSegmentPosition());
+        reader.close();
+    }
+
+    @Test
+    void testBinaryElementInSchemaReported() throws Exception {
+        Schema schema = SchemaFactory.newFactory().createSchema(getClass().getResource("/x12/EDISchemaBinarySegment.xml"));
+        InputStream stream = getClass().getResourceAsStream("/x12/sample275_with_HL7_valid_BIN01.edi");
+
+        try (EDIStreamReader reader = factory(true).createEDIStreamReader(stream)) {
+            EDIStreamException thrown = assertThrows(EDIStreamException.class, () -> {
+                while (reader.hasNext()) {
+                    if (reader.next() == EDIStreamEvent.START_TRANSACTION) {
+                        reader.setTransactionSchema(schema);
+                    }
+                }
+            });
+
+            assertEquals("BIN", thrown.getLocation().getSegmentTag());
+            assertEquals(1, thrown.getLocation().getElementPosition());
+        }
+    }
+
+    @Test
+    void testCloseStopsTokenizingThread() throws Exception {
+        // Capacity is smaller than the number of segments, the producer blocks until closed
+        StringBuilder input = new StringBuilder("ISA*00*          *00*          *ZZ*ReceiverID     *ZZ*Sender         *050812*1953*^*00501*508121953*0*P*:~");
+
+        for (int i = 0; i < 100; i++) {
+            input.append("XYZ*").append(i).append('~');
+        }
+
+        StaEDIStreamLocation location = new StaEDIStreamLocation();
+        ProxyEventHandler handler = new ProxyEventHandler(location, null);
+        List<Thread> threads = new ArrayList<>();
+        PipelinedLexer lexer = new PipelinedLexer(new ByteArrayInputStream(input.toString().getBytes()),
+                                                  StandardCharsets.US_ASCII,
+                                                  handler,
+                                                  location,
+                                                  task -> {
+                                                      Thread thread = new Thread(task);
+                                                      threads.add(thread);
+                                                      thread.start();
+                                                  },
+                                                  4);
+        lexer.parse();
+        assertEquals(EDIStreamEvent.START_INTERCHANGE, handler.getEvent());
+
+        assertEquals(1, threads.size());
+        Thread producer = threads.get(0);
+        assertTrue(producer.isAlive());
+        lexer.close();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        assertThrows(IllegalStateException.class, lexer::parse);
+    }
+
+    static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+        for (int i = 0; i < 500 && thread.getState() != state; i++) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(state, thread.getState());
+    }
+
+    @Test
+    void testQueueParksUntilSignaled() throws Exception {
+        PipelinedLexer.TokenQueue queue = new PipelinedLexer.TokenQueue(2);
+        List<PipelinedLexer.TokenBatch> taken = new ArrayList<>();
+
+        Thread consumer = new Thread(() -> {
+            for (int i = 0; i < 3; i++) {
+                taken.add(queue.take());
+                queue.release();
+            }
+        });
+        consumer.start();
+
+        // Parked without a timeout while the queue is empty
+        awaitState(consumer, Thread.State.WAITING);
+
+        // Fills the ring following the batches taken, then waits for one more
+        Thread producer = new Thread(() -> {
+            for (int i = 0, m = 3 + queue.ring.length + 1; i < m; i++) {
+                queue.acquire();
+                queue.publish();
+            }
+        });
+        producer.start();
+        consumer.join(5000);
+        assertEquals(3, taken.size());
+
+        // Parked without a timeout while the queue is full
+        awaitState(producer, Thread.State.WAITING);
+        assertTrue(producer.isAlive());
+
+        queue.take();
+        queue.release();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.tokenization;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.internal.stream.StaEDIStreamLocation;
+import io.xlate.edi.internal.stream.validation.Validator;
+import io.xlate.edi.internal.stream.validation.ValidatorPool;
+import io.xlate.edi.schema.EDISchemaException;
+import io.xlate.edi.schema.Schema;
+import io.xlate.edi.schema.SchemaFactory;
+import io.xlate.edi.stream.EDIStreamEvent;
+import io.xlate.edi.stream.EDIStreamValidationError;
+
+class ProxyEventHandlerTest {
+
+    @Test
+    void testEventCapacityExpanded() {
+        ProxyEventHandler handler = new ProxyEventHandler(new StaEDIStreamLocation(), null);
+
+        for (int pass = 0; pass < 2; pass++) {
+            handler.resetEvents();
+
+            for (int i = 0; i < 500; i++) {
+                handler.segmentError("S" + i, null, EDIStreamValidationError.UNEXPECTED_SEGMENT);
+            }
+
+            int count = 0;
+
+            do {
+                assertEquals(EDIStreamEvent.SEGMENT_ERROR, handler.getEvent());
+                assertEquals("S" + count, handler.getCharacters().toString());
+                count++;
+            } while (handler.nextEvent());
+
+            assertEquals(500, count);
+            assertFalse(handler.hasEvents());
+        }
+    }
+
+    @Test
+    void testTransactionValidatorReusedPerSchema() throws EDISchemaException {
+        SchemaFactory schemaFactory = SchemaFactory.newFactory();
+        Schema schema997 = schemaFactory.createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+        Schema schema810 = schemaFactory.createSchema(getClass().getResource("/x12/EDISchema810.xml"));
+        ProxyEventHandler handler = new ProxyEventHandler(new StaEDIStreamLocation(), null);
+
+        Validator validator997 = handler.getTransactionValidator(schema997);
+        Validator validator810 = handler.getTransactionValidator(schema810);
+
+        assertNotSame(validator997, validator810);
+        assertSame(validator997, handler.getTransactionValidator(schema997));
+        assertSame(validator810, handler.getTransactionValidator(schema810));
+    }
+
+    @Test
+    void testTransactionValidatorsLimitedAcrossResets() throws EDISchemaException {
+        SchemaFactory schemaFactory = SchemaFactory.newFactory();
+        ValidatorPool pool = new ValidatorPool();
+        ProxyEventHandler handler = new ProxyEventHandler(new StaEDIStreamLocation(), null, pool);
+        final int count = ProxyEventHandler.MAXIMUM_TRANSACTION_VALIDATORS * 4;
+        Schema[] schemas = new Schema[count];
+        Validator[] validators = new Validator[count];
+
+        for (int i = 0; i < count; i++) {
+            handler.reset(null);
+            // Distinct instances, as given by a resolver for each input
+            schemas[i] = schemaFactory.createSchema(getClass().getResource("/x12/EDISchema997.xml"));
+            validators[i] = handler.getTransactionValidator(schemas[i]);
+        }
+
+        final int retained = count - ProxyEventHandler.MAXIMUM_TRANSACTION_VALIDATORS;
+
+        for (int i = count - 1; i >= retained; i--) {
+            // Most recently used validators are retained by the handler
+            assertSame(validators[i], handler.getTransactionValidator(schemas[i]));
+        }
+
+        for (int i = 0; i < retained; i++) {
+            // Others were released to the pool for use by other readers
+            assertSame(validators[i], pool.acquire(schemas[i], true, true, null));
+        }
+
+        handler.reset(null);
+        assertNotSame(validators[0], handler.getTransactionValidator(schemas[0]));
+    }
+}
@@ -4,13 +4,19 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -104,6 +110,50 @@ class AlphaNumericValidatorTest implements ValueSetTester {
         assertEquals(EDIStreamValidationError.INVALID_CHARACTER_DATA, errors.get(0));
     }
 
+    @Test
+    void testValidateValueSetNotCompiled() {
+        EDISimpleType element = mock(EDISimpleType.class);
+        List<Object> lookups = new ArrayList<>();
+        @SuppressWarnings("serial")
+        Set<String> valueSet = new HashSet<String>(setOf("VAL1", "VAL2")) {
+            @Override
+            public boolean contains(Object o) {
+                lookups.add(o);
+                return super.contains(o);
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                throw new AssertionError("Value set must not be iterated");
+            }
+        };
+        when(element.getMinLength(any())).thenReturn(4L);
+        when(element.getMaxLength(any())).thenReturn(5L);
+        when(element.getValueSet(any())).thenReturn(valueSet);
+        ElementValidator v = AlphaNumericValidator.getInstance();
+        List<EDIStreamValidationError> errors = new ArrayList<>();
+        v.validate(dialect, element, "VAL2", errors);
+        assertEquals(0, errors.size());
+        assertEquals(Arrays.asList("VAL2"), lookups);
+    }
+
+    @Test
+    void testValidateCompiledValueSetWithCharSequence() {
+        EDISimpleType element = mock(EDISimpleType.class);
+        when(element.getMinLength(any())).thenReturn(2L);
+        when(element.getMaxLength(any())).thenReturn(2L);
+        StringIndex valueSet = new StringIndex(setOf("AA", "BB"));
+        ElementValidator v = AlphaNumericValidator.getInstance();
+        List<EDIStreamValidationError> errors = new ArrayList<>();
+
+        v.validate(dialect, element, valueSet, CharBuffer.wrap("xBBx").subSequence(1, 3), errors);
+        assertEquals(0, errors.size());
+
+        v.validate(dialect, element, valueSet, new StringBuilder("AB"), errors);
+        assertEquals(1, errors.size());
+        assertEquals(EDIStreamValidationError.INVALID_CODE_VALUE, errors.get(0));
+    }
+
     @Test
     void testFormatValueTooLong() {
         EDISimpleType element = mock(EDISimpleType.class);
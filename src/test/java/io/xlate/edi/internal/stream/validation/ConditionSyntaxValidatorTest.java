@@ -52,7 +52,7 @@ class ConditionSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(0, count.get());
     }
 
@@ -77,7 +77,7 @@ class ConditionSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(0, count.get());
     }
 
@@ -103,7 +103,7 @@ class ConditionSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(1, count.get());
     }
 }
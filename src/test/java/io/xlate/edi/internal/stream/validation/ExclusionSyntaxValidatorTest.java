@@ -53,7 +53,7 @@ class ExclusionSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(2, count.get());
     }
 
@@ -78,7 +78,7 @@ class ExclusionSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(0, count.get());
     }
 
@@ -104,7 +104,7 @@ class ExclusionSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(0, count.get());
     }
 }
@@ -54,7 +54,7 @@ class ListSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(0, count.get());
     }
 
@@ -79,7 +79,7 @@ class ListSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(0, count.get());
     }
 
@@ -105,7 +105,7 @@ class ListSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(2, count.get()); // Error for both positions 3 and 4
     }
 
@@ -141,7 +141,7 @@ class ListSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(1, element.get());
         assertEquals(2, count.get()); // Error for both positions 3 and 4
     }
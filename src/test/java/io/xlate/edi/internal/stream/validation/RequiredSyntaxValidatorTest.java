@@ -53,7 +53,7 @@ class RequiredSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(0, count.get());
     }
 
@@ -79,7 +79,7 @@ class RequiredSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(3, count.get());
     }
 
@@ -104,7 +104,7 @@ class RequiredSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(0, count.get());
     }
 
@@ -130,7 +130,7 @@ class RequiredSyntaxValidatorTest extends SyntaxValidatorTestBase {
                         any(Integer.class),
                         any(Integer.class));
 
-        validator.validate(syntax, structure, handler);
+        validator.validate(syntax, structure, usage, handler);
         assertEquals(3, count.get());
     }
 }
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+class StringIndexTest {
+
+    @Test
+    void testIndexOfCharSequence() {
+        StringIndex index = new StringIndex(Arrays.asList("ISA", "GS", "ST", "NM1", "GS"));
+
+        assertEquals(4, index.size());
+        assertEquals(0, index.indexOf("ISA"));
+        assertEquals(1, index.indexOf(new StringBuilder("GS")));
+        assertEquals(2, index.indexOf(CharBuffer.wrap("ST")));
+        assertEquals(3, index.indexOf(CharBuffer.wrap("xNM1x").subSequence(1, 4)));
+        assertEquals("NM1", index.get(3));
+        assertEquals(-1, index.indexOf("NM"));
+        assertEquals(-1, index.indexOf("NM12"));
+        assertEquals(-1, index.indexOf(null));
+    }
+
+    @Test
+    void testCollidingKeys() {
+        // "Aa" and "BB" have the same String hash code
+        StringIndex index = new StringIndex(Arrays.asList("Aa", "BB", "C"));
+
+        assertTrue(index.contains("Aa"));
+        assertTrue(index.contains("BB"));
+        assertTrue(index.contains("C"));
+        assertFalse(index.contains("AB"));
+    }
+
+    @Test
+    void testEmptyIndex() {
+        StringIndex index = new StringIndex(Collections.emptyList());
+        assertEquals(0, index.size());
+        assertFalse(index.contains("A"));
+        assertFalse(index.contains(""));
+    }
+}
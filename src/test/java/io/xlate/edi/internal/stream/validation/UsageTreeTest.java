@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.schema.EDIType;
+import io.xlate.edi.schema.Schema;
+import io.xlate.edi.schema.SchemaFactory;
+
+class UsageTreeTest {
+
+    static Schema loadSchema(String resource) throws Exception {
+        SchemaFactory factory = SchemaFactory.newFactory();
+        return factory.createSchema(UsageTreeTest.class.getResource(resource));
+    }
+
+    static int assertOrdinals(UsageNode node, int expectedOrdinal) {
+        assertEquals(expectedOrdinal, node.getOrdinal());
+        int next = expectedOrdinal + 1;
+
+        for (UsageNode child : node.getChildren()) {
+            if (child != null) {
+                next = assertOrdinals(child, next);
+            }
+        }
+
+        assertEquals(next, node.getSubtreeEnd());
+        return next;
+    }
+
+    @Test
+    void testTreeSharedBySchema() throws Exception {
+        Schema schema = loadSchema("/x12/IG-999.xml");
+        UsageTree tree = UsageTree.of(schema);
+
+        assertSame(tree, UsageTree.of(schema));
+        assertNotSame(tree.newUsageCounters(), tree.newUsageCounters());
+    }
+
+    @Test
+    void testOrdinalsCoverSubtrees() throws Exception {
+        Schema schema = loadSchema("/x12/IG-999.xml");
+        UsageTree tree = UsageTree.of(schema);
+
+        int implStart = assertOrdinals(tree.getRoot(), 0);
+        int end = assertOrdinals(tree.getImplRoot(), implStart);
+
+        assertEquals(end, tree.newUsageCounters().length);
+    }
+
+    @Test
+    void testResetChildrenRetainsNodeUsage() throws Exception {
+        Schema schema = loadSchema("/x12/EDISchema997.xml");
+        UsageTree tree = UsageTree.of(schema);
+        int[] usage = tree.newUsageCounters();
+        UsageNode loop = tree.getRoot();
+        UsageNode first = loop.getFirstChild();
+
+        loop.incrementUsage(usage);
+        first.incrementUsage(usage);
+        assertTrue(loop.isUsed(usage));
+        assertTrue(first.isUsed(usage));
+
+        loop.resetChildren(usage);
+        assertTrue(loop.isUsed(usage));
+        assertFalse(first.isUsed(usage));
+
+        first.incrementUsage(usage);
+        loop.reset(usage);
+        assertFalse(loop.isUsed(usage));
+        assertFalse(first.isUsed(usage));
+    }
+
+    static UsageNode findParentOf(UsageNode node, String childId) {
+        if (node.getChildById(childId) != null) {
+            return node;
+        }
+
+        for (UsageNode child : node.getChildren()) {
+            UsageNode result = child != null ? findParentOf(child, childId) : null;
+
+            if (result != null) {
+                return result;
+            }
+        }
+
+        return null;
+    }
+
+    @Test
+    void testNextSiblingStartingWithSegmentTag() throws Exception {
+        Schema schema = loadSchema("/x12/EDISchema997.xml");
+        UsageTree tree = UsageTree.of(schema);
+        UsageNode parent = findParentOf(tree.getRoot(), "AK9");
+        UsageNode ak1 = parent.getChildById("AK1");
+        UsageNode loop2000 = parent.getChildById("2000");
+        UsageNode ak9 = parent.getChildById("AK9");
+
+        assertEquals("AK2", loop2000.getSegmentTag());
+        assertEquals("AK9", ak9.getSegmentTag());
+
+        assertSame(loop2000, ak1.getNextSiblingStartingWith("AK2"));
+        assertSame(ak9, ak1.getNextSiblingStartingWith("AK9"));
+        assertSame(ak9, loop2000.getNextSiblingStartingWith("AK9"));
+        // Only following siblings are candidates
+        assertNull(ak9.getNextSiblingStartingWith("AK1"));
+        assertNull(loop2000.getNextSiblingStartingWith("AK2"));
+        // Segments nested in a loop do not begin a sibling
+        assertNull(ak1.getNextSiblingStartingWith("AK5"));
+        assertNull(ak1.getNextSiblingStartingWith("2000"));
+    }
+
+    static void collectSimpleNodes(UsageNode node, List<UsageNode> nodes) {
+        if (node.isNodeType(EDIType.Type.ELEMENT)) {
+            nodes.add(node);
+        }
+
+        for (UsageNode child : node.getChildren()) {
+            if (child != null) {
+                collectSimpleNodes(child, nodes);
+            }
+        }
+    }
+
+    @Test
+    void testValueSetCompiledOncePerType() throws Exception {
+        Schema schema = loadSchema("/x12/EDISchema997.xml");
+        UsageTree tree = UsageTree.of(schema);
+        List<UsageNode> nodes = new ArrayList<>();
+        collectSimpleNodes(tree.getRoot(), nodes);
+        Map<EDIType, StringIndex> compiled = new IdentityHashMap<>();
+        int shared = 0;
+
+        for (UsageNode node : nodes) {
+            assertFalse(node.hasVersions());
+            StringIndex values = node.getValueSet("005010");
+            // Same index for any version of a type without versions
+            assertSame(values, node.getValueSet("004010"));
+
+            StringIndex previous = compiled.putIfAbsent(node.getReferencedType(), values);
+
+            if (previous != null) {
+                assertSame(previous, values);
+                shared++;
+            }
+        }
+
+        assertTrue(shared > 0, "Expected element types used by multiple nodes");
+    }
+
+    @Test
+    void testValueSetCompiledOncePerTypeVersion() throws Exception {
+        Schema schema = loadSchema("/x12/EDISchemaMultiVersionElementType.xml");
+        UsageTree tree = UsageTree.of(schema);
+        UsageNode segment = findParentOf(tree.getRoot(), "E999");
+        UsageNode element = segment.getChildById("E999");
+
+        assertTrue(element.hasVersions());
+        StringIndex v3 = element.getValueSet("X.003010");
+        StringIndex v4 = element.getValueSet("X.004010");
+        StringIndex v5 = element.getValueSet("X.005010");
+
+        assertEquals(2, v3.size());
+        assertEquals(4, v4.size());
+        assertEquals(5, v5.size());
+
+        for (int i = 0; i < 1000; i++) {
+            assertSame(v3, element.getValueSet(String.format("X.003%03d", i)));
+            assertSame(v4, element.getValueSet(String.format("X.004%03d", i)));
+            assertSame(v5, element.getValueSet(String.format("X.005%03d", i)));
+        }
+    }
+
+    @Test
+    void testVersionedChildrenRetainedLimited() throws Exception {
+        Schema schema = loadSchema("/x12/EDISchemaMultiVersionImplementation.xml");
+        UsageTree tree = UsageTree.of(schema);
+        UsageNode segment = findParentOf(tree.getRoot(), "E999");
+        final int count = UsageNode.MAXIMUM_VERSIONED_CHILDREN * 4;
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(segment.getChildren(), segment.getChildren(String.format("X.004%03d", i)));
+        }
+
+        // The lists of the first versions are retained, later ones are not
+        assertSame(segment.getChildren("X.004000"), segment.getChildren("X.004000"));
+        assertNotSame(segment.getChildren("X.004999"), segment.getChildren("X.004999"));
+        assertEquals(segment.getChildren(), segment.getChildren("X.004999"));
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.internal.stream.validation;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.mock;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.jupiter.api.Test;
+
+import io.xlate.edi.schema.EDISchemaException;
+import io.xlate.edi.schema.Schema;
+import io.xlate.edi.schema.SchemaFactory;
+
+class ValidatorPoolTest {
+
+    Schema loadSchema(String resource) throws EDISchemaException {
+        return SchemaFactory.newFactory().createSchema(getClass().getResource(resource));
+    }
+
+    @Test
+    void testReleasedValidatorReused() throws EDISchemaException {
+        Schema schema = loadSchema("/x12/EDISchema997.xml");
+        ValidatorPool pool = new ValidatorPool();
+
+        Validator validator = pool.acquire(schema, true, null);
+        pool.release(validator);
+        assertEquals(1, pool.getIdleCount(schema, true, null));
+
+        assertSame(validator, pool.acquire(schema, true, null));
+        assertEquals(0, pool.getIdleCount(schema, true, null));
+        assertNotSame(validator, pool.acquire(schema, true, null));
+    }
+
+    @Test
+    void testValidatorsPooledBySchemaAndSettings() throws EDISchemaException {
+        Schema schema997 = loadSchema("/x12/EDISchema997.xml");
+        Schema schema810 = loadSchema("/x12/EDISchema810.xml");
+        ValidatorPool pool = new ValidatorPool();
+
+        Validator validator = pool.acquire(schema997, true, null);
+        pool.release(validator);
+
+        assertNotSame(validator, pool.acquire(schema810, true, null));
+        assertNotSame(validator, pool.acquire(schema997, false, null));
+        assertNotSame(validator, pool.acquire(schema997, true, schema810));
+        assertNotSame(validator, pool.acquire(schema997, true, false, null));
+        assertSame(validator, pool.acquire(schema997, true, null));
+    }
+
+    @Test
+    void testIdleValidatorsLimited() throws EDISchemaException {
+        Schema schema = loadSchema("/x12/EDISchema997.xml");
+        ValidatorPool pool = new ValidatorPool(2);
+
+        for (int i = 0; i < 3; i++) {
+            pool.release(new Validator(schema, true, null));
+        }
+
+        assertEquals(2, pool.getIdleCount(schema, true, null));
+        assertThrows(IllegalArgumentException.class, () -> new ValidatorPool(0));
+    }
+
+    static void awaitCollected(WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testIdleValidatorsDiscardedWithSchema() throws Exception {
+        ValidatorPool pool = new ValidatorPool();
+        Schema schema = loadSchema("/x12/EDISchema997.xml");
+        pool.release(pool.acquire(schema, true, null));
+        assertEquals(1, pool.getIdleCount(schema, true, null));
+
+        WeakReference<Schema> reference = new WeakReference<>(schema);
+        schema = null;
+        awaitCollected(reference);
+
+        assertNull(reference.get());
+    }
+
+    @Test
+    void testIdleValidatorsDiscardedWithPool() throws Exception {
+        Schema schema = loadSchema("/x12/EDISchema997.xml");
+        ValidatorPool pool = new ValidatorPool();
+        Validator validator = pool.acquire(schema, true, null);
+        pool.release(validator);
+
+        WeakReference<ValidatorPool> reference = new WeakReference<>(pool);
+        pool = null;
+        awaitCollected(reference);
+
+        assertNull(reference.get());
+        assertNotSame(validator, new ValidatorPool().acquire(schema, true, null));
+    }
+
+    @Test
+    void testValidatorsOfOtherSchemaTypesNotPooled() throws EDISchemaException {
+        Schema loaded = loadSchema("/x12/EDISchema997.xml");
+        Schema schema = mock(Schema.class, delegatesTo(loaded));
+        ValidatorPool pool = new ValidatorPool();
+        Validator validator = pool.acquire(schema, true, null);
+        pool.release(validator);
+
+        assertEquals(0, pool.getIdleCount(schema, true, null));
+        assertNotSame(validator, pool.acquire(schema, true, null));
+    }
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright 2020 xlate.io LLC, http://www.xlate.io
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ ******************************************************************************/
+package io.xlate.edi.stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class EDISegmentPublisherTest {
+
+    static final String[] TAGS = { "ISA", "GS", "ST", "AK1", "AK2", "AK3", "AK4", "AK5", "AK9", "SE", "GE", "IEA" };
+
+    ExecutorService executor;
+
+    /**
+     * Subscriber requesting one segment at a time, from its own onNext.
+     */
+    static class RecordingSubscriber implements Flow.Subscriber<SegmentView> {
+        final List<String> tags = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(SegmentView item) {
+            tags.add(item.getTag());
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    EDIStreamReader reader(String resource) {
+        return EDIInputFactory.newFactory().createEDIStreamReader(getClass().getResourceAsStream(resource));
+    }
+
+    @Test
+    void testSegmentsPublishedOnDemand() throws Exception {
+        EDISegmentPublisher publisher = new EDISegmentPublisher(reader("/x12/simple997.edi"), executor);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        publisher.subscribe(subscriber);
+        subscriber.done.get(10, TimeUnit.SECONDS);
+
+        assertArrayEquals(TAGS, subscriber.tags.toArray());
+    }
+
+    @Test
+    void testDeliveriesBoundedByDemand() throws Exception {
+        EDISegmentPublisher publisher = new EDISegmentPublisher(reader("/x12/sample837-original.edi"), executor);
+        List<Integer> positions = new CopyOnWriteArrayList<>();
+        AtomicLong outstanding = new AtomicLong();
+        AtomicBoolean exceeded = new AtomicBoolean();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        publisher.subscribe(new Flow.Subscriber<SegmentView>() {
+            Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                outstanding.set(5);
+                subscription.request(5);
+            }
+
+            @Override
+            public void onNext(SegmentView item) {
+                positions.add(item.getLocation().getSegmentPosition());
+
+                if (outstanding.decrementAndGet() < 0) {
+                    exceeded.set(true);
+                } else if (outstanding.get() == 0) {
+                    // Request the next batch only once the previous one was received
+                    outstanding.set(5);
+                    subscription.request(5);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                done.complete(null);
+            }
+        });
+
+        done.get(10, TimeUnit.SECONDS);
+        assertFalse(exceeded.get());
+        assertTrue(positions.size() > 10);
+
+        for (int i = 0; i < positions.size(); i++) {
+            assertEquals(i + 1, positions.get(i));
+        }
+    }
+
+    @Test
+    void testNoSegmentDeliveredBeforeOnSubscribeReturns() throws Exception {
+        EDISegmentPublisher publisher = new EDISegmentPublisher(reader("/x12/simple997.edi"), executor);
+        AtomicBoolean subscribing = new AtomicBoolean();
+        AtomicBoolean overlapped = new AtomicBoolean();
+
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscribing.set(true);
+                super.onSubscribe(subscription);
+
+                try {
+                    // Allow the executor time to deliver a segment concurrently
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                subscribing.set(false);
+            }
+
+            @Override
+            public void onNext(SegmentView item) {
+                if (subscribing.get()) {
+                    overlapped.set(true);
+                }
+                super.onNext(item);
+            }
+        };
+
+        publisher.subscribe(subscriber);
+        subscriber.done.get(10, TimeUnit.SECONDS);
+
+        assertFalse(overlapped.get(), "onNext signaled before onSubscribe returned");
+        assertArrayEquals(TAGS, subscriber.tags.toArray());
+    }
+
+    @Test
+    void testSecondSubscriberSignaledWithError() throws Exception {
+        EDISegmentPublisher publisher = new EDISegmentPublisher(reader("/x12/simple997.edi"), executor);
+        RecordingSubscriber first = new RecordingSubscriber();
+        RecordingSubscriber second = new RecordingSubscriber();
+
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        first.done.get(10, TimeUnit.SECONDS);
+        assertTrue(second.done.isCompletedExceptionally());
+        assertEquals(TAGS.length, first.tags.size());
+        assertTrue(second.tags.isEmpty());
+    }
+
+    @Test
+    void testCancelledSubscriptionClosesReader() throws Exception {
+        EDIStreamReader reader = reader("/x12/simple997.edi");
+        EDISegmentPublisher publisher = new EDISegmentPublisher(reader, executor);
+        CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+
+        publisher.subscribe(new RecordingSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.cancel();
+                subscribed.complete(subscription);
+            }
+        });
+
+        subscribed.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, reader::next);
+    }
+
+    @Test
+    void testAsyncReaderRejected() {
+        EDIAsyncStreamReader reader = EDIInputFactory.newFactory().createEDIAsyncStreamReader();
+        assertThrows(IllegalArgumentException.class, () -> new EDISegmentPublisher(reader, executor));
+        assertThrows(NullPointerException.class, () -> new EDISegmentPublisher(reader("/x12/simple997.edi"), null));
+    }
+}